@@ -0,0 +1,59 @@
+package byx.parserc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static byx.parserc.Parsers.*;
+
+/**
+ * <p>oneOf的回溯开销</p>
+ * <p>所有分支以相同的前缀开头，FIRST集无法排除任何分支，只有最后一个分支能匹配，每个位置回溯depth - 1次</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class BacktrackBenchmark {
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    @Param({"1KB", "1MB", "100MB"})
+    public String size;
+
+    private Parser<List<Object>> parser;
+    private String input;
+
+    @Setup
+    public void setup() {
+        Parser<?>[] branches = new Parser<?>[depth];
+        for (int i = 0; i < depth; i++) {
+            branches[i] = str("item").and(ch('#')).and(str(i + ";"));
+        }
+        parser = Parsers.<Object>oneOf(branches).many();
+        input = BenchmarkInputs.repeat("item#" + (depth - 1) + ";", BenchmarkInputs.parseSize(size));
+    }
+
+    @Benchmark
+    public List<Object> oneOf() {
+        return parser.parse(input);
+    }
+
+    @Benchmark
+    public int oneOfMatch() {
+        return parser.match(input, 0);
+    }
+}
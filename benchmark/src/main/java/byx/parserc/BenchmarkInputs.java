@@ -0,0 +1,98 @@
+package byx.parserc;
+
+/**
+ * 生成指定大小的测试输入
+ */
+class BenchmarkInputs {
+    /**
+     * 解析"1KB"、"1MB"、"100MB"形式的大小
+     * @param size 大小
+     * @return 字符数
+     */
+    static int parseSize(String size) {
+        if (size.endsWith("KB")) {
+            return Integer.parseInt(size.substring(0, size.length() - 2)) << 10;
+        }
+        if (size.endsWith("MB")) {
+            return Integer.parseInt(size.substring(0, size.length() - 2)) << 20;
+        }
+        return Integer.parseInt(size);
+    }
+
+    /**
+     * 重复unit直到长度不小于size
+     */
+    static String repeat(String unit, int size) {
+        return unit.repeat(Math.max(1, (size + unit.length() - 1) / unit.length()));
+    }
+
+    /**
+     * 由记录组成的json数组
+     */
+    static String json(int size) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; sb.length() < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("{\"name\": \"Xiao Ming\", \"age\": ").append(i % 100)
+                .append(", \"score\": [99.8, 87.5, 60.0], \"pass\": ").append(i % 3 != 0)
+                .append(", \"tags\": {\"a\": [], \"b\": [1, [2, [3]]]}}");
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * 包含四则运算、括号和负号的表达式
+     */
+    static String expr(int size) {
+        StringBuilder sb = new StringBuilder("1");
+        String[] ops = {" + ", " - ", " * ", " / "};
+        for (int i = 1; sb.length() < size; i++) {
+            sb.append(ops[i % ops.length]);
+            if (i % 7 == 0) {
+                sb.append("(2.5 - -").append(i).append(")");
+            } else {
+                sb.append(i).append(".5");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 嵌套层数有限的布尔表达式
+     */
+    static String bool(int size) {
+        StringBuilder sb = new StringBuilder("|(");
+        for (int i = 0; sb.length() < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("&(t,!(f),|(f,t,&(t,t)),f)");
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * {@link Tokenizer}能识别的源代码
+     */
+    static String source(int size) {
+        return repeat("""
+            var a = 123;
+            var b = 3.14;
+            var c = 'hello';
+            var d = [1, 2, 3.14, 'hello'];
+
+            function fib(n) {
+                if (n == 1 || n == 2) {
+                    return 1;
+                }
+                return fib(n - 1) + fib(n - 2);
+            }
+
+            function main() {
+                map(() => fib(10), a => a + 1);
+            }
+            """, size);
+    }
+}
@@ -0,0 +1,83 @@
+package byx.parserc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 测试用例中的完整语法在生成的输入上的吞吐量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class GrammarBenchmark {
+    @Param({"json", "json-compiled", "json-optimized", "json-frozen", "json-parallel", "expr", "bool", "tokenizer"})
+    public String grammar;
+
+    @Param({"1KB", "1MB", "100MB"})
+    public String size;
+
+    private Function<String, Object> parser;
+    private String input;
+
+    @Setup
+    public void setup() {
+        int n = BenchmarkInputs.parseSize(size);
+        switch (grammar) {
+            case "json" -> {
+                parser = JsonParser::parse;
+                input = BenchmarkInputs.json(n);
+            }
+            case "json-compiled" -> {
+                parser = JsonParser::parseCompiled;
+                input = BenchmarkInputs.json(n);
+            }
+            case "json-optimized" -> {
+                parser = JsonParser::parseOptimized;
+                input = BenchmarkInputs.json(n);
+            }
+            case "json-frozen" -> {
+                parser = JsonParser::parseFrozen;
+                input = BenchmarkInputs.json(n);
+            }
+            case "json-parallel" -> {
+                parser = JsonParser::parseParallel;
+                input = BenchmarkInputs.json(n);
+            }
+            case "expr" -> {
+                parser = ExprCalc::eval;
+                input = BenchmarkInputs.expr(n);
+            }
+            case "bool" -> {
+                parser = BoolExprCalc::eval;
+                input = BenchmarkInputs.bool(n);
+            }
+            case "tokenizer" -> {
+                parser = Tokenizer::tokenize;
+                input = BenchmarkInputs.source(n);
+            }
+            default -> throw new IllegalArgumentException("unknown grammar: " + grammar);
+        }
+        // 确保输入合法，避免测量到失败路径
+        parser.apply(input);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return parser.apply(input);
+    }
+}
@@ -0,0 +1,78 @@
+package byx.parserc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static byx.parserc.Parsers.*;
+
+/**
+ * 基本组合子在长输入上的吞吐量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class PrimitiveBenchmark {
+    private static final Parser<List<Character>> chMany = range('a', 'z').many();
+    private static final Parser<List<Character>> satisfyMany = satisfy(Character::isLetter).many();
+    private static final Parser<String> takeWhile = Parsers.takeWhile(CharClass.range('a', 'z'));
+    private static final Parser<List<String>> strMany = str("abcdefgh").many();
+    private static final Parser<List<String>> strsMany = strs("if", "int", "interface", "import", "in", "for", "final", "float").many();
+
+    @Param({"1KB", "1MB", "100MB"})
+    public String size;
+
+    private String letters;
+    private String keywords;
+
+    @Setup
+    public void setup() {
+        int n = BenchmarkInputs.parseSize(size);
+        letters = BenchmarkInputs.repeat("abcdefgh", n);
+        keywords = BenchmarkInputs.repeat("interfaceimportfloatinfinalintiffor", n);
+    }
+
+    @Benchmark
+    public List<Character> chMany() {
+        return chMany.parse(letters);
+    }
+
+    @Benchmark
+    public int chManyMatch() {
+        return chMany.match(letters, 0);
+    }
+
+    @Benchmark
+    public int satisfyManyMatch() {
+        return satisfyMany.match(letters, 0);
+    }
+
+    @Benchmark
+    public String takeWhile() {
+        return takeWhile.parse(letters);
+    }
+
+    @Benchmark
+    public List<String> strMany() {
+        return strMany.parse(letters);
+    }
+
+    @Benchmark
+    public List<String> strsMany() {
+        return strsMany.parse(keywords);
+    }
+}
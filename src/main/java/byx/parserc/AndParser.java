@@ -0,0 +1,77 @@
+package byx.parserc;
+
+/**
+ * 依次应用两个解析器，并组合两个解析器的解析结果
+ */
+public class AndParser<R1, R2> implements TryParser<Pair<R1, R2>>, CompositeParser {
+    private final Parser<R1> lhs;
+    private final Parser<R2> rhs;
+    private final boolean cut;
+
+    AndParser(Parser<R1> lhs, Parser<R2> rhs) {
+        this.lhs = lhs;
+        this.rhs = rhs;
+        this.cut = CutParser.cuts(lhs);
+    }
+
+    /**
+     * 获取左侧解析器
+     */
+    public Parser<R1> lhs() {
+        return lhs;
+    }
+
+    /**
+     * 获取右侧解析器
+     */
+    public Parser<R2> rhs() {
+        return rhs;
+    }
+
+    /**
+     * 左侧解析器是否包含切断点
+     */
+    boolean cutsLhs() {
+        return cut;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new AndParser<>((Parser<R1>) rewriter.visit(lhs), (Parser<R2>) rewriter.visit(rhs));
+    }
+
+    @Override
+    public ParseResult<Pair<R1, R2>> tryParse(CharSequence s, int index) {
+        ParseResult<R1> r1 = lhs.tryParse(s, index);
+        if (r1.isFailure()) {
+            return ParseResult.failure();
+        }
+        ParseResult<R2> r2 = rhs.tryParse(s, r1.index());
+        if (r2.isFailure()) {
+            if (cut) {
+                throw CutParser.failure(r1.index());
+            }
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(new Pair<>(r1.result(), r2.result()), r2.index());
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return FirstSet.concat(lhs.firstSet(), rhs.firstSet());
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int i = lhs.match(s, index);
+        if (i < 0) {
+            return -1;
+        }
+        int j = rhs.match(s, i);
+        if (j < 0 && cut) {
+            throw CutParser.failure(i);
+        }
+        return j;
+    }
+}
@@ -0,0 +1,162 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>由{@link Parser#optimize()}生成的扁平连接，连续应用多个解析器后按原来的嵌套结构组合解析结果</p>
+ * <p>嵌套的and、seq和skip被展开为一层，结果被丢弃的解析器只进行识别，结果固定的解析器不保存结果</p>
+ */
+public class ChainParser<R> implements TryParser<R>, CompositeParser {
+    private final Parser<?>[] parsers;
+    private final int[] slots;
+    private final Object[] template;
+    private final Shape shape;
+    private final int cut;
+
+    /**
+     * @param parsers 依次应用的解析器
+     * @param slots 每个解析器的结果保存位置，-1表示不需要结果
+     * @param template 结果数组的初始值，包含结果固定的位置
+     * @param shape 解析结果的组合方式
+     */
+    ChainParser(Parser<?>[] parsers, int[] slots, Object[] template, Shape shape) {
+        this.parsers = parsers;
+        this.slots = slots;
+        this.template = template;
+        this.shape = shape;
+        this.cut = CutParser.firstCut(parsers);
+    }
+
+    /**
+     * 获取依次应用的解析器
+     */
+    public Parser<?>[] parsers() {
+        return parsers.clone();
+    }
+
+    /**
+     * 第一个包含切断点的解析器的下标，之后的解析器失败时抛出异常；没有切断点时为解析器数量
+     */
+    int cutIndex() {
+        return cut;
+    }
+
+    int[] slots() {
+        return slots;
+    }
+
+    Shape shape() {
+        return shape;
+    }
+
+    Object[] newValues() {
+        return template.clone();
+    }
+
+    @SuppressWarnings("unchecked")
+    R build(Object[] values) {
+        return (R) shape.build(values);
+    }
+
+    @Override
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new ChainParser<>(rewriter.visit(parsers()), slots, template, shape);
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        Object[] values = template.clone();
+        for (int i = 0; i < parsers.length; i++) {
+            if (slots[i] >= 0) {
+                ParseResult<?> r = parsers[i].tryParse(s, index);
+                if (r.isFailure()) {
+                    if (i > cut) {
+                        throw CutParser.failure(index);
+                    }
+                    return ParseResult.failure();
+                }
+                values[slots[i]] = r.result();
+                index = r.index();
+            } else {
+                int next = parsers[i].match(s, index);
+                if (next < 0) {
+                    if (i > cut) {
+                        throw CutParser.failure(index);
+                    }
+                    return ParseResult.failure();
+                }
+                index = next;
+            }
+        }
+        return new ParseResult<>(build(values), index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = FirstSet.empty();
+        for (Parser<?> p : parsers) {
+            if (first == null || !first.nullable()) {
+                break;
+            }
+            first = FirstSet.concat(first, p.firstSet());
+        }
+        return first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        for (int i = 0; i < parsers.length; i++) {
+            int next = parsers[i].match(s, index);
+            if (next < 0) {
+                if (i > cut) {
+                    throw CutParser.failure(index);
+                }
+                return -1;
+            }
+            index = next;
+        }
+        return index;
+    }
+
+    /**
+     * 解析结果的组合方式
+     */
+    interface Shape {
+        Object build(Object[] values);
+    }
+
+    /**
+     * 结果数组中的一个结果
+     */
+    record Slot(int index) implements Shape {
+        @Override
+        public Object build(Object[] values) {
+            return values[index];
+        }
+    }
+
+    /**
+     * and的结果
+     */
+    record PairShape(Shape first, Shape second) implements Shape {
+        @Override
+        public Object build(Object[] values) {
+            return new Pair<>(first.build(values), second.build(values));
+        }
+    }
+
+    /**
+     * seq的结果
+     */
+    record ListShape(Shape[] items) implements Shape {
+        @Override
+        public Object build(Object[] values) {
+            List<Object> result = new ArrayList<>(items.length);
+            for (Shape item : items) {
+                result.add(item.build(values));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package byx.parserc;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * <p>字符集，不可变</p>
+ * <p>ASCII字符通过128位的位图查找，其余字符通过有序区间二分查找</p>
+ * <p>支持并集、交集、补集运算，运算结果仍然是单个字符集，匹配时只需一次查表</p>
+ */
+public final class CharClass implements IntPredicate {
+    private static final CharClass NONE = new CharClass(new int[0]);
+    private static final CharClass ALL = new CharClass(new int[]{Character.MIN_VALUE, Character.MAX_VALUE});
+
+    /**
+     * ASCII字符位图
+     */
+    private final long lo;
+    private final long hi;
+
+    /**
+     * 有序且互不相交的闭区间[ranges[2i], ranges[2i + 1]]
+     */
+    private final int[] ranges;
+
+    private CharClass(int[] ranges) {
+        this.ranges = ranges;
+        long lo = 0, hi = 0;
+        for (int i = 0; i < ranges.length && ranges[i] < 128; i += 2) {
+            for (int c = ranges[i]; c <= Math.min(ranges[i + 1], 127); c++) {
+                if (c < 64) {
+                    lo |= 1L << c;
+                } else {
+                    hi |= 1L << (c - 64);
+                }
+            }
+        }
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    /**
+     * 空字符集
+     */
+    public static CharClass none() {
+        return NONE;
+    }
+
+    /**
+     * 包含所有字符的字符集
+     */
+    public static CharClass all() {
+        return ALL;
+    }
+
+    /**
+     * 由若干字符组成的字符集
+     * @param chs 字符
+     */
+    public static CharClass of(char... chs) {
+        int[] ranges = new int[chs.length * 2];
+        for (int i = 0; i < chs.length; i++) {
+            ranges[2 * i] = ranges[2 * i + 1] = chs[i];
+        }
+        return new CharClass(normalize(ranges));
+    }
+
+    /**
+     * 区间[c1, c2]内的字符组成的字符集
+     * @param c1 c1
+     * @param c2 c2
+     */
+    public static CharClass range(char c1, char c2) {
+        return new CharClass(new int[]{Math.min(c1, c2), Math.max(c1, c2)});
+    }
+
+    /**
+     * 判断字符c是否属于该字符集
+     * @param c c
+     */
+    public boolean contains(int c) {
+        if (c < 64) {
+            return (lo & (1L << c)) != 0;
+        }
+        if (c < 128) {
+            return (hi & (1L << (c - 64))) != 0;
+        }
+        int l = 0, r = ranges.length / 2 - 1;
+        while (l <= r) {
+            int m = (l + r) >>> 1;
+            if (c < ranges[2 * m]) {
+                r = m - 1;
+            } else if (c > ranges[2 * m + 1]) {
+                l = m + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean test(int c) {
+        return contains(c);
+    }
+
+    /**
+     * 并集
+     * @param other other
+     */
+    public CharClass union(CharClass other) {
+        int[] merged = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+        System.arraycopy(other.ranges, 0, merged, ranges.length, other.ranges.length);
+        return new CharClass(normalize(merged));
+    }
+
+    /**
+     * 补集
+     */
+    public CharClass negate() {
+        int[] result = new int[ranges.length + 2];
+        int n = 0;
+        int next = Character.MIN_VALUE;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                result[n++] = next;
+                result[n++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            result[n++] = next;
+            result[n++] = Character.MAX_VALUE;
+        }
+        return new CharClass(Arrays.copyOf(result, n));
+    }
+
+    /**
+     * 交集
+     * @param other other
+     */
+    public CharClass intersect(CharClass other) {
+        return negate().union(other.negate()).negate();
+    }
+
+    /**
+     * 差集
+     * @param other other
+     */
+    public CharClass minus(CharClass other) {
+        return intersect(other.negate());
+    }
+
+    /**
+     * 是否为空字符集
+     */
+    public boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    /**
+     * 获取有序且互不相交的闭区间，第i个区间为[ranges[2i], ranges[2i + 1]]
+     */
+    public int[] ranges() {
+        return ranges.clone();
+    }
+
+    /**
+     * 排序并合并区间
+     */
+    private static int[] normalize(int[] ranges) {
+        int n = ranges.length / 2;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) ranges[2 * i] << 32) | ranges[2 * i + 1];
+        }
+        Arrays.sort(packed);
+
+        int[] result = new int[ranges.length];
+        int m = 0;
+        for (long p : packed) {
+            int start = (int) (p >>> 32);
+            int end = (int) p;
+            if (m > 0 && start <= result[m - 1] + 1) {
+                result[m - 1] = Math.max(result[m - 1], end);
+            } else {
+                result[m++] = start;
+                result[m++] = end;
+            }
+        }
+        return Arrays.copyOf(result, m);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CharClass c && Arrays.equals(ranges, c.ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < ranges.length; i += 2) {
+            appendChar(sb, ranges[i]);
+            if (ranges[i + 1] != ranges[i]) {
+                sb.append('-');
+                appendChar(sb, ranges[i + 1]);
+            }
+        }
+        return sb.append("]").toString();
+    }
+
+    private static void appendChar(StringBuilder sb, int c) {
+        if (c >= 0x20 && c < 0x7f) {
+            sb.append((char) c);
+        } else {
+            sb.append(String.format("\\u%04x", c));
+        }
+    }
+}
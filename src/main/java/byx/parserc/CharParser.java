@@ -0,0 +1,98 @@
+package byx.parserc;
+
+import java.util.function.IntPredicate;
+
+/**
+ * <p>字符解析器，使用基本类型的谓词或字符集匹配单个字符，匹配过程不装箱</p>
+ * <p>{@link #match(CharSequence, int)}只返回匹配后的位置，{@link #matchChar(CharSequence, int)}以int返回匹配的字符，两者都不装箱</p>
+ * <p>{@link #tryParse(CharSequence, int)}返回的Character结果仍需装箱（只有ASCII字符有缓存），takeWhile、lexeme和text只做识别，不经过这条路径</p>
+ */
+public class CharParser implements TryParser<Character> {
+    private final IntPredicate predicate;
+    private final CharClass charClass;
+
+    /**
+     * @param predicate 字符谓词
+     */
+    public CharParser(IntPredicate predicate) {
+        this.predicate = predicate;
+        this.charClass = predicate instanceof CharClass c ? c : null;
+    }
+
+    /**
+     * 获取字符谓词
+     */
+    public IntPredicate predicate() {
+        return predicate;
+    }
+
+    /**
+     * 获取字符集，如果该解析器使用任意谓词构造，则返回null
+     */
+    public CharClass charClass() {
+        return charClass;
+    }
+
+    /**
+     * 判断字符c是否匹配
+     * @param c c
+     */
+    public boolean test(char c) {
+        return charClass != null ? charClass.contains(c) : predicate.test(c);
+    }
+
+    /**
+     * 匹配当前位置的字符，匹配成功后的位置为index + 1
+     * @param s 字符串
+     * @param index 当前位置
+     * @return 匹配成功时返回该字符，否则返回-1
+     */
+    public int matchChar(CharSequence s, int index) {
+        if (s instanceof Inputs.CharArrayInput a) {
+            if (index < a.length) {
+                char c = a.chars[a.offset + index];
+                return test(c) ? c : -1;
+            }
+            return -1;
+        }
+        if (Inputs.has(s, index)) {
+            char c = s.charAt(index);
+            return test(c) ? c : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * 匹配当前位置的字符
+     * @param s 字符串
+     * @param index 当前位置
+     * @return 匹配成功时返回index + 1，否则返回-1
+     */
+    @Override
+    public int match(CharSequence s, int index) {
+        return matchChar(s, index) < 0 ? -1 : index + 1;
+    }
+
+    @Override
+    public ParseResult<Character> tryParse(CharSequence s, int index) {
+        int c = matchChar(s, index);
+        return c < 0 ? ParseResult.failure() : new ParseResult<>((char) c, index + 1);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return charClass == null ? null : FirstSet.of(charClass);
+    }
+
+    /**
+     * 如果rhs也是基于字符集的字符解析器，则合并为一个字符集
+     * @param rhs 解析器2
+     */
+    @Override
+    public Parser<Character> or(Parser<Character> rhs) {
+        if (charClass != null && rhs instanceof CharParser p && p.charClass != null) {
+            return new CharParser(charClass.union(p.charClass));
+        }
+        return TryParser.super.or(rhs);
+    }
+}
@@ -0,0 +1,530 @@
+package byx.parserc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>最小的class文件生成器，只支持{@link GrammarCompiler}用到的指令</p>
+ * <p>生成的class文件版本为49，由类型推导校验器校验，不需要生成StackMapTable</p>
+ */
+final class ClassFileWriter {
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_M1 = 0x02;
+    static final int ICONST_0 = 0x03;
+    static final int ACONST_NULL = 0x01;
+    static final int IADD = 0x60;
+    static final int ISUB = 0x64;
+    static final int AALOAD = 0x32;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IRETURN = 0xac;
+    static final int RETURN = 0xb1;
+    static final int ATHROW = 0xbf;
+    static final int IFEQ = 0x99;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int GOTO = 0xa7;
+
+    private static final int MAGIC = 0xcafebabe;
+    private static final int VERSION = 49;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    private final String name;
+    private final String superName;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<Code> methods = new ArrayList<>();
+
+    /**
+     * @param name 类的内部名称，如byx/parserc/Foo
+     * @param superName 父类的内部名称
+     */
+    ClassFileWriter(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void field(int access, String fieldName, String desc) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeShort(access);
+            out.writeShort(utf8(fieldName));
+            out.writeShort(utf8(desc));
+            out.writeShort(0);
+        });
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * 添加方法，返回用于生成方法体的{@link Code}
+     * @param access 访问标志
+     * @param methodName 方法名
+     * @param desc 方法描述符
+     * @param params 参数占用的局部变量槽数，实例方法包括this
+     */
+    Code method(int access, String methodName, String desc, int params) {
+        Code code = new Code(access, methodName, desc, params);
+        methods.add(code);
+        return code;
+    }
+
+    byte[] toByteArray() {
+        int thisIndex = classRef(name);
+        int superIndex = classRef(superName);
+        List<byte[]> methodBytes = new ArrayList<>();
+        for (Code m : methods) {
+            methodBytes.add(m.toByteArray());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(ACC_SUPER | ACC_FINAL);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (byte[] f : fields) {
+                out.write(f);
+            }
+            out.writeShort(methodBytes.size());
+            for (byte[] m : methodBytes) {
+                out.write(m);
+            }
+            out.writeShort(0);
+        });
+        return bytes.toByteArray();
+    }
+
+    int utf8(String s) {
+        return constant("U" + s, () -> {
+            poolOut.writeByte(1);
+            poolOut.writeUTF(s);
+        });
+    }
+
+    int classRef(String internalName) {
+        int u = utf8(internalName);
+        return constant("C" + internalName, () -> {
+            poolOut.writeByte(7);
+            poolOut.writeShort(u);
+        });
+    }
+
+    int string(String s) {
+        int u = utf8(s);
+        return constant("S" + s, () -> {
+            poolOut.writeByte(8);
+            poolOut.writeShort(u);
+        });
+    }
+
+    int integer(int value) {
+        return constant("I" + value, () -> {
+            poolOut.writeByte(3);
+            poolOut.writeInt(value);
+        });
+    }
+
+    int fieldRef(String owner, String fieldName, String desc) {
+        return memberRef(9, owner, fieldName, desc);
+    }
+
+    int methodRef(String owner, String methodName, String desc) {
+        return memberRef(10, owner, methodName, desc);
+    }
+
+    int interfaceMethodRef(String owner, String methodName, String desc) {
+        return memberRef(11, owner, methodName, desc);
+    }
+
+    private int memberRef(int tag, String owner, String memberName, String desc) {
+        int c = classRef(owner);
+        int n = utf8(memberName);
+        int d = utf8(desc);
+        int nt = constant("N" + memberName + ":" + desc, () -> {
+            poolOut.writeByte(12);
+            poolOut.writeShort(n);
+            poolOut.writeShort(d);
+        });
+        return constant(tag + owner + "." + memberName + ":" + desc, () -> {
+            poolOut.writeByte(tag);
+            poolOut.writeShort(c);
+            poolOut.writeShort(nt);
+        });
+    }
+
+    private int constant(String key, IOAction writer) {
+        Integer index = poolIndex.get(key);
+        if (index == null) {
+            write(writer);
+            index = poolCount++;
+            poolIndex.put(key, index);
+        }
+        return index;
+    }
+
+    private static void write(IOAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * 跳转目标
+     */
+    static final class Label {
+        private int position = -1;
+        private final List<int[]> references = new ArrayList<>();
+    }
+
+    /**
+     * 方法体生成器
+     */
+    final class Code {
+        /**
+         * 生成的代码只在少量常量之间运算，操作数栈深度不会超过该值
+         */
+        private static final int MAX_STACK = 12;
+
+        private final int access;
+        private final String methodName;
+        private final String desc;
+        private int maxLocals;
+        private byte[] code = new byte[64];
+        private int length;
+        private final List<Label> labels = new ArrayList<>();
+        /**
+         * 异常处理表，每项依次为起始标签、结束标签、处理代码标签
+         */
+        private final List<Label[]> handlers = new ArrayList<>();
+        private final List<Integer> handlerTypes = new ArrayList<>();
+
+        private Code(int access, String methodName, String desc, int params) {
+            this.access = access;
+            this.methodName = methodName;
+            this.desc = desc;
+            this.maxLocals = params;
+        }
+
+        /**
+         * 分配一个新的局部变量槽
+         */
+        int newLocal() {
+            return maxLocals++;
+        }
+
+        Code op(int opcode) {
+            u1(opcode);
+            return this;
+        }
+
+        Code iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                u1(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                u1(0x10);
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                u1(0x11);
+                u2(value);
+            } else {
+                ldc(integer(value));
+            }
+            return this;
+        }
+
+        Code ldcString(String s) {
+            return ldc(string(s));
+        }
+
+        Code ldcClass(String internalName) {
+            return ldc(classRef(internalName));
+        }
+
+        private Code ldc(int index) {
+            if (index < 256) {
+                u1(0x12);
+                u1(index);
+            } else {
+                u1(0x13);
+                u2(index);
+            }
+            return this;
+        }
+
+        Code iload(int local) {
+            return local(0x15, local);
+        }
+
+        Code istore(int local) {
+            return local(0x36, local);
+        }
+
+        Code aload(int local) {
+            return local(0x19, local);
+        }
+
+        Code astore(int local) {
+            return local(0x3a, local);
+        }
+
+        private Code local(int opcode, int local) {
+            if (local > 255) {
+                u1(0xc4);
+                u1(opcode);
+                u2(local);
+            } else {
+                u1(opcode);
+                u1(local);
+            }
+            return this;
+        }
+
+        Code iinc(int local, int delta) {
+            u1(0xc4);
+            u1(0x84);
+            u2(local);
+            u2(delta);
+            return this;
+        }
+
+        Code getstatic(String owner, String fieldName, String fieldDesc) {
+            u1(0xb2);
+            u2(fieldRef(owner, fieldName, fieldDesc));
+            return this;
+        }
+
+        Code putstatic(String owner, String fieldName, String fieldDesc) {
+            u1(0xb3);
+            u2(fieldRef(owner, fieldName, fieldDesc));
+            return this;
+        }
+
+        Code invokestatic(String owner, String name, String methodDesc) {
+            u1(0xb8);
+            u2(methodRef(owner, name, methodDesc));
+            return this;
+        }
+
+        Code invokevirtual(String owner, String name, String methodDesc) {
+            u1(0xb6);
+            u2(methodRef(owner, name, methodDesc));
+            return this;
+        }
+
+        Code invokespecial(String owner, String name, String methodDesc) {
+            u1(0xb7);
+            u2(methodRef(owner, name, methodDesc));
+            return this;
+        }
+
+        Code invokeinterface(String owner, String name, String methodDesc) {
+            u1(0xb9);
+            u2(interfaceMethodRef(owner, name, methodDesc));
+            u1(argumentSlots(methodDesc) + 1);
+            u1(0);
+            return this;
+        }
+
+        Code anew(String internalName) {
+            u1(0xbb);
+            u2(classRef(internalName));
+            return this;
+        }
+
+        Code checkcast(String internalName) {
+            u1(0xc0);
+            u2(classRef(internalName));
+            return this;
+        }
+
+        Label label() {
+            Label label = new Label();
+            labels.add(label);
+            return label;
+        }
+
+        Code mark(Label label) {
+            label.position = length;
+            return this;
+        }
+
+        /**
+         * 生成跳转指令
+         * @param opcode 条件跳转或goto指令
+         * @param target 跳转目标
+         */
+        Code jump(int opcode, Label target) {
+            int start = length;
+            u1(opcode);
+            target.references.add(new int[]{start, length, 2});
+            u2(0);
+            return this;
+        }
+
+        /**
+         * 在[start, end)范围内捕获type类型的异常，跳转到handler时操作数栈只有异常对象
+         * @param type 异常类的内部名称
+         */
+        Code tryCatch(Label start, Label end, Label handler, String type) {
+            handlers.add(new Label[]{start, end, handler});
+            handlerTypes.add(classRef(type));
+            return this;
+        }
+
+        /**
+         * 生成tableswitch指令
+         * @param low 最小值
+         * @param dflt 默认跳转目标
+         * @param targets 从low开始每个值的跳转目标
+         */
+        Code tableswitch(int low, Label dflt, Label[] targets) {
+            int start = length;
+            u1(0xaa);
+            while (length % 4 != 0) {
+                u1(0);
+            }
+            dflt.references.add(new int[]{start, length, 4});
+            u4(0);
+            u4(low);
+            u4(low + targets.length - 1);
+            for (Label t : targets) {
+                t.references.add(new int[]{start, length, 4});
+                u4(0);
+            }
+            return this;
+        }
+
+        private byte[] toByteArray() {
+            for (Label label : labels) {
+                if (label.position < 0 && !label.references.isEmpty()) {
+                    throw new IllegalStateException("unbound label in " + methodName);
+                }
+                for (int[] ref : label.references) {
+                    int offset = label.position - ref[0];
+                    if (ref[2] == 2) {
+                        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                            throw new IllegalStateException("method too large: " + methodName);
+                        }
+                        code[ref[1]] = (byte) (offset >> 8);
+                        code[ref[1] + 1] = (byte) offset;
+                    } else {
+                        for (int i = 0; i < 4; i++) {
+                            code[ref[1] + i] = (byte) (offset >> (24 - 8 * i));
+                        }
+                    }
+                }
+            }
+
+            int nameIndex = utf8(methodName);
+            int descIndex = utf8(desc);
+            int codeIndex = utf8("Code");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            write(() -> {
+                out.writeShort(access);
+                out.writeShort(nameIndex);
+                out.writeShort(descIndex);
+                out.writeShort(1);
+                out.writeShort(codeIndex);
+                out.writeInt(12 + length + 8 * handlers.size());
+                out.writeShort(MAX_STACK);
+                out.writeShort(maxLocals);
+                out.writeInt(length);
+                out.write(code, 0, length);
+                out.writeShort(handlers.size());
+                for (int i = 0; i < handlers.size(); i++) {
+                    Label[] h = handlers.get(i);
+                    out.writeShort(h[0].position);
+                    out.writeShort(h[1].position);
+                    out.writeShort(h[2].position);
+                    out.writeShort(handlerTypes.get(i));
+                }
+                out.writeShort(0);
+            });
+            return bytes.toByteArray();
+        }
+
+        private void u1(int b) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) b;
+        }
+
+        private void u2(int v) {
+            u1(v >> 8);
+            u1(v);
+        }
+
+        private void u4(int v) {
+            u2(v >> 16);
+            u2(v);
+        }
+    }
+
+    /**
+     * 计算方法参数占用的槽数，只支持引用、int、char和boolean参数
+     */
+    private static int argumentSlots(String desc) {
+        int slots = 0;
+        int i = 1;
+        while (desc.charAt(i) != ')') {
+            char c = desc.charAt(i);
+            if (c == 'J' || c == 'D') {
+                slots += 2;
+                i++;
+            } else if (c == 'L') {
+                slots++;
+                i = desc.indexOf(';', i) + 1;
+            } else if (c == '[') {
+                while (desc.charAt(i) == '[') {
+                    i++;
+                }
+                if (desc.charAt(i) == 'L') {
+                    i = desc.indexOf(';', i);
+                }
+                slots++;
+                i++;
+            } else {
+                slots++;
+                i++;
+            }
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,61 @@
+package byx.parserc;
+
+/**
+ * 解析器解析成功后设置提交点，流式输入可以丢弃提交点之前的字符，记忆化表丢弃提交点之前的结果
+ */
+public class CommitParser<R> implements TryParser<R>, CompositeParser {
+    private final Parser<R> parser;
+
+    CommitParser(Parser<R> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * 获取被包装的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new CommitParser<>((Parser<R>) rewriter.visit(parser));
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        ParseResult<R> r = parser.tryParse(s, index);
+        if (!r.isFailure()) {
+            commit(s, r.index());
+        }
+        return r;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int i = parser.match(s, index);
+        if (i >= 0) {
+            commit(s, i);
+        }
+        return i;
+    }
+
+    /**
+     * 如果s是流式输入，则在index处设置提交点，并丢弃当前解析的记忆化表中index之前的结果
+     */
+    static void commit(CharSequence s, int index) {
+        if (s instanceof Inputs.ReaderInput in) {
+            in.commit(index);
+        }
+        ParseContext ctx = ParseContext.current();
+        if (ctx != null && ctx.isParsing(s)) {
+            ctx.discard(index);
+        }
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return parser.firstSet();
+    }
+}
@@ -0,0 +1,14 @@
+package byx.parserc;
+
+/**
+ * <p>引用其他解析器的组合子</p>
+ * <p>对整个语法的改写（{@link Grammar#freeze(Parser)}和{@link Parser#optimize()}）通过该接口复制组合子，
+ * 新增的组合子只需实现该接口即可参与改写</p>
+ */
+interface CompositeParser {
+    /**
+     * 用rewriter改写直接引用的解析器，返回引用改写结果、其他设置不变的同类解析器
+     * @param rewriter 语法改写器
+     */
+    Parser<?> rebuild(GrammarRewriter rewriter);
+}
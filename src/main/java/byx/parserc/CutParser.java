@@ -0,0 +1,90 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseCutException;
+
+/**
+ * <p>切断点：被包装的解析器成功后，所在连接中之后的部分解析失败时抛出{@link ParseCutException}，不再回溯尝试其他分支</p>
+ * <p>切断点只是连接中的标记，由连接在失败时检查；解析时直接应用被包装的解析器</p>
+ */
+public class CutParser<R> implements TryParser<R>, CompositeParser {
+    private final Parser<R> parser;
+
+    CutParser(Parser<R> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * 获取被包装的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new CutParser<>((Parser<R>) rewriter.visit(parser));
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        return parser.tryParse(s, index);
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        return parser.match(s, index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return parser.firstSet();
+    }
+
+    /**
+     * 切断点之后的解析器在index处失败时抛出的异常
+     */
+    static ParseCutException failure(int index) {
+        return new ParseCutException(index);
+    }
+
+    /**
+     * 解析器成功时是否一定经过了切断点，只检查连接和不改变成败的包装
+     */
+    static boolean cuts(Parser<?> p) {
+        if (p instanceof CutParser<?>) {
+            return true;
+        } else if (p instanceof AndParser<?, ?> a) {
+            return a.cutsLhs();
+        } else if (p instanceof SeqParser q) {
+            return q.cutIndex() < q.parsers().length;
+        } else if (p instanceof PickParser<?> q) {
+            return q.cutIndex() < q.parsers().length;
+        } else if (p instanceof ChainParser<?> q) {
+            return q.cutIndex() < q.parsers().length;
+        } else if (p instanceof TypedSeqParser<?> q) {
+            return q.cutIndex() < q.parsers().length;
+        } else if (p instanceof MapParser<?, ?> q) {
+            return cuts(q.parser());
+        } else if (p instanceof TextParser q) {
+            return cuts(q.parser());
+        } else if (p instanceof CommitParser<?> q) {
+            return cuts(q.parser());
+        } else if (p instanceof ProfiledParser<?> q) {
+            return cuts(q.parser());
+        }
+        return false;
+    }
+
+    /**
+     * 获取第一个包含切断点的解析器的下标，没有时返回parsers.length
+     */
+    static int firstCut(Parser<?>[] parsers) {
+        for (int i = 0; i < parsers.length; i++) {
+            if (cuts(parsers[i])) {
+                return i;
+            }
+        }
+        return parsers.length;
+    }
+}
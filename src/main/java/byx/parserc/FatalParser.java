@@ -0,0 +1,82 @@
+package byx.parserc;
+
+import java.util.function.BiFunction;
+
+/**
+ * <p>解析器解析失败时抛出指定异常</p>
+ * <p>输入为String时异常转换函数接收整个输入，其他输入只传递失败位置前后有限的片段，避免复制大型输入</p>
+ */
+public class FatalParser<R> implements TryParser<R>, CompositeParser {
+    /**
+     * 片段在失败位置前后最多保留的字符数
+     */
+    private static final int EXCERPT_RADIUS = 256;
+
+    private final Parser<R> parser;
+    private final BiFunction<String, Integer, RuntimeException> exceptionMapper;
+
+    FatalParser(Parser<R> parser, BiFunction<String, Integer, RuntimeException> exceptionMapper) {
+        this.parser = parser;
+        this.exceptionMapper = exceptionMapper;
+    }
+
+    /**
+     * 获取被包装的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取异常转换函数
+     */
+    public BiFunction<String, Integer, RuntimeException> exceptionMapper() {
+        return exceptionMapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new FatalParser<>((Parser<R>) rewriter.visit(parser), exceptionMapper);
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        ParseResult<R> r = parser.tryParse(s, index);
+        if (r.isFailure()) {
+            throw failure(s, index);
+        }
+        return r;
+    }
+
+    /**
+     * 该解析器失败时会抛出异常，不能根据FIRST集跳过
+     */
+    @Override
+    public FirstSet firstSet() {
+        return null;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int i = parser.match(s, index);
+        if (i < 0) {
+            throw failure(s, index);
+        }
+        return i;
+    }
+
+    /**
+     * 生成在index处失败时抛出的异常，非String输入传递index前后的片段和index在片段中的位置
+     */
+    RuntimeException failure(CharSequence s, int index) {
+        if (s instanceof String str) {
+            return exceptionMapper.apply(str, index);
+        }
+        // 流式输入只能从缓冲区中尚未丢弃的位置开始截取
+        int first = s instanceof Inputs.ReaderInput r ? r.bufferStart() : 0;
+        int start = Math.min(index, Math.max(first, index - EXCERPT_RADIUS));
+        int end = Math.max(start, (int) Math.min(s.length(), (long) index + EXCERPT_RADIUS));
+        return exceptionMapper.apply(Inputs.substring(s, start, end), index - start);
+    }
+}
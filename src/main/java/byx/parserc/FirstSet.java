@@ -0,0 +1,72 @@
+package byx.parserc;
+
+/**
+ * <p>解析器的FIRST集</p>
+ * <p>如果解析器在位置i解析成功，则要么i处的字符属于chars，要么nullable为true；
+ * 如果解析器消耗了输入，则第一个被消耗的字符一定属于chars</p>
+ * @param chars 可能出现在开头的字符
+ * @param nullable 是否可能在不满足chars的情况下解析成功（如匹配空串）
+ */
+public record FirstSet(CharClass chars, boolean nullable) {
+    private static final FirstSet EMPTY = new FirstSet(CharClass.none(), true);
+
+    /**
+     * 只匹配空串的FIRST集
+     */
+    public static FirstSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 以charClass中字符开头且不可空的FIRST集
+     * @param chars 字符集
+     */
+    public static FirstSet of(CharClass chars) {
+        return new FirstSet(chars, false);
+    }
+
+    /**
+     * 计算两个解析器有序选择的FIRST集，任意一个未知时返回null
+     * @param a a
+     * @param b b
+     */
+    public static FirstSet union(FirstSet a, FirstSet b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        return new FirstSet(a.chars.union(b.chars), a.nullable || b.nullable);
+    }
+
+    /**
+     * 计算两个解析器顺序连接的FIRST集，结果未知时返回null
+     * @param a 前一个解析器的FIRST集
+     * @param b 后一个解析器的FIRST集
+     */
+    public static FirstSet concat(FirstSet a, FirstSet b) {
+        if (a == null) {
+            return null;
+        }
+        if (!a.nullable) {
+            return a;
+        }
+        if (b == null) {
+            return null;
+        }
+        return new FirstSet(a.chars.union(b.chars), b.nullable);
+    }
+
+    /**
+     * 返回可空的FIRST集
+     */
+    public FirstSet asNullable() {
+        return nullable ? this : new FirstSet(chars, true);
+    }
+
+    /**
+     * 判断解析器是否可能在当前字符c处解析成功
+     * @param c c
+     */
+    public boolean accepts(int c) {
+        return nullable || chars.contains(c);
+    }
+}
@@ -0,0 +1,55 @@
+package byx.parserc;
+
+import java.util.function.Function;
+
+/**
+ * 首先应用解析器，然后根据解析结果生成下一个解析器，再接着应用下一个解析器
+ */
+public class FlatMapParser<R, R2> implements TryParser<Pair<R, R2>>, CompositeParser {
+    private final Parser<R> parser;
+    private final Function<ParseResult<R>, Parser<R2>> mapper;
+
+    FlatMapParser(Parser<R> parser, Function<ParseResult<R>, Parser<R2>> mapper) {
+        this.parser = parser;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 获取首先应用的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取生成下一个解析器的函数
+     */
+    public Function<ParseResult<R>, Parser<R2>> mapper() {
+        return mapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new FlatMapParser<>((Parser<R>) rewriter.visit(parser), mapper);
+    }
+
+    @Override
+    public ParseResult<Pair<R, R2>> tryParse(CharSequence s, int index) {
+        ParseResult<R> r1 = parser.tryParse(s, index);
+        if (r1.isFailure()) {
+            return ParseResult.failure();
+        }
+        ParseResult<R2> r2 = mapper.apply(r1).tryParse(s, r1.index());
+        if (r2.isFailure()) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(new Pair<>(r1.result(), r2.result()), r2.index());
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = parser.firstSet();
+        return first != null && !first.nullable() ? first : null;
+    }
+}
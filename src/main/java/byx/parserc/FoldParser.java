@@ -0,0 +1,169 @@
+package byx.parserc;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * <p>连续应用解析器多次，边解析边把每次的结果累加到累加值中，不构造结果列表</p>
+ * <p>没有累加函数时只识别输入，解析结果为null</p>
+ * @param <R> 被重复的解析器的结果类型
+ * @param <A> 累加值类型
+ * @param <T> 解析结果类型
+ */
+public class FoldParser<R, A, T> implements TryParser<T>, CompositeParser {
+    private final Parser<R> parser;
+    private final int minTimes;
+    private final int maxTimes;
+    private final Supplier<A> seed;
+    private final BiFunction<A, ? super R, A> accumulator;
+    private final Function<A, T> finisher;
+
+    /**
+     * @param parser 解析器
+     * @param minTimes 最小次数
+     * @param maxTimes 最大次数，小于0表示不限次数
+     * @param seed 初始累加值的生成器
+     * @param accumulator 累加函数，为null时只识别输入
+     * @param finisher 把累加值转换为解析结果
+     */
+    FoldParser(Parser<R> parser, int minTimes, int maxTimes, Supplier<A> seed,
+               BiFunction<A, ? super R, A> accumulator, Function<A, T> finisher) {
+        this.parser = parser;
+        this.minTimes = minTimes;
+        this.maxTimes = maxTimes;
+        this.seed = seed;
+        this.accumulator = accumulator;
+        this.finisher = finisher;
+    }
+
+    /**
+     * 用collector收集每次的解析结果
+     */
+    static <R, A, T> FoldParser<R, A, T> collect(Parser<R> parser, int minTimes, Collector<? super R, A, T> collector) {
+        BiConsumer<A, ? super R> add = collector.accumulator();
+        return new FoldParser<>(parser, minTimes, -1, collector.supplier(), (acc, r) -> {
+            add.accept(acc, r);
+            return acc;
+        }, collector.finisher());
+    }
+
+    /**
+     * 只识别输入的重复
+     */
+    static <R> FoldParser<R, Void, Void> skip(Parser<R> parser, int minTimes, int maxTimes) {
+        return new FoldParser<>(parser, minTimes, maxTimes, null, null, null);
+    }
+
+    /**
+     * 返回使用另一个被重复的解析器、其他设置不变的解析器
+     */
+    FoldParser<R, A, T> withParser(Parser<R> parser) {
+        return new FoldParser<>(parser, minTimes, maxTimes, seed, accumulator, finisher);
+    }
+
+    /**
+     * 获取被重复的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取最少重复次数
+     */
+    public int minTimes() {
+        return minTimes;
+    }
+
+    /**
+     * 获取最多重复次数
+     */
+    public int maxTimes() {
+        return maxTimes;
+    }
+
+    /**
+     * 获取初始累加值的生成器
+     */
+    public Supplier<A> seed() {
+        return seed;
+    }
+
+    /**
+     * 获取累加函数，只识别输入时为null
+     */
+    public BiFunction<A, ? super R, A> accumulator() {
+        return accumulator;
+    }
+
+    /**
+     * 获取累加值到解析结果的转换
+     */
+    public Function<A, T> finisher() {
+        return finisher;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return withParser((Parser<R>) rewriter.visit(parser));
+    }
+
+    @Override
+    public ParseResult<T> tryParse(CharSequence s, int index) {
+        if (accumulator == null) {
+            int end = match(s, index);
+            return end < 0 ? ParseResult.failure() : new ParseResult<>(null, end);
+        }
+
+        A acc = seed.get();
+        int times = 0;
+        ParseContext ctx = ParseContext.limited();
+        while (times < minTimes || times < maxTimes || maxTimes < 0) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            ParseResult<R> r = parser.tryParse(s, index);
+            if (r.isFailure()) {
+                break;
+            }
+            acc = accumulator.apply(acc, r.result());
+            index = r.index();
+            times++;
+        }
+        if (times < minTimes) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(finisher.apply(acc), index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = parser.firstSet();
+        if (first == null) {
+            return null;
+        }
+        return minTimes <= 0 ? first.asNullable() : first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int times = 0;
+        ParseContext ctx = ParseContext.limited();
+        while (times < minTimes || times < maxTimes || maxTimes < 0) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            int i = parser.match(s, index);
+            if (i < 0) {
+                break;
+            }
+            index = i;
+            times++;
+        }
+        return times < minTimes ? -1 : index;
+    }
+}
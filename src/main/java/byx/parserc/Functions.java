@@ -0,0 +1,46 @@
+package byx.parserc;
+
+/**
+ * <p>多参数函数，用于{@link Parsers#seqMap(Parser, Parser, Parser, Function3)}等带类型的连接</p>
+ * <p>两个参数的函数使用{@link java.util.function.BiFunction}</p>
+ * <p>{@link IntAccumulator}用于{@link Parser#foldInt(int, IntAccumulator)}，累加值不装箱</p>
+ */
+public final class Functions {
+    private Functions() {
+    }
+
+    @FunctionalInterface
+    public interface Function3<A, B, C, R> {
+        R apply(A a, B b, C c);
+    }
+
+    @FunctionalInterface
+    public interface Function4<A, B, C, D, R> {
+        R apply(A a, B b, C c, D d);
+    }
+
+    @FunctionalInterface
+    public interface Function5<A, B, C, D, E, R> {
+        R apply(A a, B b, C c, D d, E e);
+    }
+
+    @FunctionalInterface
+    public interface Function6<A, B, C, D, E, F, R> {
+        R apply(A a, B b, C c, D d, E e, F f);
+    }
+
+    @FunctionalInterface
+    public interface Function7<A, B, C, D, E, F, G, R> {
+        R apply(A a, B b, C c, D d, E e, F f, G g);
+    }
+
+    @FunctionalInterface
+    public interface Function8<A, B, C, D, E, F, G, H, R> {
+        R apply(A a, B b, C c, D d, E e, F f, G g, H h);
+    }
+
+    @FunctionalInterface
+    public interface IntAccumulator<T> {
+        int apply(int acc, T value);
+    }
+}
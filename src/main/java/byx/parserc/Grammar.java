@@ -0,0 +1,22 @@
+package byx.parserc;
+
+/**
+ * 对整个语法的处理
+ */
+public final class Grammar {
+    private Grammar() {
+    }
+
+    /**
+     * <p>链接语法：复制root引用的所有解析器，把其中的每个lazy替换为直接链接到目标解析器的延迟解析器，解析时不再调用supplier</p>
+     * <p>只在链接时调用一次supplier，之后修改supplier引用的解析器不会影响链接结果。链接后的解析器图不再修改，
+     * 链接在返回前完成并通过volatile字段发布，可以被多个线程同时使用。自定义解析器保持不变</p>
+     * <p>可以与其他整体处理组合使用，例如{@code Grammar.freeze(parser.optimize())}</p>
+     * @param root 语法的根解析器
+     * @throws IllegalArgumentException 如果某个lazy的supplier返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> Parser<R> freeze(Parser<R> root) {
+        return (Parser<R>) new GrammarRewriter().visit(root);
+    }
+}
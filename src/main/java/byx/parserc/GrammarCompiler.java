@@ -0,0 +1,886 @@
+package byx.parserc;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static byx.parserc.ClassFileWriter.*;
+
+/**
+ * <p>把组合子构成的语法编译为一个隐藏类</p>
+ * <p>每个节点在解析模式和识别模式下分别生成一个静态方法，子节点之间通过invokestatic调用，
+ * 用户提供的函数（如map的mapper）保存在static final字段中，因此每个调用点只会看到一种接收者类型，JIT可以跨规则内联</p>
+ * <ul>
+ *     <li>解析模式的方法签名为{@code int p(CharSequence s, int index, Object[] out)}，返回解析后的位置或-1，结果写入out[0]</li>
+ *     <li>识别模式的方法签名为{@code int m(CharSequence s, int index)}，与{@link Parser#match(CharSequence, int)}相同</li>
+ * </ul>
+ * <p>无法识别的节点（如自定义解析器、flatMap）通过{@link Parser}接口调用，lazy在编译时解析为目标解析器</p>
+ * <p>编译后的解析器与原解析器的行为相同，受限解析和packrat模式下使用原解析器解析</p>
+ * <p>实验性功能，不在公开API中：JSON基准测试（benchmark模块的json-compiled）中识别约快2.8倍、完整解析约快1.5倍，
+ * 未达到预期的数量级提升，达到之前只在包内和基准测试中使用</p>
+ */
+final class GrammarCompiler {
+    private static final String CLASS_NAME = "byx/parserc/CompiledGrammar";
+    private static final String SUPER_NAME = "byx/parserc/GrammarCompiler$CompiledCode";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String CHAR_SEQUENCE = "java/lang/CharSequence";
+    private static final String INPUTS = "byx/parserc/Inputs";
+    private static final String PARSER = "byx/parserc/Parser";
+    private static final String PARSE_RESULT = "byx/parserc/ParseResult";
+    private static final String ARRAY_LIST = "java/util/ArrayList";
+    private static final String PARSE_DESC = "(Ljava/lang/CharSequence;I[Ljava/lang/Object;)I";
+    private static final String MATCH_DESC = "(Ljava/lang/CharSequence;I)I";
+    private static final String HAS_DESC = "(Ljava/lang/CharSequence;I)Z";
+    private static final String SUBSTRING_DESC = "(Ljava/lang/CharSequence;II)Ljava/lang/String;";
+
+    private final ClassFileWriter cw = new ClassFileWriter(CLASS_NAME, SUPER_NAME);
+    private final List<Object> constants = new ArrayList<>();
+    private final List<String> constantTypes = new ArrayList<>();
+    private final Map<Parser<?>, String> parseMethods = new IdentityHashMap<>();
+    private final Map<Parser<?>, String> matchMethods = new IdentityHashMap<>();
+    private final Map<Parser<?>, Parser<?>> memoWrappers = new IdentityHashMap<>();
+    private final List<String> entries = new ArrayList<>();
+    private final List<CompiledRule<?>> rules = new ArrayList<>();
+    private final Deque<Runnable> pending = new ArrayDeque<>();
+
+    private GrammarCompiler() {
+    }
+
+    /**
+     * 编译解析器
+     * @param parser 解析器
+     */
+    static <R> Parser<R> compile(Parser<R> parser) {
+        if (parser instanceof CompiledParser) {
+            return parser;
+        }
+        GrammarCompiler compiler = new GrammarCompiler();
+        compiler.entries.add(compiler.method(parser, true));
+        String match = compiler.method(parser, false);
+        while (!compiler.pending.isEmpty()) {
+            compiler.pending.poll().run();
+        }
+        CompiledCode code = compiler.define(match);
+        for (CompiledRule<?> rule : compiler.rules) {
+            rule.code = code;
+        }
+        return new CompiledParser<>(parser, code);
+    }
+
+    private CompiledCode define(String match) {
+        ClassFileWriter.Code init = cw.method(0, "<init>", "()V", 1);
+        init.aload(0).invokespecial(SUPER_NAME, "<init>", "()V").op(RETURN);
+
+        ClassFileWriter.Code parse = cw.method(0, "parse", "(ILjava/lang/CharSequence;I[Ljava/lang/Object;)I", 5);
+        Label dflt = parse.label();
+        Label[] targets = new Label[entries.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = parse.label();
+        }
+        parse.iload(1).tableswitch(0, dflt, targets);
+        for (int i = 0; i < targets.length; i++) {
+            parse.mark(targets[i]).aload(2).iload(3).aload(4).invokestatic(CLASS_NAME, entries.get(i), PARSE_DESC).op(IRETURN);
+        }
+        parse.mark(dflt).op(ICONST_M1).op(IRETURN);
+
+        cw.method(0, "match", MATCH_DESC, 3)
+            .aload(1).iload(2).invokestatic(CLASS_NAME, match, MATCH_DESC).op(IRETURN);
+
+        // 从类数据中初始化常量字段
+        ClassFileWriter.Code clinit = cw.method(ACC_STATIC, "<clinit>", "()V", 0);
+        int data = clinit.newLocal();
+        clinit.invokestatic("java/lang/invoke/MethodHandles", "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;")
+            .ldcString("_")
+            .ldcClass("[Ljava/lang/Object;")
+            .invokestatic("java/lang/invoke/MethodHandles", "classData",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;")
+            .checkcast("[Ljava/lang/Object;")
+            .astore(data);
+        for (int i = 0; i < constants.size(); i++) {
+            String desc = "L" + constantTypes.get(i) + ";";
+            cw.field(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "k" + i, desc);
+            clinit.aload(data).iconst(i).op(AALOAD).checkcast(constantTypes.get(i)).putstatic(CLASS_NAME, "k" + i, desc);
+        }
+        clinit.op(RETURN);
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup()
+                .defineHiddenClassWithClassData(cw.toByteArray(), constants.toArray(), true);
+            return (CompiledCode) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("failed to compile grammar", e);
+        }
+    }
+
+    /**
+     * 获取节点在指定模式下对应的方法名，方法体在稍后生成
+     */
+    private String method(Parser<?> node, boolean parse) {
+        Parser<?> target = resolve(node);
+        Map<Parser<?>, String> methods = parse ? parseMethods : matchMethods;
+        String name = methods.get(target);
+        if (name == null) {
+            name = (parse ? "p" : "m") + methods.size();
+            methods.put(target, name);
+            String methodName = name;
+            pending.add(() -> generate(target, methodName, parse));
+        }
+        return name;
+    }
+
+    /**
+     * 跳过只在packrat模式下生效的记忆化节点，并把lazy解析为目标解析器
+     */
+    private static Parser<?> resolve(Parser<?> node) {
+        Set<Parser<?>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (visited.add(node)) {
+            if (node instanceof MemoParser<?> m && m.packratOnly() && !m.leftRecursive()) {
+                node = m.parser();
+            } else if (node instanceof LazyParser<?> l && l.target() != null) {
+                node = l.target();
+            } else {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private String constant(Object value, String type) {
+        constants.add(value);
+        constantTypes.add(type);
+        return "k" + (constants.size() - 1);
+    }
+
+    private void getConstant(ClassFileWriter.Code c, Object value, String type) {
+        c.getstatic(CLASS_NAME, constant(value, type), "L" + type + ";");
+    }
+
+    /**
+     * 调用子节点对应的方法，调用后栈顶为子节点返回的位置
+     */
+    private void call(ClassFileWriter.Code c, Parser<?> child, boolean parse, int index) {
+        c.aload(0).iload(index);
+        if (parse) {
+            c.aload(2).invokestatic(CLASS_NAME, method(child, true), PARSE_DESC);
+        } else {
+            c.invokestatic(CLASS_NAME, method(child, false), MATCH_DESC);
+        }
+    }
+
+    /**
+     * 生成out[0] = 栈顶值的代码，value负责把值压栈
+     */
+    private static void setResult(ClassFileWriter.Code c, Runnable value) {
+        c.aload(2).op(ICONST_0);
+        value.run();
+        c.op(AASTORE);
+    }
+
+    private static void loadResult(ClassFileWriter.Code c) {
+        c.aload(2).op(ICONST_0).op(AALOAD);
+    }
+
+    private void generate(Parser<?> node, String name, boolean parse) {
+        ClassFileWriter.Code c = cw.method(ACC_PRIVATE | ACC_STATIC, name, parse ? PARSE_DESC : MATCH_DESC, parse ? 3 : 2);
+        Label fail = c.label();
+        if (node.getClass() == CharParser.class) {
+            charParser(c, (CharParser) node, parse, fail);
+        } else if (node instanceof StrParser p) {
+            strParser(c, p, parse, fail);
+        } else if (node instanceof TakeWhileParser p) {
+            takeWhileParser(c, p, parse, fail);
+        } else if (node instanceof TextParser p) {
+            textParser(c, p, parse, fail);
+        } else if (node instanceof AndParser<?, ?> p) {
+            andParser(c, p, parse, fail);
+        } else if (node instanceof SeqParser p) {
+            seqParser(c, p, parse, fail);
+        } else if (node instanceof PickParser<?> p) {
+            pickParser(c, p, parse, fail);
+        } else if (node instanceof ChainParser<?> p) {
+            chainParser(c, p, parse, fail);
+        } else if (node instanceof TypedSeqParser<?> p) {
+            typedSeqParser(c, p, parse, fail);
+        } else if (node instanceof OneOfParser<?> p) {
+            oneOfParser(c, p, parse);
+        } else if (node instanceof MapParser<?, ?> p) {
+            mapParser(c, p, parse, fail);
+        } else if (node instanceof RepeatParser<?> p) {
+            repeatParser(c, p, parse, fail);
+        } else if (node instanceof SepByParser<?> p) {
+            sepByParser(c, p, parse, fail);
+        } else if (node instanceof FoldParser<?, ?, ?> p) {
+            foldParser(c, p, parse, fail);
+        } else if (node instanceof IntFoldParser<?> p) {
+            intFoldParser(c, p, parse);
+        } else if (node instanceof OptParser<?> p) {
+            optParser(c, p, parse);
+        } else if (node instanceof LookaheadParser<?> p) {
+            lookaheadParser(c, p, parse, fail);
+        } else if (node instanceof CommitParser<?> p) {
+            commitParser(c, p, parse, fail);
+        } else if (node instanceof CutParser<?> p) {
+            cutParser(c, p, parse);
+        } else if (node instanceof FatalParser<?> p) {
+            fatalParser(c, p, parse);
+        } else if (node instanceof MemoParser<?> p) {
+            opaque(c, memoWrapper(p), parse, fail);
+        } else {
+            opaque(c, node, parse, fail);
+        }
+        c.mark(fail).op(ICONST_M1).op(IRETURN);
+    }
+
+    private void charParser(ClassFileWriter.Code c, CharParser p, boolean parse, Label fail) {
+        int ch = c.newLocal();
+        c.aload(0).iload(1).invokestatic(INPUTS, "has", HAS_DESC).jump(IFEQ, fail);
+        c.aload(0).iload(1).invokeinterface(CHAR_SEQUENCE, "charAt", "(I)C").istore(ch);
+        if (p.charClass() != null) {
+            getConstant(c, p.charClass(), "byx/parserc/CharClass");
+            c.iload(ch).invokevirtual("byx/parserc/CharClass", "contains", "(I)Z");
+        } else {
+            getConstant(c, p.predicate(), "java/util/function/IntPredicate");
+            c.iload(ch).invokeinterface("java/util/function/IntPredicate", "test", "(I)Z");
+        }
+        c.jump(IFEQ, fail);
+        if (parse) {
+            setResult(c, () -> c.iload(ch).invokestatic("java/lang/Character", "valueOf", "(C)Ljava/lang/Character;"));
+        }
+        c.iload(1).iconst(1).op(IADD).op(IRETURN);
+    }
+
+    private void strParser(ClassFileWriter.Code c, StrParser p, boolean parse, Label fail) {
+        String str = p.str();
+        c.aload(0);
+        getConstant(c, str, "java/lang/String");
+        c.iload(1).invokestatic(INPUTS, "startsWith", "(Ljava/lang/CharSequence;Ljava/lang/String;I)Z").jump(IFEQ, fail);
+        if (parse) {
+            setResult(c, () -> getConstant(c, str, "java/lang/String"));
+        }
+        c.iload(1).iconst(str.length()).op(IADD).op(IRETURN);
+    }
+
+    private void takeWhileParser(ClassFileWriter.Code c, TakeWhileParser p, boolean parse, Label fail) {
+        int end = c.newLocal();
+        Label loop = c.label();
+        Label done = c.label();
+        c.iload(1).istore(end);
+        c.mark(loop).aload(0).iload(end).invokestatic(INPUTS, "has", HAS_DESC).jump(IFEQ, done);
+        getConstant(c, p.charClass(), "byx/parserc/CharClass");
+        c.aload(0).iload(end).invokeinterface(CHAR_SEQUENCE, "charAt", "(I)C")
+            .invokevirtual("byx/parserc/CharClass", "contains", "(I)Z").jump(IFEQ, done);
+        c.iinc(end, 1).jump(GOTO, loop);
+        c.mark(done).iload(end).iload(1).op(ISUB).iconst(p.minLength()).jump(IF_ICMPLT, fail);
+        if (parse) {
+            setResult(c, () -> c.aload(0).iload(1).iload(end).invokestatic(INPUTS, "substring", SUBSTRING_DESC));
+        }
+        c.iload(end).op(IRETURN);
+    }
+
+    private void textParser(ClassFileWriter.Code c, TextParser p, boolean parse, Label fail) {
+        int end = c.newLocal();
+        call(c, p.parser(), false, 1);
+        if (!parse) {
+            c.op(IRETURN);
+            return;
+        }
+        c.op(DUP).istore(end).jump(IFLT, fail);
+        setResult(c, () -> c.aload(0).iload(1).iload(end).invokestatic(INPUTS, "substring", SUBSTRING_DESC));
+        c.iload(end).op(IRETURN);
+    }
+
+    private void andParser(ClassFileWriter.Code c, AndParser<?, ?> p, boolean parse, Label fail) {
+        int end = c.newLocal();
+        call(c, p.lhs(), parse, 1);
+        c.op(DUP).istore(end).jump(IFLT, fail);
+        if (!parse) {
+            call(c, p.rhs(), false, end);
+            if (p.cutsLhs()) {
+                cutCheck(c, end);
+            }
+            c.op(IRETURN);
+            return;
+        }
+        int first = c.newLocal();
+        loadResult(c);
+        c.astore(first);
+        call(c, p.rhs(), true, end);
+        if (p.cutsLhs()) {
+            cutCheck(c, end);
+        }
+        c.op(DUP).istore(end).jump(IFLT, fail);
+        setResult(c, () -> {
+            c.anew("byx/parserc/Pair").op(DUP).aload(first);
+            loadResult(c);
+            c.invokespecial("byx/parserc/Pair", "<init>", "(Ljava/lang/Object;Ljava/lang/Object;)V");
+        });
+        c.iload(end).op(IRETURN);
+    }
+
+    private void seqParser(ClassFileWriter.Code c, SeqParser p, boolean parse, Label fail) {
+        Parser<?>[] parsers = p.parsers();
+        int list = c.newLocal();
+        if (parse) {
+            c.anew(ARRAY_LIST).op(DUP).iconst(parsers.length).invokespecial(ARRAY_LIST, "<init>", "(I)V").astore(list);
+        }
+        for (int i = 0; i < parsers.length; i++) {
+            call(c, parsers[i], parse, 1);
+            if (i > p.cutIndex()) {
+                cutCheck(c, 1);
+            }
+            c.op(DUP).istore(1).jump(IFLT, fail);
+            if (parse) {
+                c.aload(list);
+                loadResult(c);
+                c.invokevirtual(ARRAY_LIST, "add", "(Ljava/lang/Object;)Z").op(POP);
+            }
+        }
+        if (parse) {
+            setResult(c, () -> c.aload(list));
+        }
+        c.iload(1).op(IRETURN);
+    }
+
+    private void pickParser(ClassFileWriter.Code c, PickParser<?> p, boolean parse, Label fail) {
+        Parser<?>[] parsers = p.parsers();
+        for (int i = 0; i < parsers.length; i++) {
+            // 只有保留结果的子节点写入out[0]，之后的子节点只进行识别，不会覆盖结果
+            call(c, parsers[i], parse && i == p.keep(), 1);
+            if (i > p.cutIndex()) {
+                cutCheck(c, 1);
+            }
+            c.op(DUP).istore(1).jump(IFLT, fail);
+        }
+        c.iload(1).op(IRETURN);
+    }
+
+    private void chainParser(ClassFileWriter.Code c, ChainParser<?> p, boolean parse, Label fail) {
+        Parser<?>[] parsers = p.parsers();
+        int[] slots = p.slots();
+        int values = c.newLocal();
+        if (parse) {
+            getConstant(c, p, "byx/parserc/ChainParser");
+            c.invokevirtual("byx/parserc/ChainParser", "newValues", "()[Ljava/lang/Object;").astore(values);
+        }
+        for (int i = 0; i < parsers.length; i++) {
+            boolean result = parse && slots[i] >= 0;
+            call(c, parsers[i], result, 1);
+            if (i > p.cutIndex()) {
+                cutCheck(c, 1);
+            }
+            c.op(DUP).istore(1).jump(IFLT, fail);
+            if (result) {
+                c.aload(values).iconst(slots[i]);
+                loadResult(c);
+                c.op(AASTORE);
+            }
+        }
+        if (parse) {
+            setResult(c, () -> {
+                getConstant(c, p, "byx/parserc/ChainParser");
+                c.aload(values).invokevirtual("byx/parserc/ChainParser", "build", "([Ljava/lang/Object;)Ljava/lang/Object;");
+            });
+        }
+        c.iload(1).op(IRETURN);
+    }
+
+    /**
+     * 子节点的结果保存在局部变量中，最后直接调用组合函数
+     */
+    private void typedSeqParser(ClassFileWriter.Code c, TypedSeqParser<?> p, boolean parse, Label fail) {
+        Parser<?>[] parsers = p.parsers();
+        int[] values = new int[parsers.length];
+        for (int i = 0; i < parsers.length; i++) {
+            call(c, parsers[i], parse, 1);
+            if (i > p.cutIndex()) {
+                cutCheck(c, 1);
+            }
+            c.op(DUP).istore(1).jump(IFLT, fail);
+            if (parse) {
+                values[i] = c.newLocal();
+                loadResult(c);
+                c.astore(values[i]);
+            }
+        }
+        if (parse) {
+            String type = parsers.length == 2 ? "java/util/function/BiFunction" : "byx/parserc/Functions$Function" + parsers.length;
+            setResult(c, () -> {
+                getConstant(c, p.combiner(), type);
+                for (int value : values) {
+                    c.aload(value);
+                }
+                c.invokeinterface(type, "apply", "(" + "Ljava/lang/Object;".repeat(parsers.length) + ")Ljava/lang/Object;");
+            });
+        }
+        c.iload(1).op(IRETURN);
+    }
+
+    /**
+     * 根据当前字符跳转到需要尝试的分支序列，内容相同的分支序列只生成一次
+     */
+    private void oneOfParser(ClassFileWriter.Code c, OneOfParser<?> p, boolean parse) {
+        Parser<?>[] parsers = p.parsers();
+        int ch = c.newLocal();
+        int end = c.newLocal();
+        Label eof = c.label();
+        Label nonAscii = c.label();
+        c.aload(0).iload(1).invokestatic(INPUTS, "has", HAS_DESC).jump(IFEQ, eof);
+        c.aload(0).iload(1).invokeinterface(CHAR_SEQUENCE, "charAt", "(I)C").istore(ch);
+        c.iload(ch).iconst(128).jump(IF_ICMPGE, nonAscii);
+
+        Map<List<Integer>, Label> blocks = new LinkedHashMap<>();
+        Label[] ascii = new Label[128];
+        for (int i = 0; i < 128; i++) {
+            ascii[i] = blocks.computeIfAbsent(toList(p.candidates(i)), k -> c.label());
+        }
+        c.iload(ch).tableswitch(0, nonAscii, ascii);
+
+        for (Map.Entry<List<Integer>, Label> block : blocks.entrySet()) {
+            c.mark(block.getValue());
+            branches(c, p, parsers, block.getKey(), parse, end, -1);
+        }
+        c.mark(eof);
+        branches(c, p, parsers, toList(p.candidates(-1)), parse, end, -1);
+        c.mark(nonAscii);
+        branches(c, p, parsers, toList(p.candidates(128)), parse, end, ch);
+    }
+
+    /**
+     * 依次尝试分支，ch不为-1时还需要通过分支的FIRST集筛选当前字符
+     */
+    private void branches(ClassFileWriter.Code c, OneOfParser<?> p, Parser<?>[] parsers, List<Integer> candidates,
+                          boolean parse, int end, int ch) {
+        for (int i : candidates) {
+            Label next = c.label();
+            FirstSet first = p.branchFirstSet(i);
+            if (ch >= 0 && first != null) {
+                getConstant(c, first, "byx/parserc/FirstSet");
+                c.iload(ch).invokevirtual("byx/parserc/FirstSet", "accepts", "(I)Z").jump(IFEQ, next);
+            }
+            call(c, parsers[i], parse, 1);
+            c.op(DUP).istore(end).jump(IFLT, next);
+            c.iload(end).op(IRETURN);
+            c.mark(next);
+        }
+        c.op(ICONST_M1).op(IRETURN);
+    }
+
+    private static List<Integer> toList(int[] array) {
+        return Arrays.stream(array).boxed().toList();
+    }
+
+    private void mapParser(ClassFileWriter.Code c, MapParser<?, ?> p, boolean parse, Label fail) {
+        call(c, p.parser(), parse, 1);
+        if (!parse) {
+            c.op(IRETURN);
+            return;
+        }
+        int end = c.newLocal();
+        c.op(DUP).istore(end).jump(IFLT, fail);
+        setResult(c, () -> {
+            getConstant(c, p.mapper(), "java/util/function/Function");
+            loadResult(c);
+            c.invokeinterface("java/util/function/Function", "apply", "(Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+        c.iload(end).op(IRETURN);
+    }
+
+    private void repeatParser(ClassFileWriter.Code c, RepeatParser<?> p, boolean parse, Label fail) {
+        int min = p.minTimes();
+        int max = p.maxTimes();
+        int times = c.newLocal();
+        int end = c.newLocal();
+        int list = c.newLocal();
+        Label done = c.label();
+        c.iconst(0).istore(times);
+
+        if (!parse) {
+            repeatMatch(c, p.parser(), min, max, fail);
+            c.iload(1).op(IRETURN);
+            return;
+        }
+
+        c.anew(ARRAY_LIST).op(DUP).invokespecial(ARRAY_LIST, "<init>", "()V").astore(list);
+        if (min > 0) {
+            Label loop = c.label();
+            Label next = c.label();
+            c.mark(loop).iload(times).iconst(min).jump(IF_ICMPGE, next);
+            call(c, p.parser(), true, 1);
+            c.op(DUP).istore(end).jump(IFLT, fail);
+            addResult(c, list);
+            c.iload(end).istore(1).iinc(times, 1).jump(GOTO, loop);
+            c.mark(next);
+        }
+        Label loop = c.label();
+        c.mark(loop);
+        if (max >= 0) {
+            c.iload(times).iconst(max).jump(IF_ICMPGE, done);
+        }
+        call(c, p.parser(), true, 1);
+        c.op(DUP).istore(end).jump(IFLT, done);
+        addResult(c, list);
+        c.iload(end).istore(1).iinc(times, 1).jump(GOTO, loop);
+        c.mark(done);
+        setResult(c, () -> c.aload(list));
+        c.iload(1).op(IRETURN);
+    }
+
+    /**
+     * 与RepeatParser.match相同，次数未达到min和max中较大者时继续，结束后局部变量1为结束位置
+     */
+    private void repeatMatch(ClassFileWriter.Code c, Parser<?> parser, int min, int max, Label fail) {
+        int times = c.newLocal();
+        int end = c.newLocal();
+        Label loop = c.label();
+        Label done = c.label();
+        c.iconst(0).istore(times);
+        c.mark(loop);
+        if (max >= 0) {
+            c.iload(times).iconst(Math.max(min, max)).jump(IF_ICMPGE, done);
+        }
+        call(c, parser, false, 1);
+        c.op(DUP).istore(end).jump(IFLT, done);
+        c.iload(end).istore(1).iinc(times, 1).jump(GOTO, loop);
+        c.mark(done);
+        if (min > 0) {
+            c.iload(times).iconst(min).jump(IF_ICMPLT, fail);
+        }
+    }
+
+    /**
+     * 元素直接追加到同一个列表中，分隔符只进行识别
+     */
+    private void sepByParser(ClassFileWriter.Code c, SepByParser<?> p, boolean parse, Label fail) {
+        int end = c.newLocal();
+        int sep = c.newLocal();
+        int list = c.newLocal();
+        Label loop = c.label();
+        Label done = c.label();
+        if (parse) {
+            c.anew(ARRAY_LIST).op(DUP);
+            if (p.sizeHint() > 0) {
+                c.iconst(p.sizeHint()).invokespecial(ARRAY_LIST, "<init>", "(I)V");
+            } else {
+                c.invokespecial(ARRAY_LIST, "<init>", "()V");
+            }
+            c.astore(list);
+        }
+        call(c, p.element(), parse, 1);
+        c.op(DUP).istore(end).jump(IFLT, p.minTimes() > 0 ? fail : done);
+        if (parse) {
+            addResult(c, list);
+        }
+        c.iload(end).istore(1);
+
+        c.mark(loop);
+        call(c, p.separator(), false, 1);
+        c.op(DUP).istore(sep).jump(IFLT, done);
+        call(c, p.element(), parse, sep);
+        c.op(DUP).istore(end);
+        if (p.trailing()) {
+            Label next = c.label();
+            c.jump(IFGE, next);
+            c.iload(sep).istore(1).jump(GOTO, done);
+            c.mark(next);
+        } else {
+            c.jump(IFLT, done);
+        }
+        if (parse) {
+            addResult(c, list);
+        }
+        c.iload(end).istore(1).jump(GOTO, loop);
+
+        c.mark(done);
+        if (parse) {
+            setResult(c, () -> {
+                getConstant(c, p, "byx/parserc/SepByParser");
+                c.aload(list).invokevirtual("byx/parserc/SepByParser", "finish", "(Ljava/util/ArrayList;)Ljava/util/List;");
+            });
+        }
+        c.iload(1).op(IRETURN);
+    }
+
+    /**
+     * 累加值保存在局部变量中，每次解析成功后调用累加函数
+     */
+    private void foldParser(ClassFileWriter.Code c, FoldParser<?, ?, ?> p, boolean parse, Label fail) {
+        int min = p.minTimes();
+        int max = p.maxTimes();
+        if (!parse || p.accumulator() == null) {
+            repeatMatch(c, p.parser(), min, max, fail);
+            if (parse) {
+                setResult(c, () -> c.op(ACONST_NULL));
+            }
+            c.iload(1).op(IRETURN);
+            return;
+        }
+
+        int times = c.newLocal();
+        int end = c.newLocal();
+        int acc = c.newLocal();
+        Label loop = c.label();
+        Label done = c.label();
+        c.iconst(0).istore(times);
+        getConstant(c, p.seed(), "java/util/function/Supplier");
+        c.invokeinterface("java/util/function/Supplier", "get", "()Ljava/lang/Object;").astore(acc);
+        c.mark(loop);
+        if (max >= 0) {
+            c.iload(times).iconst(Math.max(min, max)).jump(IF_ICMPGE, done);
+        }
+        call(c, p.parser(), true, 1);
+        c.op(DUP).istore(end).jump(IFLT, done);
+        getConstant(c, p.accumulator(), "java/util/function/BiFunction");
+        c.aload(acc);
+        loadResult(c);
+        c.invokeinterface("java/util/function/BiFunction", "apply", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;")
+            .astore(acc);
+        c.iload(end).istore(1).iinc(times, 1).jump(GOTO, loop);
+        c.mark(done);
+        if (min > 0) {
+            c.iload(times).iconst(min).jump(IF_ICMPLT, fail);
+        }
+        setResult(c, () -> {
+            getConstant(c, p.finisher(), "java/util/function/Function");
+            c.aload(acc).invokeinterface("java/util/function/Function", "apply", "(Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+        c.iload(1).op(IRETURN);
+    }
+
+    private void intFoldParser(ClassFileWriter.Code c, IntFoldParser<?> p, boolean parse) {
+        if (!parse) {
+            repeatMatch(c, p.parser(), 0, -1, null);
+            c.iload(1).op(IRETURN);
+            return;
+        }
+        int end = c.newLocal();
+        int acc = c.newLocal();
+        Label loop = c.label();
+        Label done = c.label();
+        c.iconst(p.seed()).istore(acc);
+        c.mark(loop);
+        call(c, p.parser(), true, 1);
+        c.op(DUP).istore(end).jump(IFLT, done);
+        getConstant(c, p.accumulator(), "byx/parserc/Functions$IntAccumulator");
+        c.iload(acc);
+        loadResult(c);
+        c.invokeinterface("byx/parserc/Functions$IntAccumulator", "apply", "(ILjava/lang/Object;)I").istore(acc);
+        c.iload(end).istore(1).jump(GOTO, loop);
+        c.mark(done);
+        setResult(c, () -> c.iload(acc).invokestatic("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;"));
+        c.iload(1).op(IRETURN);
+    }
+
+    private static void addResult(ClassFileWriter.Code c, int list) {
+        c.aload(list);
+        loadResult(c);
+        c.invokevirtual(ARRAY_LIST, "add", "(Ljava/lang/Object;)Z").op(POP);
+    }
+
+    private void optParser(ClassFileWriter.Code c, OptParser<?> p, boolean parse) {
+        int end = c.newLocal();
+        Label dflt = c.label();
+        call(c, p.parser(), parse, 1);
+        c.op(DUP).istore(end).jump(IFLT, dflt);
+        c.iload(end).op(IRETURN);
+        c.mark(dflt);
+        if (parse) {
+            setResult(c, () -> getConstant(c, p.defaultResult(), OBJECT));
+        }
+        c.iload(1).op(IRETURN);
+    }
+
+    private void lookaheadParser(ClassFileWriter.Code c, LookaheadParser<?> p, boolean parse, Label fail) {
+        Label success = c.label();
+        callStoppingCut(c, p.predicate(), parse);
+        c.jump(p.negate() ? IFLT : IFGE, success);
+        c.jump(GOTO, fail);
+        c.mark(success);
+        if (parse) {
+            setResult(c, () -> c.op(ACONST_NULL));
+        }
+        c.iload(1).op(IRETURN);
+    }
+
+    /**
+     * 调用子节点，子节点抛出的{@link byx.parserc.exception.ParseCutException}当作失败，调用后栈顶是子节点返回的位置
+     */
+    private void callStoppingCut(ClassFileWriter.Code c, Parser<?> child, boolean parse) {
+        Label start = c.label();
+        Label end = c.label();
+        Label handler = c.label();
+        Label done = c.label();
+        c.mark(start);
+        call(c, child, parse, 1);
+        c.mark(end).jump(GOTO, done);
+        c.mark(handler).op(POP).op(ICONST_M1);
+        c.mark(done);
+        c.tryCatch(start, end, handler, "byx/parserc/exception/ParseCutException");
+    }
+
+    private void commitParser(ClassFileWriter.Code c, CommitParser<?> p, boolean parse, Label fail) {
+        int end = c.newLocal();
+        call(c, p.parser(), parse, 1);
+        c.op(DUP).istore(end).jump(IFLT, fail);
+        c.aload(0).iload(end).invokestatic("byx/parserc/CommitParser", "commit", "(Ljava/lang/CharSequence;I)V");
+        c.iload(end).op(IRETURN);
+    }
+
+    private void cutParser(ClassFileWriter.Code c, CutParser<?> p, boolean parse) {
+        call(c, p.parser(), parse, 1);
+        c.op(IRETURN);
+    }
+
+    /**
+     * 切断点之后的子节点失败时抛出异常，调用前后栈顶都是子节点返回的位置
+     * @param start 保存子节点起始位置的局部变量
+     */
+    private static void cutCheck(ClassFileWriter.Code c, int start) {
+        Label success = c.label();
+        c.op(DUP).jump(IFGE, success);
+        c.iload(start).invokestatic("byx/parserc/CutParser", "failure", "(I)Lbyx/parserc/exception/ParseCutException;").op(ATHROW);
+        c.mark(success);
+    }
+
+    private void fatalParser(ClassFileWriter.Code c, FatalParser<?> p, boolean parse) {
+        int end = c.newLocal();
+        Label success = c.label();
+        call(c, p.parser(), parse, 1);
+        c.op(DUP).istore(end).jump(IFGE, success);
+        getConstant(c, p, "byx/parserc/FatalParser");
+        c.aload(0).iload(1)
+            .invokevirtual("byx/parserc/FatalParser", "failure", "(Ljava/lang/CharSequence;I)Ljava/lang/RuntimeException;")
+            .op(ATHROW);
+        c.mark(success).iload(end).op(IRETURN);
+    }
+
+    /**
+     * 通过{@link Parser}接口调用节点
+     */
+    private void opaque(ClassFileWriter.Code c, Parser<?> node, boolean parse, Label fail) {
+        getConstant(c, node, PARSER);
+        c.aload(0).iload(1);
+        if (!parse) {
+            c.invokeinterface(PARSER, "match", MATCH_DESC).op(IRETURN);
+            return;
+        }
+        int r = c.newLocal();
+        int end = c.newLocal();
+        c.invokeinterface(PARSER, "tryParse", "(Ljava/lang/CharSequence;I)Lbyx/parserc/ParseResult;").astore(r);
+        c.aload(r).invokevirtual(PARSE_RESULT, "index", "()I").op(DUP).istore(end).jump(IFLT, fail);
+        setResult(c, () -> c.aload(r).invokevirtual(PARSE_RESULT, "result", "()Ljava/lang/Object;"));
+        c.iload(end).op(IRETURN);
+    }
+
+    /**
+     * 总是生效的记忆化节点保留记忆化表，被包装的解析器编译为一个入口
+     */
+    private Parser<?> memoWrapper(MemoParser<?> memo) {
+        Parser<?> wrapper = memoWrappers.get(memo);
+        if (wrapper == null) {
+            CompiledRule<?> rule = new CompiledRule<>(entries.size(), memo.parser());
+            entries.add(method(memo.parser(), true));
+            rules.add(rule);
+            wrapper = new MemoParser<>(rule, memo.packratOnly(), memo.leftRecursive());
+            memoWrappers.put(memo, wrapper);
+        }
+        return wrapper;
+    }
+
+    /**
+     * 生成的隐藏类的父类
+     */
+    abstract static class CompiledCode {
+        /**
+         * 从指定入口开始解析
+         * @param entry 入口编号，0为整个语法
+         * @param s 输入
+         * @param index 当前位置
+         * @param out 用于接收解析结果的数组
+         * @return 解析后的位置，失败时返回-1
+         */
+        abstract int parse(int entry, CharSequence s, int index, Object[] out);
+
+        /**
+         * 识别整个语法
+         */
+        abstract int match(CharSequence s, int index);
+    }
+
+    /**
+     * 编译后的解析器，packrat模式下使用原解析器解析，以保持记忆化行为不变；受{@link ParsePolicy}限制的解析也使用原解析器，以便检查限制
+     */
+    static final class CompiledParser<R> implements TryParser<R> {
+        private final Parser<R> source;
+        private final CompiledCode code;
+
+        CompiledParser(Parser<R> source, CompiledCode code) {
+            this.source = source;
+            this.code = code;
+        }
+
+        private static boolean interpreted(CharSequence s) {
+            ParseContext ctx = ParseContext.current();
+            return ctx != null && (ctx.isPackrat() || ctx.isLimited()) && ctx.isParsing(s);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ParseResult<R> tryParse(CharSequence s, int index) {
+            if (interpreted(s)) {
+                return source.tryParse(s, index);
+            }
+            Object[] out = new Object[1];
+            int end = code.parse(0, s, index, out);
+            return end < 0 ? ParseResult.failure() : new ParseResult<>((R) out[0], end);
+        }
+
+        @Override
+        public int match(CharSequence s, int index) {
+            return interpreted(s) ? source.match(s, index) : code.match(s, index);
+        }
+
+        @Override
+        public FirstSet firstSet() {
+            return source.firstSet();
+        }
+    }
+
+    /**
+     * 记忆化节点包装的编译后的解析器
+     */
+    static final class CompiledRule<R> implements TryParser<R> {
+        private final int entry;
+        private final Parser<R> source;
+        /**
+         * 隐藏类定义后才设置，规则可能已经被其他线程看到，因此是volatile
+         */
+        private volatile CompiledCode code;
+
+        CompiledRule(int entry, Parser<R> source) {
+            this.entry = entry;
+            this.source = source;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ParseResult<R> tryParse(CharSequence s, int index) {
+            Object[] out = new Object[1];
+            int end = code.parse(entry, s, index, out);
+            return end < 0 ? ParseResult.failure() : new ParseResult<>((R) out[0], end);
+        }
+
+        @Override
+        public FirstSet firstSet() {
+            return source.firstSet();
+        }
+    }
+}
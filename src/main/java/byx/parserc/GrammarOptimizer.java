@@ -0,0 +1,144 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * <p>语法优化器，把解析器图改写为解析结果相同、开销更小的解析器图</p>
+ * <p>支持的改写：</p>
+ * <ul>
+ *     <li>map(f).map(g)合并为map(f.andThen(g))</li>
+ *     <li>嵌套的and、seq和skip展开为一个{@link ChainParser}，结果被丢弃的部分只进行识别，其中的mapper不会被调用</li>
+ *     <li>连接中相邻的str和单字符ch合并为一次字符串匹配</li>
+ * </ul>
+ */
+class GrammarOptimizer extends GrammarRewriter {
+    private GrammarOptimizer() {
+    }
+
+    /**
+     * 优化解析器及其引用的所有解析器
+     * @param parser 解析器
+     */
+    @SuppressWarnings("unchecked")
+    static <R> Parser<R> optimize(Parser<R> parser) {
+        return (Parser<R>) new GrammarOptimizer().visit(parser);
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Parser<?> rewrite(Parser<?> node) {
+        PickParser<?> pick = PickParser.of(node);
+        if (pick != null) {
+            return chain(pick);
+        } else if (node instanceof AndParser<?, ?> || node instanceof SeqParser || node instanceof PickParser<?>) {
+            return chain(node);
+        } else if (node instanceof MapParser<?, ?> p) {
+            Parser<?> parser = visit(p.parser());
+            Function mapper = p.mapper();
+            if (parser instanceof MapParser<?, ?> inner) {
+                return new MapParser(inner.parser(), inner.mapper().andThen(mapper));
+            }
+            return new MapParser(parser, mapper);
+        }
+        return super.rewrite(node);
+    }
+
+    /**
+     * 把嵌套的连接展开为{@link ChainParser}
+     */
+    private Parser<?> chain(Parser<?> node) {
+        List<Parser<?>> leaves = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int[] slotCount = new int[1];
+        ChainParser.Shape shape = flatten(node, true, leaves, slots, slotCount);
+
+        List<Parser<?>> parsers = new ArrayList<>();
+        List<Integer> parserSlots = new ArrayList<>();
+        Object[] template = new Object[slotCount[0]];
+        for (int i = 0; i < leaves.size(); ) {
+            int j = i;
+            StringBuilder literal = new StringBuilder();
+            while (j < leaves.size() && literal(leaves.get(j)) != null) {
+                literal.append(literal(leaves.get(j)));
+                j++;
+            }
+            if (j - i >= 2) {
+                // 结果固定，直接写入结果数组的初始值
+                for (int k = i; k < j; k++) {
+                    if (slots.get(k) >= 0) {
+                        template[slots.get(k)] = leaves.get(k) instanceof StrParser p ? p.str() : literal(leaves.get(k)).charAt(0);
+                    }
+                }
+                parsers.add(new StrParser(literal.toString()));
+                parserSlots.add(-1);
+                i = j;
+            } else {
+                parsers.add(leaves.get(i));
+                parserSlots.add(slots.get(i));
+                i++;
+            }
+        }
+        return new ChainParser<>(parsers.toArray(new Parser<?>[0]),
+            parserSlots.stream().mapToInt(Integer::intValue).toArray(), template, shape);
+    }
+
+    /**
+     * 展开连接，收集叶子节点及其结果位置
+     * @param needResult 是否需要当前节点的解析结果
+     * @return 解析结果的组合方式，不需要结果时返回null
+     */
+    private ChainParser.Shape flatten(Parser<?> node, boolean needResult, List<Parser<?>> leaves,
+                                      List<Integer> slots, int[] slotCount) {
+        PickParser<?> pick = PickParser.of(node);
+        if (pick != null) {
+            node = pick;
+        }
+        if (node instanceof AndParser<?, ?> p) {
+            ChainParser.Shape first = flatten(p.lhs(), needResult, leaves, slots, slotCount);
+            ChainParser.Shape second = flatten(p.rhs(), needResult, leaves, slots, slotCount);
+            return needResult ? new ChainParser.PairShape(first, second) : null;
+        } else if (node instanceof SeqParser p) {
+            Parser<?>[] parsers = p.parsers();
+            ChainParser.Shape[] items = new ChainParser.Shape[parsers.length];
+            for (int i = 0; i < parsers.length; i++) {
+                items[i] = flatten(parsers[i], needResult, leaves, slots, slotCount);
+            }
+            return needResult ? new ChainParser.ListShape(items) : null;
+        } else if (node instanceof PickParser<?> p) {
+            Parser<?>[] parsers = p.parsers();
+            ChainParser.Shape kept = null;
+            for (int i = 0; i < parsers.length; i++) {
+                ChainParser.Shape shape = flatten(parsers[i], needResult && i == p.keep(), leaves, slots, slotCount);
+                if (i == p.keep()) {
+                    kept = shape;
+                }
+            }
+            return kept;
+        }
+        leaves.add(visit(node));
+        if (!needResult) {
+            slots.add(-1);
+            return null;
+        }
+        slots.add(slotCount[0]);
+        return new ChainParser.Slot(slotCount[0]++);
+    }
+
+    /**
+     * 获取结果固定的字符串匹配，不是时返回null
+     */
+    private static String literal(Parser<?> node) {
+        if (node instanceof StrParser p) {
+            return p.str();
+        }
+        if (node.getClass() == CharParser.class && ((CharParser) node).charClass() != null) {
+            int[] ranges = ((CharParser) node).charClass().ranges();
+            if (ranges.length == 2 && ranges[0] == ranges[1]) {
+                return String.valueOf((char) ranges[0]);
+            }
+        }
+        return null;
+    }
+}
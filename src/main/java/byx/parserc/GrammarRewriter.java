@@ -0,0 +1,71 @@
+package byx.parserc;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>对整个解析器图的改写，每个节点只改写一次，保持节点之间的共享和递归引用</p>
+ * <p>默认复制解析器图：组合子通过{@link CompositeParser#rebuild(GrammarRewriter)}用改写后的子解析器重建，
+ * lazy被替换为直接链接到改写后目标的延迟解析器，自定义解析器保持不变。子类通过覆盖{@link #rewrite(Parser)}改写特定节点</p>
+ */
+class GrammarRewriter {
+    private final Map<Parser<?>, Parser<?>> rewritten = new IdentityHashMap<>();
+
+    /**
+     * 获取节点改写后的解析器
+     * @param node 节点
+     */
+    Parser<?> visit(Parser<?> node) {
+        Parser<?> result = rewritten.get(node);
+        if (result == null) {
+            result = rewrite(node);
+            rewritten.put(node, result);
+        }
+        return result;
+    }
+
+    /**
+     * 改写数组中的每个节点，结果写回数组
+     * @param parsers 节点数组
+     */
+    Parser<?>[] visit(Parser<?>[] parsers) {
+        for (int i = 0; i < parsers.length; i++) {
+            parsers[i] = visit(parsers[i]);
+        }
+        return parsers;
+    }
+
+    /**
+     * 改写一个节点，每个节点只会被调用一次
+     * @param node 节点
+     * @throws IllegalArgumentException 如果某个lazy的supplier返回null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Parser<?> rewrite(Parser<?> node) {
+        if (node instanceof MemoParser<?> p && p.parser() instanceof LazyParser<?> lazy) {
+            // 递归规则会再次访问当前节点，需要在链接目标之前登记，保证规则只有一个记忆化表
+            LazyParser linked = new LazyParser<>();
+            MemoParser<?> memo = new MemoParser(linked, p.packratOnly(), p.leftRecursive());
+            rewritten.put(node, memo);
+            rewritten.put(lazy, linked);
+            linked.link(visit(resolve(lazy)));
+            return memo;
+        } else if (node instanceof LazyParser<?> p) {
+            LazyParser linked = new LazyParser<>();
+            rewritten.put(node, linked);
+            linked.link(visit(resolve(p)));
+            return linked;
+        } else if (node instanceof CompositeParser p) {
+            return p.rebuild(this);
+        }
+        return node;
+    }
+
+    private static Parser<?> resolve(LazyParser<?> lazy) {
+        Parser<?> target = lazy.target();
+        if (target == null) {
+            throw new IllegalArgumentException("lazy parser resolves to null");
+        }
+        return target;
+    }
+}
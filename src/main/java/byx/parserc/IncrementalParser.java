@@ -0,0 +1,106 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseInternalException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>增量解析器，在文本被修改后复用上一次解析的记忆化结果</p>
+ * <p>解析在packrat模式下进行，{@link Parser#memo()}和{@link Parsers#lazy}包装的规则会记录每个结果读取过的范围。
+ * 修改文本后，读取范围在修改位置之前的结果被保留，起始位置在修改范围之后的结果被平移，其余结果重新计算</p>
+ * <p>被复用的是规则的解析结果对象本身，如果结果中保存了输入位置，这些位置不会被平移</p>
+ * <p>也可以增量解析{@link Inputs#tokens}创建的记号输入，此时位置以记号为单位，修改时插入的内容也必须是记号输入</p>
+ * @param <R> 解析结果类型
+ */
+public class IncrementalParser<R> {
+    private final Parser<R> parser;
+    private final ParseContext ctx = new ParseContext().packrat(true);
+    private final StringBuilder text = new StringBuilder();
+    private final Inputs.TrackingInput input = new Inputs.TrackingInput(text);
+    /**
+     * 解析记号输入时与text中类型编号对应的记号，否则为null
+     */
+    private List<Object> tokens;
+
+    /**
+     * @param parser 解析器
+     */
+    public IncrementalParser(Parser<R> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * 解析新的文本直到末尾，丢弃之前的所有结果
+     * @param s 文本
+     * @return 解析结果
+     */
+    public R parse(CharSequence s) {
+        text.setLength(0);
+        text.append(s);
+        tokens = s instanceof Inputs.TokenInput<?> t ? tokens(t) : null;
+        input.tokens(tokens);
+        return parse(true);
+    }
+
+    /**
+     * 把当前文本[offset, offset + removed)范围替换为inserted，然后重新解析
+     * @param offset 修改位置
+     * @param removed 删除的字符数
+     * @param inserted 插入的文本
+     * @return 解析结果
+     * @throws IllegalArgumentException 如果当前文本是记号输入而inserted不是，或者相反
+     */
+    public R edit(int offset, int removed, CharSequence inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", removed: " + removed);
+        }
+        if ((tokens != null) != (inserted instanceof Inputs.TokenInput<?>)) {
+            throw new IllegalArgumentException("inserted text must be a token input exactly when the parsed text is");
+        }
+        if (tokens != null) {
+            List<Object> range = tokens.subList(offset, offset + removed);
+            range.clear();
+            range.addAll(tokens((Inputs.TokenInput<?>) inserted));
+        }
+        text.replace(offset, offset + removed, inserted.toString());
+        ctx.edit(offset, offset + removed, inserted.length() - removed);
+        return parse(false);
+    }
+
+    /**
+     * 获取当前文本
+     */
+    public String text() {
+        return text.toString();
+    }
+
+    /**
+     * 获取解析上下文，可以通过记忆化表的命中情况查看复用了多少结果
+     */
+    public ParseContext context() {
+        return ctx;
+    }
+
+    private static List<Object> tokens(Inputs.TokenInput<?> input) {
+        List<Object> list = new ArrayList<>(input.length());
+        for (int i = 0; i < input.length(); i++) {
+            list.add(input.token(i));
+        }
+        return list;
+    }
+
+    private R parse(boolean clear) {
+        input.reset();
+        ParseContext prev = ctx.enter(input, clear);
+        try {
+            ParseResult<R> r = parser.tryParse(input, 0);
+            if (r.isFailure() || Inputs.has(input, r.index())) {
+                throw ParseInternalException.INSTANCE;
+            }
+            return r.result();
+        } finally {
+            ctx.exit(prev);
+        }
+    }
+}
@@ -0,0 +1,689 @@
+package byx.parserc;
+
+import byx.parserc.exception.InputDiscardedException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * <p>解析器输入的静态工厂</p>
+ * <p>解析器可以接受任意{@link CharSequence}作为输入，对于基于数组的输入，内置组合子会直接访问数组</p>
+ */
+public class Inputs {
+    private static final int DEFAULT_STREAM_BUFFER_SIZE = 1 << 20;
+    /**
+     * 包装字符数组，不复制数组内容
+     * @param chars 字符数组
+     */
+    public static CharSequence of(char[] chars) {
+        return new CharArrayInput(chars, 0, chars.length);
+    }
+
+    /**
+     * 包装字符数组的一部分，不复制数组内容
+     * @param chars 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public static CharSequence of(char[] chars, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > chars.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        return new CharArrayInput(chars, offset, length);
+    }
+
+    /**
+     * 以UTF-8编码映射文件
+     * @param path 文件路径
+     */
+    public static CharSequence map(Path path) {
+        return map(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * <p>通过内存映射读取文件</p>
+     * <p>对于ISO-8859-1和US-ASCII编码，直接在映射的字节上解析，不占用堆内存；
+     * 对于UTF-8编码，创建时完整解码一遍以统计字符数，解析时按块解码，只在堆内存中保留最近访问的块；
+     * 其他编码先解码为字符数组</p>
+     * <p>文件大小不能超过2GB</p>
+     * @param path 文件路径
+     * @param charset 文件编码
+     */
+    public static CharSequence map(Path path, Charset charset) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("file too large: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII)) {
+                return new ByteBufferInput(buffer, 0, (int) size);
+            }
+            if (charset.equals(StandardCharsets.UTF_8)) {
+                return new DecodedInput(buffer, charset);
+            }
+            CharBuffer chars = charset.decode(buffer);
+            return new CharArrayInput(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 以默认的缓冲区大小（1M字符）从Reader流式读取输入
+     * @param reader reader
+     * @see #stream(Reader, int)
+     */
+    public static CharSequence stream(Reader reader) {
+        return stream(reader, DEFAULT_STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * <p>从Reader流式读取输入，只在内存中保留有限的字符</p>
+     * <p>解析器通过{@link Parser#commit()}设置提交点，提交点之前的字符在缓冲区满时被丢弃；
+     * 之后回溯到被丢弃的位置会抛出{@link InputDiscardedException}，
+     * 提交点之后的字符超过bufferSize时抛出{@link IllegalStateException}</p>
+     * <p>返回的输入的{@link CharSequence#length()}为当前已读取的字符数，不能用于判断是否到达末尾</p>
+     * @param reader reader
+     * @param bufferSize 缓冲区最多保留的字符数
+     */
+    public static CharSequence stream(Reader reader, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        return new ReaderInput(reader, bufferSize);
+    }
+
+    /**
+     * 从InputStream流式读取输入
+     * @param in 输入流
+     * @param charset 编码
+     * @param bufferSize 缓冲区最多保留的字符数
+     * @see #stream(Reader, int)
+     */
+    public static CharSequence stream(InputStream in, Charset charset, int bufferSize) {
+        return stream(new InputStreamReader(in, charset), bufferSize);
+    }
+
+    /**
+     * <p>把词法分析得到的记号序列作为输入，输入的第i个字符为第i个记号的类型编号</p>
+     * <p>所有组合子都可以直接用于记号输入，{@link Parsers#token(int)}等记号解析器返回记号本身</p>
+     * @param tokens 记号序列
+     * @param kind 记号的类型编号，必须在[0, 65535]范围内，类型为枚举时可以使用序号
+     */
+    public static <T> TokenInput<T> tokens(List<T> tokens, ToIntFunction<? super T> kind) {
+        char[] kinds = new char[tokens.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = toKind(kind.applyAsInt(tokens.get(i)));
+        }
+        return new TokenInput<>(tokens, kinds);
+    }
+
+    /**
+     * 只包含类型编号的记号序列，记号解析器返回类型编号
+     * @param kinds 类型编号，必须在[0, 65535]范围内
+     */
+    public static TokenInput<Integer> tokens(int[] kinds) {
+        char[] chars = new char[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            chars[i] = toKind(kinds[i]);
+        }
+        return new TokenInput<>(null, chars);
+    }
+
+    private static char toKind(int kind) {
+        if (kind < 0 || kind > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("token kind out of range: " + kind);
+        }
+        return (char) kind;
+    }
+
+    /**
+     * <p>判断s在index处是否有字符</p>
+     * <p>内置组合子通过该方法判断是否到达输入末尾，对于流式输入会按需读取</p>
+     */
+    static boolean has(CharSequence s, int index) {
+        return index < s.length()
+            || s instanceof ReaderInput r && r.fill(index)
+            || s instanceof TrackingInput t && t.touchEnd();
+    }
+
+    /**
+     * 判断s从index开始是否以prefix为前缀
+     */
+    static boolean startsWith(CharSequence s, String prefix, int index) {
+        if (s instanceof String str) {
+            return str.startsWith(prefix, index);
+        }
+        int len = prefix.length();
+        if (index < 0 || !has(s, index + len - 1)) {
+            return false;
+        }
+        if (s instanceof CharArrayInput a) {
+            char[] arr = a.chars;
+            int offset = a.offset + index;
+            for (int i = 0; i < len; i++) {
+                if (arr[offset + i] != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(index + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取s中[start, end)范围内的字符串
+     */
+    static String substring(CharSequence s, int start, int end) {
+        if (s instanceof String str) {
+            return str.substring(start, end);
+        }
+        if (s instanceof CharArrayInput a) {
+            return new String(a.chars, a.offset + start, end - start);
+        }
+        return s.subSequence(start, end).toString();
+    }
+
+    /**
+     * 基于字符数组的输入
+     */
+    static final class CharArrayInput implements CharSequence {
+        final char[] chars;
+        final int offset;
+        final int length;
+
+        CharArrayInput(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length) {
+                throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+            }
+            return new CharArrayInput(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+
+    /**
+     * 基于单字节编码的字节缓冲区的输入
+     */
+    static final class ByteBufferInput implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        ByteBufferInput(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length) {
+                throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+            }
+            return new ByteBufferInput(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * <p>按块解码的字节缓冲区的输入，用于无状态的多字节编码</p>
+     * <p>创建时完整解码一遍，记录每块的起始字符和起始字节；读取字符时只解码所在的块，并缓存最近访问的两块</p>
+     */
+    static final class DecodedInput implements CharSequence {
+        private static final int BLOCK_SIZE = 1 << 16;
+
+        private final ByteBuffer buffer;
+        private final Charset charset;
+        private final int length;
+        /**
+         * 每块第一个字符的下标，最后一项为输入长度
+         */
+        private int[] charStarts = new int[16];
+        /**
+         * 每块第一个字节的位置，最后一项为字节数
+         */
+        private int[] byteStarts = new int[16];
+        private int blocks;
+        private Block current = new Block(0, 0, new char[0]);
+        private Block previous = current;
+
+        /**
+         * 解码得到的一块字符，字段不可变，可以在线程之间共享
+         */
+        private record Block(int start, int end, char[] chars) {}
+
+        DecodedInput(ByteBuffer buffer, Charset charset) {
+            this.buffer = buffer;
+            this.charset = charset;
+            CharsetDecoder decoder = decoder();
+            ByteBuffer in = buffer.duplicate();
+            CharBuffer out = CharBuffer.allocate(BLOCK_SIZE);
+            int chars = 0;
+            while (true) {
+                addBlock(chars, in.position());
+                out.clear();
+                // 输出满时解码器停在完整字符的边界上，下一块从这里开始
+                CoderResult r = decoder.decode(in, out, true);
+                chars += out.position();
+                if (r.isUnderflow()) {
+                    break;
+                }
+            }
+            addBlock(chars, in.position());
+            blocks--;
+            this.length = chars;
+        }
+
+        private void addBlock(int charStart, int byteStart) {
+            if (blocks == charStarts.length) {
+                charStarts = Arrays.copyOf(charStarts, blocks * 2);
+                byteStarts = Arrays.copyOf(byteStarts, blocks * 2);
+            }
+            charStarts[blocks] = charStart;
+            byteStarts[blocks] = byteStart;
+            blocks++;
+        }
+
+        private CharsetDecoder decoder() {
+            return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /**
+         * 获取index所在的块
+         */
+        private Block block(int index) {
+            Block b = current;
+            if (index >= b.start && index < b.end) {
+                return b;
+            }
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            b = previous;
+            if (index < b.start || index >= b.end) {
+                int k = Arrays.binarySearch(charStarts, 0, blocks, index);
+                b = decode(k >= 0 ? k : -k - 2);
+            }
+            previous = current;
+            current = b;
+            return b;
+        }
+
+        private Block decode(int k) {
+            ByteBuffer in = buffer.duplicate().limit(byteStarts[k + 1]).position(byteStarts[k]);
+            CharBuffer out = CharBuffer.allocate(charStarts[k + 1] - charStarts[k]);
+            decoder().decode(in, out, true);
+            return new Block(charStarts[k], charStarts[k + 1], out.array());
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Block b = current;
+            if (index < b.start || index >= b.end) {
+                b = block(index);
+            }
+            return b.chars[index - b.start];
+        }
+
+        /**
+         * 返回的字符序列是解码结果的副本
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length) {
+                throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+            }
+            char[] chars = new char[end - start];
+            for (int i = start; i < end; ) {
+                Block b = block(i);
+                int n = Math.min(end, b.end) - i;
+                System.arraycopy(b.chars, i - b.start, chars, i - start, n);
+                i += n;
+            }
+            return new String(chars);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+
+    /**
+     * <p>基于Reader的流式输入</p>
+     * <p>缓冲区保存[start, end)范围内的字符，缓冲区满时丢弃提交点之前的字符，仍然不足时扩容，直到maxBufferSize</p>
+     */
+    static final class ReaderInput implements CharSequence {
+        private final Reader reader;
+        private final int maxBufferSize;
+        private char[] buf;
+        private int start;
+        private int end;
+        private int mark;
+        private boolean eof;
+
+        ReaderInput(Reader reader, int maxBufferSize) {
+            this.reader = reader;
+            this.maxBufferSize = maxBufferSize;
+            this.buf = new char[Math.min(maxBufferSize, 8192)];
+        }
+
+        /**
+         * 设置提交点，index之前的字符可以被丢弃
+         * @param index index
+         */
+        void commit(int index) {
+            mark = Math.max(mark, index);
+        }
+
+        /**
+         * 缓冲区中第一个字符的位置，之前的字符已被丢弃
+         */
+        int bufferStart() {
+            return start;
+        }
+
+        /**
+         * 读取输入直到index处的字符可用
+         * @param index index
+         * @return 到达输入末尾时返回false
+         */
+        boolean fill(int index) {
+            while (index >= end) {
+                if (eof) {
+                    return false;
+                }
+                if (end - start == buf.length) {
+                    makeRoom();
+                }
+                int n;
+                try {
+                    n = reader.read(buf, end - start, buf.length - (end - start));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (n < 0) {
+                    eof = true;
+                    return false;
+                }
+                end += n;
+            }
+            return true;
+        }
+
+        private void makeRoom() {
+            if (mark > start) {
+                System.arraycopy(buf, mark - start, buf, 0, end - mark);
+                start = mark;
+            }
+            // 丢弃后空间仍然不足一半时扩容，避免频繁移动数据
+            if (end - start > buf.length / 2 && buf.length < maxBufferSize) {
+                buf = Arrays.copyOf(buf, (int) Math.min(maxBufferSize, buf.length * 2L));
+            }
+            if (end - start == buf.length) {
+                throw new IllegalStateException("stream buffer is full (" + maxBufferSize
+                    + " chars) at index " + end + ", add commit points to release consumed input");
+            }
+        }
+
+        @Override
+        public int length() {
+            return end;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < start) {
+                throw new InputDiscardedException(index, start);
+            }
+            if (!fill(index)) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return buf[index - start];
+        }
+
+        /**
+         * 返回的字符序列是缓冲区内容的副本
+         */
+        @Override
+        public CharSequence subSequence(int startIndex, int endIndex) {
+            if (startIndex < start) {
+                throw new InputDiscardedException(startIndex, start);
+            }
+            if (startIndex > endIndex || endIndex > startIndex && !fill(endIndex - 1)) {
+                throw new IndexOutOfBoundsException("start: " + startIndex + ", end: " + endIndex);
+            }
+            return new String(buf, startIndex - start, endIndex - startIndex);
+        }
+
+        /**
+         * 返回缓冲区中尚未丢弃的字符
+         */
+        @Override
+        public String toString() {
+            return new String(buf, 0, end - start);
+        }
+    }
+
+    /**
+     * <p>记录读取范围的输入，用于增量解析</p>
+     * <p>extent为当前读取过的最远位置 + 1，判断到达末尾也视为读取了末尾之后的位置。
+     * 增量解析记号输入时，tokens保存与text中类型编号对应的记号，供记号解析器读取</p>
+     */
+    static final class TrackingInput implements CharSequence {
+        private final CharSequence text;
+        private List<?> tokens;
+        private int extent;
+
+        TrackingInput(CharSequence text) {
+            this.text = text;
+        }
+
+        /**
+         * 设置与文本中类型编号对应的记号，不是记号输入时为null
+         */
+        void tokens(List<?> tokens) {
+            this.tokens = tokens;
+        }
+
+        /**
+         * 是否为记号输入
+         */
+        boolean hasTokens() {
+            return tokens != null;
+        }
+
+        /**
+         * 获取index处的记号，调用前应先通过{@link #charAt(int)}读取类型编号
+         */
+        Object token(int index) {
+            return tokens.get(index);
+        }
+
+        /**
+         * 开始记录从index开始的一次解析的读取范围
+         * @param index 解析开始位置
+         * @return 外层的读取范围，需要传给{@link #end(int)}
+         */
+        int begin(int index) {
+            int outer = extent;
+            extent = index;
+            return outer;
+        }
+
+        /**
+         * 结束记录，并把本次读取范围合并到外层
+         * @param outer {@link #begin(int)}的返回值
+         * @return 本次解析的读取范围
+         */
+        int end(int outer) {
+            int e = extent;
+            extent = Math.max(outer, e);
+            return e;
+        }
+
+        void touch(int e) {
+            extent = Math.max(extent, e);
+        }
+
+        boolean touchEnd() {
+            touch(text.length() + 1);
+            return false;
+        }
+
+        void reset() {
+            extent = 0;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            touch(index + 1);
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            touch(end);
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * <p>记号输入，第i个字符为第i个记号的类型编号</p>
+     * <p>{@link Parser#text()}等返回字符串的组合子在记号输入上返回类型编号组成的字符串，
+     * 需要记号内容时使用{@link Parsers#token(int)}或{@link #token(int)}</p>
+     * @param <T> 记号类型
+     */
+    public static final class TokenInput<T> implements CharSequence {
+        private final List<T> tokens;
+        private final char[] kinds;
+
+        TokenInput(List<T> tokens, char[] kinds) {
+            this.tokens = tokens;
+            this.kinds = kinds;
+        }
+
+        /**
+         * 获取index处的记号
+         * @param index index
+         */
+        @SuppressWarnings("unchecked")
+        public T token(int index) {
+            return tokens != null ? tokens.get(index) : (T) Integer.valueOf(kind(index));
+        }
+
+        /**
+         * 获取index处记号的类型编号
+         * @param index index
+         */
+        public int kind(int index) {
+            return charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return kinds.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return kinds[index];
+        }
+
+        /**
+         * 返回的字符序列是类型编号的副本
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(kinds, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(kinds);
+        }
+    }
+}
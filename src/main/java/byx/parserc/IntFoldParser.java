@@ -0,0 +1,91 @@
+package byx.parserc;
+
+import byx.parserc.Functions.IntAccumulator;
+
+/**
+ * <p>连续应用解析器零次或多次，边解析边把每次的结果累加到int累加值中</p>
+ * <p>累加过程不装箱，只有最终结果会被装箱</p>
+ * @param <R> 被重复的解析器的结果类型
+ */
+public class IntFoldParser<R> implements TryParser<Integer>, CompositeParser {
+    private final Parser<R> parser;
+    private final int seed;
+    private final IntAccumulator<? super R> accumulator;
+
+    /**
+     * @param parser 解析器
+     * @param seed 初始累加值
+     * @param accumulator 累加函数
+     */
+    IntFoldParser(Parser<R> parser, int seed, IntAccumulator<? super R> accumulator) {
+        this.parser = parser;
+        this.seed = seed;
+        this.accumulator = accumulator;
+    }
+
+    /**
+     * 获取被重复的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取初始累加值
+     */
+    public int seed() {
+        return seed;
+    }
+
+    /**
+     * 获取累加函数
+     */
+    public IntAccumulator<? super R> accumulator() {
+        return accumulator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new IntFoldParser<>((Parser<R>) rewriter.visit(parser), seed, accumulator);
+    }
+
+    @Override
+    public ParseResult<Integer> tryParse(CharSequence s, int index) {
+        int acc = seed;
+        ParseContext ctx = ParseContext.limited();
+        while (true) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            ParseResult<R> r = parser.tryParse(s, index);
+            if (r.isFailure()) {
+                break;
+            }
+            acc = accumulator.apply(acc, r.result());
+            index = r.index();
+        }
+        return new ParseResult<>(acc, index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = parser.firstSet();
+        return first == null ? null : first.asNullable();
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        ParseContext ctx = ParseContext.limited();
+        while (true) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            int i = parser.match(s, index);
+            if (i < 0) {
+                return index;
+            }
+            index = i;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package byx.parserc;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * <p>延迟解析器，解析动作发生时才获取解析器</p>
+ * <p>{@link Grammar#freeze(Parser)}和{@link Parser#optimize()}生成的延迟解析器直接链接到目标解析器，解析时不再调用supplier</p>
+ */
+public class LazyParser<R> implements TryParser<R> {
+    private static final ThreadLocal<Set<LazyParser<?>>> VISITING = ThreadLocal.withInitial(HashSet::new);
+
+    private final Supplier<Parser<R>> parserSupplier;
+    private volatile Parser<R> linked;
+    private volatile FirstSet firstSet;
+
+    LazyParser(Supplier<Parser<R>> parserSupplier) {
+        this.parserSupplier = parserSupplier;
+    }
+
+    /**
+     * 创建需要通过{@link #link(Parser)}链接目标的延迟解析器
+     */
+    LazyParser() {
+        this(null);
+    }
+
+    /**
+     * 链接目标解析器，只能在解析器被使用之前调用一次
+     * @param target 目标解析器
+     */
+    void link(Parser<R> target) {
+        linked = target;
+    }
+
+    /**
+     * 是否已直接链接到目标解析器
+     */
+    public boolean isLinked() {
+        return linked != null;
+    }
+
+    /**
+     * 获取当前的目标解析器
+     */
+    public Parser<R> target() {
+        Parser<R> p = linked;
+        return p != null ? p : parserSupplier.get();
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        ParseContext ctx = ParseContext.limited();
+        if (ctx == null) {
+            return target().tryParse(s, index);
+        }
+        ctx.enterRule(index);
+        try {
+            return target().tryParse(s, index);
+        } finally {
+            ctx.exitRule();
+        }
+    }
+
+    /**
+     * 解析目标解析器的FIRST集，循环引用时返回null
+     */
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = firstSet;
+        if (first != null) {
+            return first;
+        }
+
+        Set<LazyParser<?>> visiting = VISITING.get();
+        if (!visiting.add(this)) {
+            return null;
+        }
+        try {
+            Parser<R> parser = target();
+            first = parser == null ? null : parser.firstSet();
+        } finally {
+            visiting.remove(this);
+        }
+        if (first != null) {
+            firstSet = first;
+        }
+        return first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        ParseContext ctx = ParseContext.limited();
+        if (ctx == null) {
+            return target().match(s, index);
+        }
+        ctx.enterRule(index);
+        try {
+            return target().match(s, index);
+        } finally {
+            ctx.exitRule();
+        }
+    }
+}
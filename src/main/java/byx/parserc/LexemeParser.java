@@ -0,0 +1,356 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p>词法解析器，把只由字符组合子构成的正则子语法编译为确定有限自动机（DFA），并返回匹配的字符串</p>
+ * <p>匹配时只扫描一遍输入，不回溯也不分配中间对象。匹配采用正则语义下的最长匹配：
+ * oneOf的所有分支和many的所有重复次数同时参与匹配，返回能匹配的最长前缀。
+ * 例如{@code oneOf(str("a"), str("ab"))}在输入"ab"上匹配"ab"，{@code ch('a').many().and(ch('a'))}可以匹配"aa"</p>
+ * <p>字符集之外的字符按所属区间归类，DFA的转移表按类而不是按字符保存</p>
+ */
+public class LexemeParser implements TryParser<String> {
+    private static final int MAX_STATES = 4096;
+
+    private final Parser<?> parser;
+    /**
+     * 字符区间的起点，第k个区间为[bounds[k], bounds[k + 1])
+     */
+    private final int[] bounds;
+    private final int[] intervalClasses;
+    private final int[] asciiClasses = new int[128];
+    private final int classCount;
+    /**
+     * 状态s在类k上的转移为transitions[s * classCount + k]，-1表示没有转移
+     */
+    private final int[] transitions;
+    private final boolean[] accepting;
+    private final FirstSet firstSet;
+
+    LexemeParser(Parser<?> parser) {
+        this.parser = parser;
+        Nfa nfa = new Nfa();
+        int[] fragment = nfa.build(parser, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        // 按字符集的边界把字符划分为区间，属于相同字符集的区间归为一类
+        TreeSet<Integer> points = new TreeSet<>();
+        points.add(0);
+        for (CharClass c : nfa.chars) {
+            if (c != null) {
+                int[] ranges = c.ranges();
+                for (int i = 0; i < ranges.length; i += 2) {
+                    points.add(ranges[i]);
+                    points.add(ranges[i + 1] + 1);
+                }
+            }
+        }
+        points.remove(Character.MAX_VALUE + 1);
+        bounds = points.stream().mapToInt(Integer::intValue).toArray();
+        intervalClasses = new int[bounds.length];
+        Map<BitSet, Integer> classIds = new HashMap<>();
+        List<Integer> representatives = new ArrayList<>();
+        for (int k = 0; k < bounds.length; k++) {
+            BitSet signature = new BitSet();
+            for (int q = 0; q < nfa.chars.size(); q++) {
+                if (nfa.chars.get(q) != null && nfa.chars.get(q).contains(bounds[k])) {
+                    signature.set(q);
+                }
+            }
+            Integer id = classIds.get(signature);
+            if (id == null) {
+                id = classIds.size();
+                classIds.put(signature, id);
+                representatives.add(bounds[k]);
+            }
+            intervalClasses[k] = id;
+        }
+        classCount = classIds.size();
+        for (int c = 0; c < 128; c++) {
+            asciiClasses[c] = intervalClasses[interval(c)];
+        }
+
+        // 子集构造
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> stateIds = new HashMap<>();
+        List<Integer> table = new ArrayList<>();
+        BitSet start = new BitSet();
+        start.set(fragment[0]);
+        nfa.closure(start);
+        states.add(start);
+        stateIds.put(start, 0);
+        for (int s = 0; s < states.size(); s++) {
+            BitSet current = states.get(s);
+            for (int k = 0; k < classCount; k++) {
+                int c = representatives.get(k);
+                BitSet next = new BitSet();
+                for (int q = current.nextSetBit(0); q >= 0; q = current.nextSetBit(q + 1)) {
+                    if (nfa.chars.get(q) != null && nfa.chars.get(q).contains(c)) {
+                        next.set(nfa.charTargets.get(q));
+                    }
+                }
+                if (next.isEmpty()) {
+                    table.add(-1);
+                    continue;
+                }
+                nfa.closure(next);
+                Integer id = stateIds.get(next);
+                if (id == null) {
+                    if (states.size() == MAX_STATES) {
+                        throw new IllegalArgumentException("lexeme is too complex: more than " + MAX_STATES + " states");
+                    }
+                    id = states.size();
+                    states.add(next);
+                    stateIds.put(next, id);
+                }
+                table.add(id);
+            }
+        }
+        transitions = table.stream().mapToInt(Integer::intValue).toArray();
+        accepting = new boolean[states.size()];
+        for (int s = 0; s < states.size(); s++) {
+            accepting[s] = states.get(s).get(fragment[1]);
+        }
+
+        CharClass first = CharClass.none();
+        for (int k = 0; k < bounds.length; k++) {
+            if (transitions[intervalClasses[k]] >= 0) {
+                int end = k + 1 < bounds.length ? bounds[k + 1] - 1 : Character.MAX_VALUE;
+                first = first.union(CharClass.range((char) bounds[k], (char) end));
+            }
+        }
+        firstSet = new FirstSet(first, accepting[0]);
+    }
+
+    /**
+     * 获取被编译的解析器
+     */
+    public Parser<?> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取DFA的状态数
+     */
+    public int stateCount() {
+        return accepting.length;
+    }
+
+    private int interval(int c) {
+        int k = Arrays.binarySearch(bounds, c);
+        return k >= 0 ? k : -k - 2;
+    }
+
+    private int classOf(char c) {
+        return c < 128 ? asciiClasses[c] : intervalClasses[interval(c)];
+    }
+
+    @Override
+    public ParseResult<String> tryParse(CharSequence s, int index) {
+        int end = match(s, index);
+        if (end < 0) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(Inputs.substring(s, index, end), end);
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int state = 0;
+        int last = accepting[0] ? index : -1;
+        for (int i = index; Inputs.has(s, i); ) {
+            state = transitions[state * classCount + classOf(s.charAt(i))];
+            if (state < 0) {
+                break;
+            }
+            i++;
+            if (accepting[state]) {
+                last = i;
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return firstSet;
+    }
+
+    /**
+     * Thompson构造的非确定有限自动机，每个状态最多有一条字符转移
+     */
+    private static final class Nfa {
+        final List<CharClass> chars = new ArrayList<>();
+        final List<Integer> charTargets = new ArrayList<>();
+        final List<List<Integer>> epsilons = new ArrayList<>();
+
+        int newState() {
+            chars.add(null);
+            charTargets.add(-1);
+            epsilons.add(new ArrayList<>());
+            return chars.size() - 1;
+        }
+
+        void closure(BitSet set) {
+            List<Integer> stack = new ArrayList<>();
+            set.stream().forEach(stack::add);
+            while (!stack.isEmpty()) {
+                int q = stack.remove(stack.size() - 1);
+                for (int t : epsilons.get(q)) {
+                    if (!set.get(t)) {
+                        set.set(t);
+                        stack.add(t);
+                    }
+                }
+            }
+        }
+
+        int[] empty() {
+            int s = newState();
+            return new int[]{s, s};
+        }
+
+        int[] chars(CharClass c) {
+            int s = newState();
+            int e = newState();
+            chars.set(s, c);
+            charTargets.set(s, e);
+            return new int[]{s, e};
+        }
+
+        int[] concat(int[] a, int[] b) {
+            epsilons.get(a[1]).add(b[0]);
+            return new int[]{a[0], b[1]};
+        }
+
+        int[] alt(List<int[]> fragments) {
+            int s = newState();
+            int e = newState();
+            for (int[] f : fragments) {
+                epsilons.get(s).add(f[0]);
+                epsilons.get(f[1]).add(e);
+            }
+            return new int[]{s, e};
+        }
+
+        int[] star(int[] f) {
+            int s = newState();
+            int e = newState();
+            epsilons.get(s).add(f[0]);
+            epsilons.get(s).add(e);
+            epsilons.get(f[1]).add(f[0]);
+            epsilons.get(f[1]).add(e);
+            return new int[]{s, e};
+        }
+
+        int[] string(String str) {
+            int[] f = empty();
+            for (int i = 0; i < str.length(); i++) {
+                f = concat(f, chars(CharClass.of(str.charAt(i))));
+            }
+            return f;
+        }
+
+        int[] sequence(Parser<?>[] parsers, Set<Parser<?>> visiting) {
+            int[] f = empty();
+            for (Parser<?> p : parsers) {
+                f = concat(f, build(p, visiting));
+            }
+            return f;
+        }
+
+        int[] repeat(Parser<?> p, int minTimes, int maxTimes, Set<Parser<?>> visiting) {
+            int[] f = empty();
+            for (int i = 0; i < minTimes; i++) {
+                f = concat(f, build(p, visiting));
+            }
+            if (maxTimes < 0) {
+                return concat(f, star(build(p, visiting)));
+            }
+            for (int i = minTimes; i < maxTimes; i++) {
+                f = concat(f, alt(List.of(build(p, visiting), empty())));
+            }
+            return f;
+        }
+
+        int[] build(Parser<?> node, Set<Parser<?>> visiting) {
+            if (node instanceof CharParser p) {
+                if (p.charClass() == null) {
+                    throw new IllegalArgumentException("lexeme requires character parsers built from a CharClass");
+                }
+                return chars(p.charClass());
+            } else if (node instanceof StrParser p) {
+                return string(p.str());
+            } else if (node instanceof StrsParser p) {
+                if (p.boundary() != null) {
+                    throw new IllegalArgumentException("lexeme does not support keyword()");
+                }
+                List<int[]> fragments = new ArrayList<>();
+                for (String str : p.strs()) {
+                    fragments.add(string(str));
+                }
+                return alt(fragments);
+            } else if (node instanceof TakeWhileParser p) {
+                int[] f = empty();
+                for (int i = 0; i < p.minLength(); i++) {
+                    f = concat(f, chars(p.charClass()));
+                }
+                return concat(f, star(chars(p.charClass())));
+            } else if (node instanceof AndParser<?, ?> p) {
+                return concat(build(p.lhs(), visiting), build(p.rhs(), visiting));
+            } else if (node instanceof SeqParser p) {
+                return sequence(p.parsers(), visiting);
+            } else if (node instanceof PickParser<?> p) {
+                return sequence(p.parsers(), visiting);
+            } else if (node instanceof ChainParser<?> p) {
+                return sequence(p.parsers(), visiting);
+            } else if (node instanceof TypedSeqParser<?> p) {
+                return sequence(p.parsers(), visiting);
+            } else if (node instanceof OneOfParser<?> p) {
+                List<int[]> fragments = new ArrayList<>();
+                for (Parser<?> branch : p.parsers()) {
+                    fragments.add(build(branch, visiting));
+                }
+                return alt(fragments);
+            } else if (node instanceof RepeatParser<?> p) {
+                return repeat(p.parser(), p.minTimes(), p.maxTimes(), visiting);
+            } else if (node instanceof FoldParser<?, ?, ?> p) {
+                return repeat(p.parser(), p.minTimes(), p.maxTimes(), visiting);
+            } else if (node instanceof IntFoldParser<?> p) {
+                return repeat(p.parser(), 0, -1, visiting);
+            } else if (node instanceof SepByParser<?> p) {
+                int[] f = concat(build(p.element(), visiting), star(concat(build(p.separator(), visiting), build(p.element(), visiting))));
+                if (p.trailing()) {
+                    f = concat(f, alt(List.of(build(p.separator(), visiting), empty())));
+                }
+                return p.minTimes() > 0 ? f : alt(List.of(f, empty()));
+            } else if (node instanceof OptParser<?> p) {
+                return alt(List.of(build(p.parser(), visiting), empty()));
+            } else if (node instanceof MapParser<?, ?> p) {
+                return build(p.parser(), visiting);
+            } else if (node instanceof TextParser p) {
+                return build(p.parser(), visiting);
+            } else if (node instanceof LexemeParser p) {
+                return build(p.parser(), visiting);
+            } else if (node instanceof MemoParser<?> p) {
+                return build(p.parser(), visiting);
+            } else if (node instanceof LazyParser<?> p) {
+                if (!visiting.add(p)) {
+                    throw new IllegalArgumentException("lexeme does not support recursive rules");
+                }
+                int[] f = build(p.target(), visiting);
+                visiting.remove(p);
+                return f;
+            }
+            throw new IllegalArgumentException("lexeme does not support " + node.getClass().getName());
+        }
+    }
+}
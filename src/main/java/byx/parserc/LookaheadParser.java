@@ -0,0 +1,70 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseCutException;
+
+/**
+ * <p>在当前位置应用解析器，不消耗任何输入</p>
+ * <p>预读总是回到当前位置，predicate中切断点之后的失败当作predicate解析失败</p>
+ */
+public class LookaheadParser<R> implements TryParser<R>, CompositeParser {
+    private final Parser<?> predicate;
+    private final boolean negate;
+
+    /**
+     * @param predicate predicate
+     * @param negate 为true时predicate解析失败才算成功
+     */
+    LookaheadParser(Parser<?> predicate, boolean negate) {
+        this.predicate = predicate;
+        this.negate = negate;
+    }
+
+    /**
+     * 获取被预读的解析器
+     */
+    public Parser<?> predicate() {
+        return predicate;
+    }
+
+    /**
+     * 是否为否定预读
+     */
+    public boolean negate() {
+        return negate;
+    }
+
+    @Override
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new LookaheadParser<R>(rewriter.visit(predicate), negate);
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        boolean failed;
+        try {
+            failed = predicate.tryParse(s, index).isFailure();
+        } catch (ParseCutException e) {
+            failed = true;
+        }
+        if (failed != negate) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(null, index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return negate ? FirstSet.empty() : predicate.firstSet();
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        boolean failed;
+        try {
+            failed = predicate.match(s, index) < 0;
+        } catch (ParseCutException e) {
+            failed = true;
+        }
+        return failed != negate ? -1 : index;
+    }
+}
@@ -0,0 +1,55 @@
+package byx.parserc;
+
+import java.util.function.Function;
+
+/**
+ * 应用指定解析器，并转换解析结果
+ */
+public class MapParser<R, R2> implements TryParser<R2>, CompositeParser {
+    private final Parser<R> parser;
+    private final Function<R, R2> mapper;
+
+    MapParser(Parser<R> parser, Function<R, R2> mapper) {
+        this.parser = parser;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 获取被转换的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取结果转换函数
+     */
+    public Function<R, R2> mapper() {
+        return mapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new MapParser<>((Parser<R>) rewriter.visit(parser), mapper);
+    }
+
+    @Override
+    public ParseResult<R2> tryParse(CharSequence s, int index) {
+        ParseResult<R> r = parser.tryParse(s, index);
+        if (r.isFailure()) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(mapper.apply(r.result()), r.index());
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return parser.firstSet();
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        return parser.match(s, index);
+    }
+}
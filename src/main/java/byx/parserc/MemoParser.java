@@ -0,0 +1,172 @@
+package byx.parserc;
+
+import java.lang.ref.Cleaner;
+import java.util.BitSet;
+
+/**
+ * <p>记忆化解析器，在一次解析过程中缓存被包装解析器在每个位置的解析结果</p>
+ * <p>支持直接左递归时，先在记忆化表中放入失败作为种子，然后反复解析并用更长的结果替换种子，直到结果不再变长</p>
+ * <p>每个节点第一次记忆化时分配一个编号，作为解析上下文中记忆化表数组的下标。节点被回收后编号可以被其他节点复用，
+ * 因此编号的范围只取决于正在使用的节点个数</p>
+ * @param <R> 解析结果类型
+ */
+public class MemoParser<R> implements TryParser<R>, CompositeParser {
+    private static final BitSet USED_SLOTS = new BitSet();
+    private static final Cleaner SLOT_CLEANER = Cleaner.create();
+
+    private final Parser<R> parser;
+    private final boolean packratOnly;
+    private final boolean leftRecursive;
+    private volatile int slot = -1;
+
+    /**
+     * @param parser 被包装的解析器
+     * @param packratOnly 是否只在packrat模式下记忆化
+     */
+    MemoParser(Parser<R> parser, boolean packratOnly) {
+        this(parser, packratOnly, false);
+    }
+
+    /**
+     * @param parser 被包装的解析器
+     * @param packratOnly 是否只在packrat模式下记忆化
+     * @param leftRecursive 是否支持直接左递归
+     */
+    MemoParser(Parser<R> parser, boolean packratOnly, boolean leftRecursive) {
+        this.parser = parser;
+        this.packratOnly = packratOnly;
+        this.leftRecursive = leftRecursive;
+    }
+
+    /**
+     * 获取被记忆化的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 是否只在packrat模式下记忆化
+     */
+    public boolean packratOnly() {
+        return packratOnly;
+    }
+
+    /**
+     * 是否支持左递归
+     */
+    public boolean leftRecursive() {
+        return leftRecursive;
+    }
+
+    /**
+     * 获取记忆化表的编号，第一次调用时分配
+     */
+    int slot() {
+        int s = slot;
+        return s >= 0 ? s : allocSlot();
+    }
+
+    private synchronized int allocSlot() {
+        if (slot < 0) {
+            int s;
+            synchronized (USED_SLOTS) {
+                s = USED_SLOTS.nextClearBit(0);
+                USED_SLOTS.set(s);
+            }
+            SLOT_CLEANER.register(this, () -> {
+                synchronized (USED_SLOTS) {
+                    USED_SLOTS.clear(s);
+                }
+            });
+            slot = s;
+        }
+        return slot;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new MemoParser<>((Parser<R>) rewriter.visit(parser), packratOnly, leftRecursive);
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        ParseContext ctx = ParseContext.current();
+        if (packratOnly) {
+            if (ctx == null || !ctx.isPackrat() || !ctx.isParsing(s)) {
+                return parser.tryParse(s, index);
+            }
+            return tryParse(ctx, s, index);
+        }
+
+        // 不在解析上下文中时，为本次调用创建临时上下文
+        if (ctx == null || !ctx.isParsing(s)) {
+            ctx = new ParseContext();
+            ParseContext prev = ctx.enter(s);
+            try {
+                return tryParse(ctx, s, index);
+            } finally {
+                ctx.exit(prev);
+            }
+        }
+        return tryParse(ctx, s, index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ParseResult<R> tryParse(ParseContext ctx, CharSequence s, int index) {
+        ParseContext.MemoTable table = ctx.table(this);
+        ParseResult<R> r = (ParseResult<R>) table.get(index);
+        if (r != null) {
+            ctx.hit();
+            if (s instanceof Inputs.TrackingInput t) {
+                t.touch(table.extent(index));
+            }
+            return r;
+        }
+
+        ctx.miss();
+        if (s instanceof Inputs.TrackingInput t) {
+            int outer = t.begin(index);
+            r = leftRecursive ? grow(table, s, index) : parser.tryParse(s, index);
+            table.put(index, r, t.end(outer));
+            return r;
+        }
+        r = leftRecursive ? grow(table, s, index) : parser.tryParse(s, index);
+        table.put(index, r);
+        return r;
+    }
+
+    /**
+     * 从失败开始增长种子，递归调用会命中记忆化表中的种子
+     */
+    private ParseResult<R> grow(ParseContext.MemoTable table, CharSequence s, int index) {
+        ParseResult<R> seed = ParseResult.failure();
+        table.pin();
+        table.put(index, seed);
+        while (true) {
+            ParseResult<R> r = parser.tryParse(s, index);
+            if (r.isFailure() || r.index() <= seed.index()) {
+                return seed;
+            }
+            seed = r;
+            table.put(index, seed);
+        }
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return parser.firstSet();
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        if (packratOnly) {
+            ParseContext ctx = ParseContext.current();
+            if (ctx == null || !ctx.isPackrat() || !ctx.isParsing(s)) {
+                return parser.match(s, index);
+            }
+        }
+        return tryParse(s, index).index();
+    }
+}
@@ -0,0 +1,157 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * <p>依次尝试应用多个解析器，返回第一个成功的解析结果</p>
+ * <p>首次解析时根据各分支的FIRST集构建以字符为下标的跳转表，解析时只尝试可能成功的分支，
+ * FIRST集未知的分支总是会被尝试</p>
+ */
+public class OneOfParser<R> implements TryParser<R>, CompositeParser {
+    private static final CharClass NON_ASCII = CharClass.range('\u0080', '￿');
+
+    private final Parser<? extends R>[] parsers;
+
+    /**
+     * 跳转表在首次解析时构建，此时所有lazy解析器都已经可以解析，并发构建的结果相同
+     */
+    private volatile Dispatch dispatch;
+
+    OneOfParser(Parser<? extends R>[] parsers) {
+        this.parsers = parsers.clone();
+    }
+
+    /**
+     * 获取所有分支
+     */
+    public Parser<? extends R>[] parsers() {
+        return parsers.clone();
+    }
+
+    /**
+     * 获取当前字符为c时需要尝试的分支，c为-1表示到达输入末尾，非ASCII字符还需要通过{@link #branchFirstSet(int)}筛选
+     */
+    int[] candidates(int c) {
+        return dispatch().candidates(c).clone();
+    }
+
+    /**
+     * 获取第i个分支的FIRST集
+     */
+    FirstSet branchFirstSet(int i) {
+        return dispatch().firstSets[i];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new OneOfParser<>((Parser<? extends R>[]) rewriter.visit(parsers()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        Dispatch d = dispatch();
+        ParseContext ctx = ParseContext.limited();
+        if (ctx != null) {
+            ctx.step(index);
+        }
+        int c = Inputs.has(s, index) ? s.charAt(index) : -1;
+        for (int i : d.candidates(c)) {
+            if (d.accepts(i, c)) {
+                ParseResult<R> r = (ParseResult<R>) parsers[i].tryParse(s, index);
+                if (!r.isFailure()) {
+                    return r;
+                }
+            }
+        }
+        return ParseResult.failure();
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        Dispatch d = dispatch();
+        ParseContext ctx = ParseContext.limited();
+        if (ctx != null) {
+            ctx.step(index);
+        }
+        int c = Inputs.has(s, index) ? s.charAt(index) : -1;
+        for (int i : d.candidates(c)) {
+            if (d.accepts(i, c)) {
+                int r = parsers[i].match(s, index);
+                if (r >= 0) {
+                    return r;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private Dispatch dispatch() {
+        Dispatch d = dispatch;
+        if (d == null) {
+            d = dispatch = new Dispatch();
+        }
+        return d;
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = new FirstSet(CharClass.none(), false);
+        for (Parser<? extends R> p : parsers) {
+            first = FirstSet.union(first, p.firstSet());
+        }
+        return first;
+    }
+
+    /**
+     * 跳转表，保存每种情况下需要尝试的分支下标
+     */
+    private class Dispatch {
+        private final FirstSet[] firstSets = new FirstSet[parsers.length];
+        private final int[][] ascii = new int[128][];
+        private final int[] nonAscii;
+        private final int[] eof;
+
+        Dispatch() {
+            for (int i = 0; i < parsers.length; i++) {
+                firstSets[i] = parsers[i].firstSet();
+            }
+            for (int c = 0; c < 128; c++) {
+                int ch = c;
+                ascii[c] = select(f -> f.accepts(ch));
+            }
+            nonAscii = select(f -> f.nullable() || !f.chars().intersect(NON_ASCII).isEmpty());
+            eof = select(FirstSet::nullable);
+        }
+
+        /**
+         * 获取当前字符为c时需要尝试的分支，c为-1表示到达输入末尾
+         */
+        int[] candidates(int c) {
+            if (c < 0) {
+                return eof;
+            }
+            return c < 128 ? ascii[c] : nonAscii;
+        }
+
+        /**
+         * 判断分支i是否可能在当前字符为c时成功，ASCII字符和输入末尾已经在构建跳转表时筛选过
+         */
+        boolean accepts(int i, int c) {
+            return c < 128 || firstSets[i] == null || firstSets[i].accepts(c);
+        }
+
+        private int[] select(Predicate<FirstSet> filter) {
+            List<Integer> list = new ArrayList<>();
+            for (int i = 0; i < parsers.length; i++) {
+                if (firstSets[i] == null || filter.test(firstSets[i])) {
+                    list.add(i);
+                }
+            }
+            return list.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
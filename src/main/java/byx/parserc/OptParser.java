@@ -0,0 +1,53 @@
+package byx.parserc;
+
+/**
+ * <p>解析器解析成功时返回其解析结果，否则解析成功并返回默认值</p>
+ * <p>与{@code oneOf(parser, empty(defaultResult))}相同，解析器中切断点之后的失败不返回默认值，而是继续抛出</p>
+ */
+public class OptParser<R> implements TryParser<R>, CompositeParser {
+    private final Parser<R> parser;
+    private final R defaultResult;
+
+    OptParser(Parser<R> parser, R defaultResult) {
+        this.parser = parser;
+        this.defaultResult = defaultResult;
+    }
+
+    /**
+     * 获取可选的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取解析失败时的默认结果
+     */
+    public R defaultResult() {
+        return defaultResult;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new OptParser<>((Parser<R>) rewriter.visit(parser), defaultResult);
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        ParseResult<R> r = parser.tryParse(s, index);
+        return r.isFailure() ? new ParseResult<>(defaultResult, index) : r;
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = parser.firstSet();
+        return first == null ? null : first.asNullable();
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int i = parser.match(s, index);
+        return i < 0 ? index : i;
+    }
+}
@@ -0,0 +1,409 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseCutException;
+import byx.parserc.exception.ParseLimitException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>并行解析由分隔符分隔的大量独立元素，例如大型JSON数组或对象的成员</p>
+ * <p>解析时先顺序解析阈值范围内的元素，列表在此范围内结束时与顺序解析完全相同，不会扫描输入。
+ * 列表更长时，顺序扫描一遍剩余的输入，跳过字符串和嵌套的括号，找到顶层的分隔符和列表的结束位置（第一个不匹配的右括号或输入末尾）；
+ * 然后把剩余的元素分组交给{@link ForkJoinPool}并行解析，按原顺序合并结果。每组元素使用独立的解析上下文，继承调用方的packrat模式，
+ * 并与调用方共享解析策略的步数限制、截止时间和中断状态</p>
+ * <p>解析结果与顺序解析{@code element (separator element)*}相同：任意元素解析失败、没有恰好结束于下一个分隔符或抛出异常时，
+ * 从扫描的位置继续顺序解析；超出解析策略的限制，或第一个失败的元素在切断点之后失败时，抛出与顺序解析相同的异常。
+ * 流式输入、增量解析的输入、剩余输入小于阈值的列表以及剩余部分小于阈值的列表总是顺序解析</p>
+ */
+public class ParallelSepByParser<R> implements TryParser<List<R>>, CompositeParser {
+    private static final int DEFAULT_THRESHOLD = 1 << 16;
+    private static final byte QUOTE = 1;
+    private static final byte OPEN = 2;
+    private static final byte CLOSE = 3;
+    private static final byte SEPARATOR = 4;
+
+    private final Parser<R> element;
+    private final char separator;
+    private final String quotes;
+    private final char escape;
+    private final String open;
+    private final String close;
+    private final int threshold;
+    private final ForkJoinPool pool;
+    private final Parser<List<R>> sequential;
+    private final byte[] asciiKinds = new byte[128];
+
+    ParallelSepByParser(Parser<R> element, char separator) {
+        this(element, separator, "\"", '\\', "([{", ")]}", DEFAULT_THRESHOLD, null);
+    }
+
+    private ParallelSepByParser(Parser<R> element, char separator, String quotes, char escape,
+                                String open, String close, int threshold, ForkJoinPool pool) {
+        if (open.length() != close.length()) {
+            throw new IllegalArgumentException("open and close brackets must have the same length");
+        }
+        this.element = element;
+        this.separator = separator;
+        this.quotes = quotes;
+        this.escape = escape;
+        this.open = open;
+        this.close = close;
+        this.threshold = threshold;
+        this.pool = pool;
+        this.sequential = new SepByParser<>(element, Parsers.ch(separator), 0, false);
+        for (char c = 0; c < 128; c++) {
+            asciiKinds[c] = kindOf(c);
+        }
+    }
+
+    /**
+     * 获取元素解析器
+     */
+    public Parser<R> element() {
+        return element;
+    }
+
+    /**
+     * 获取分隔符
+     */
+    public char separator() {
+        return separator;
+    }
+
+    /**
+     * 返回使用另一个元素解析器、其他设置不变的解析器
+     */
+    <R2> ParallelSepByParser<R2> withElement(Parser<R2> element) {
+        return new ParallelSepByParser<>(element, separator, quotes, escape, open, close, threshold, pool);
+    }
+
+    /**
+     * <p>返回使用指定字符串定界符的解析器，默认为双引号，转义字符为反斜杠</p>
+     * <p>扫描时字符串内的分隔符和括号被忽略，转义字符之后的字符不会结束字符串</p>
+     * @param quotes 字符串的定界符，字符串以同一个定界符开始和结束
+     * @param escape 转义字符
+     */
+    public ParallelSepByParser<R> quotes(String quotes, char escape) {
+        return new ParallelSepByParser<>(element, separator, quotes, escape, open, close, threshold, pool);
+    }
+
+    /**
+     * 返回使用指定括号的解析器，默认为"([{"和")]}"，扫描时只统计嵌套深度，不检查括号是否配对
+     * @param open 左括号
+     * @param close 对应的右括号
+     */
+    public ParallelSepByParser<R> brackets(String open, String close) {
+        return new ParallelSepByParser<>(element, separator, quotes, escape, open, close, threshold, pool);
+    }
+
+    /**
+     * 返回按指定字符数分组的解析器，每组元素由一个任务解析，范围小于该值的列表顺序解析，默认为65536
+     * @param threshold 每组的字符数
+     */
+    public ParallelSepByParser<R> threshold(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        return new ParallelSepByParser<>(element, separator, quotes, escape, open, close, threshold, pool);
+    }
+
+    /**
+     * 返回使用指定线程池的解析器，默认为{@link ForkJoinPool#commonPool()}
+     * @param pool 线程池
+     */
+    public ParallelSepByParser<R> pool(ForkJoinPool pool) {
+        return new ParallelSepByParser<>(element, separator, quotes, escape, open, close, threshold, pool);
+    }
+
+    private byte kindOf(char c) {
+        if (c == separator) {
+            return SEPARATOR;
+        } else if (quotes.indexOf(c) >= 0) {
+            return QUOTE;
+        } else if (open.indexOf(c) >= 0) {
+            return OPEN;
+        } else if (close.indexOf(c) >= 0) {
+            return CLOSE;
+        }
+        return 0;
+    }
+
+    /**
+     * 扫描列表范围，返回每个元素的起始位置，最后一项为列表的结束位置 + 1，第k个元素结束于bounds[k + 1] - 1
+     */
+    private int[] scan(CharSequence s, int index) {
+        int[] bounds = new int[16];
+        int count = 0;
+        bounds[count++] = index;
+        int depth = 0;
+        int i = index;
+        while (Inputs.has(s, i)) {
+            char c = s.charAt(i);
+            byte kind = c < 128 ? asciiKinds[c] : kindOf(c);
+            if (kind == QUOTE) {
+                i++;
+                while (Inputs.has(s, i) && s.charAt(i) != c) {
+                    i += s.charAt(i) == escape ? 2 : 1;
+                }
+            } else if (kind == OPEN) {
+                depth++;
+            } else if (kind == CLOSE) {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (kind == SEPARATOR && depth == 0) {
+                if (count == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, count * 2);
+                }
+                bounds[count++] = i + 1;
+            }
+            i++;
+        }
+        bounds = Arrays.copyOf(bounds, count + 1);
+        bounds[count] = i + 1;
+        return bounds;
+    }
+
+    /**
+     * 是否可以并行解析，流式输入和增量解析的输入不能被多个线程同时访问
+     */
+    private static boolean parallelizable(CharSequence s) {
+        return !(s instanceof Inputs.ReaderInput) && !(s instanceof Inputs.TrackingInput);
+    }
+
+    /**
+     * 是否可能并行解析，剩余输入或所在的并行解析分组小于阈值时不可能
+     */
+    private boolean parallelizable(CharSequence s, int index) {
+        if (!parallelizable(s) || s.length() - index < threshold) {
+            return false;
+        }
+        ParseContext ctx = ParseContext.current();
+        return ctx == null || !ctx.isParsing(s) || ctx.end() - index >= threshold;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return withElement((Parser<R>) rewriter.visit(element));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ParseResult<List<R>> tryParse(CharSequence s, int index) {
+        if (!parallelizable(s, index)) {
+            return sequential.tryParse(s, index);
+        }
+        List<Object> list = new ArrayList<>();
+        int end = parse(s, index, list);
+        return new ParseResult<>((List<R>) list, end);
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        if (!parallelizable(s, index)) {
+            return sequential.match(s, index);
+        }
+        return parse(s, index, null);
+    }
+
+    /**
+     * 顺序解析元素，解析的范围达到阈值后扫描剩余部分，剩余部分不小于阈值时并行解析，失败时继续顺序解析
+     * @param list 保存解析结果的列表，只识别时为null
+     * @return 列表的结束位置
+     */
+    private int parse(CharSequence s, int index, List<Object> list) {
+        int end = element(s, index, list);
+        if (end < 0) {
+            return index;
+        }
+        boolean scanned = false;
+        ParseContext ctx = ParseContext.limited();
+        while (true) {
+            if (ctx != null) {
+                ctx.step(end);
+            }
+            if (!Inputs.has(s, end) || s.charAt(end) != separator) {
+                return end;
+            }
+            if (!scanned && end - index >= threshold) {
+                scanned = true;
+                int[] bounds = scan(s, end + 1);
+                Object[] results = list == null ? null : new Object[bounds.length - 1];
+                if (bounds[bounds.length - 1] - bounds[0] >= threshold && run(s, bounds, results)) {
+                    if (list != null) {
+                        list.addAll(Arrays.asList(results));
+                    }
+                    return bounds[bounds.length - 1] - 1;
+                }
+            }
+            int next = element(s, end + 1, list);
+            if (next < 0) {
+                return end;
+            }
+            end = next;
+        }
+    }
+
+    /**
+     * 顺序解析一个元素，返回结束位置，失败时返回-1
+     */
+    private int element(CharSequence s, int index, List<Object> list) {
+        if (list == null) {
+            return element.match(s, index);
+        }
+        ParseResult<R> r = element.tryParse(s, index);
+        if (r.isFailure()) {
+            return -1;
+        }
+        list.add(r.result());
+        return r.index();
+    }
+
+    /**
+     * 并行解析所有元素
+     * @param results 保存解析结果的数组，只识别时为null
+     * @return 是否所有元素都恰好解析到下一个分隔符之前
+     */
+    private boolean run(CharSequence s, int[] bounds, Object[] results) {
+        ParseContext caller = ParseContext.current();
+        ParseContext origin = caller != null && caller.isParsing(s) ? caller : null;
+        AtomicLong steps = origin == null ? null : origin.shareSteps();
+        Task task = new Task(s, bounds, results, 0, bounds.length - 1, origin, steps);
+        try {
+            ForkJoinPool p = pool != null ? pool : ForkJoinPool.commonPool();
+            if (ForkJoinTask.getPool() == p) {
+                task.invoke();
+            } else if (origin != null && origin.getPolicy().isInterruptible()) {
+                awaitInterruptibly(p, task, bounds[0]);
+            } else {
+                p.invoke(task);
+            }
+        } catch (ParseLimitException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // 顺序解析会在第一个出错的元素处抛出相同的异常
+            return false;
+        } finally {
+            if (origin != null) {
+                origin.joinSteps(steps, bounds[0]);
+            }
+        }
+        // 之前的元素都恰好结束于分隔符时，顺序解析同样会在该元素的切断点之后失败
+        if (task.cut != null) {
+            throw task.cut;
+        }
+        return task.failedAt < 0;
+    }
+
+    /**
+     * <p>在线程池中执行任务，等待期间调用方线程被中断时抛出{@link ParseLimitException}</p>
+     * <p>{@link ForkJoinPool#invoke(ForkJoinTask)}在等待期间会暂时清除中断状态，子任务无法看到中断</p>
+     */
+    private void awaitInterruptibly(ForkJoinPool p, Task task, int index) {
+        p.execute(task);
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            // 恢复中断状态，仍在执行的子任务在下一次检查时停止
+            Thread.currentThread().interrupt();
+            throw new ParseLimitException(ParseLimitException.Limit.INTERRUPTED, index);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = element.firstSet();
+        return first == null ? null : first.asNullable();
+    }
+
+    /**
+     * 解析第lo到hi - 1个元素，字符数超过阈值时二分
+     */
+    private final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence s;
+        private final int[] bounds;
+        private final Object[] results;
+        private final int lo;
+        private final int hi;
+        private final ParseContext origin;
+        private final AtomicLong steps;
+        /**
+         * 第一个失败的元素的下标，没有失败时为-1
+         */
+        private int failedAt = -1;
+        /**
+         * 第一个失败的元素在切断点之后失败时抛出的异常
+         */
+        private ParseCutException cut;
+
+        Task(CharSequence s, int[] bounds, Object[] results, int lo, int hi, ParseContext origin, AtomicLong steps) {
+            this.s = s;
+            this.bounds = bounds;
+            this.results = results;
+            this.lo = lo;
+            this.hi = hi;
+            this.origin = origin;
+            this.steps = steps;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1 && bounds[hi] - bounds[lo] > threshold) {
+                int mid = (lo + hi) >>> 1;
+                Task left = new Task(s, bounds, results, lo, mid, origin, steps);
+                Task right = new Task(s, bounds, results, mid, hi, origin, steps);
+                invokeAll(left, right);
+                Task first = left.failedAt >= 0 ? left : right;
+                failedAt = first.failedAt;
+                cut = first.cut;
+                return;
+            }
+            ParseContext ctx = origin == null ? new ParseContext() : origin.fork(steps, bounds[hi] - 1);
+            ParseContext prev = ctx.enter(s);
+            int k = lo;
+            try {
+                for (; k < hi; k++) {
+                    // 元素必须恰好结束于分隔符或列表结束位置之前
+                    int end = bounds[k + 1] - 1;
+                    if (results == null) {
+                        if (element.match(s, bounds[k]) != end) {
+                            failedAt = k;
+                            return;
+                        }
+                    } else {
+                        ParseResult<R> r = element.tryParse(s, bounds[k]);
+                        if (r.index() != end) {
+                            failedAt = k;
+                            return;
+                        }
+                        results[k] = r.result();
+                    }
+                }
+            } catch (ParseCutException e) {
+                failedAt = k;
+                cut = e;
+            } finally {
+                ctx.exit(prev);
+            }
+        }
+    }
+}
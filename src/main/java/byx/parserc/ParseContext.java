@@ -0,0 +1,441 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseLimitException;
+import byx.parserc.exception.ParseLimitException.Limit;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>解析上下文，保存一次解析过程中的状态（如记忆化表）</p>
+ * <p>上下文在解析开始时绑定到当前线程，解析结束后解除绑定</p>
+ */
+public class ParseContext {
+    private static final ThreadLocal<ParseContext> CURRENT = new ThreadLocal<>();
+    /**
+     * 每执行这么多步检查一次耗时和中断状态
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private boolean packrat;
+    private CharSequence input;
+    /**
+     * 以记忆化节点的编号为下标的记忆化表，只包含本上下文解析过的节点
+     */
+    private MemoTable[] tables = new MemoTable[8];
+    private long memoHits;
+    private long memoMisses;
+    private ParsePolicy policy = ParsePolicy.unlimited();
+    private boolean limited;
+    private long steps;
+    private int depth;
+    private long deadline;
+    private int nextCheck;
+    private Thread owner;
+    /**
+     * 并行解析子任务的调用方上下文，不是子任务时为null
+     */
+    private ParseContext origin;
+    /**
+     * 子任务与调用方共享的执行步数，以及已经计入共享步数的本地步数
+     */
+    private AtomicLong sharedSteps;
+    private long flushedSteps;
+    /**
+     * 子任务负责的输入范围的结束位置
+     */
+    private int end = Integer.MAX_VALUE;
+
+    /**
+     * 设置是否开启packrat模式，开启后所有lazy解析器的结果都会被记忆化
+     * @param packrat 是否开启
+     */
+    public ParseContext packrat(boolean packrat) {
+        this.packrat = packrat;
+        return this;
+    }
+
+    /**
+     * 是否开启packrat模式
+     */
+    public boolean isPackrat() {
+        return packrat;
+    }
+
+    /**
+     * <p>设置解析策略，限制每次解析的执行步数、递归深度、输入长度和耗时</p>
+     * <p>超出限制时抛出{@link ParseLimitException}</p>
+     * @param policy 解析策略
+     */
+    public ParseContext policy(ParsePolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    /**
+     * 获取解析策略
+     */
+    public ParsePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 最近一次解析执行的步数，只在解析策略有限制时统计
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * 记忆化表命中次数
+     */
+    public long getMemoHits() {
+        return memoHits;
+    }
+
+    /**
+     * 记忆化表未命中次数
+     */
+    public long getMemoMisses() {
+        return memoMisses;
+    }
+
+    /**
+     * 获取当前线程正在使用的上下文
+     */
+    static ParseContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * <p>获取当前线程中正在进行受限解析的上下文，没有时返回null</p>
+     * <p>是否受限只保存在当前线程的上下文中，一个线程的受限解析不会影响其他线程</p>
+     */
+    static ParseContext limited() {
+        ParseContext ctx = CURRENT.get();
+        return ctx != null && ctx.limited ? ctx : null;
+    }
+
+    /**
+     * 当前解析是否受解析策略限制
+     */
+    boolean isLimited() {
+        return limited;
+    }
+
+    /**
+     * <p>创建并行解析子任务使用的上下文，子任务负责解析当前输入中end之前的部分</p>
+     * <p>子任务与当前上下文共享执行步数、截止时间、中断状态和递归深度，步数每隔一段时间计入shared</p>
+     * @param shared 共享的执行步数，由{@link #shareSteps()}创建
+     * @param end 子任务负责的输入范围的结束位置
+     */
+    ParseContext fork(AtomicLong shared, int end) {
+        ParseContext child = new ParseContext().packrat(packrat).policy(policy);
+        child.origin = this;
+        child.sharedSteps = shared;
+        child.end = end;
+        return child;
+    }
+
+    /**
+     * 创建子任务共享的执行步数，初始值为当前的步数
+     */
+    AtomicLong shareSteps() {
+        return new AtomicLong(steps);
+    }
+
+    /**
+     * 子任务结束后，把共享的执行步数计入当前上下文，并检查步数限制
+     * @param index 子任务开始解析的位置
+     */
+    void joinSteps(AtomicLong shared, int index) {
+        steps = shared.get();
+        if (limited && steps > policy.getMaxSteps()) {
+            throw new ParseLimitException(Limit.STEPS, index);
+        }
+    }
+
+    /**
+     * 并行解析子任务负责的输入范围的结束位置，不是子任务时为{@link Integer#MAX_VALUE}
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * 开始解析input，重置解析状态并绑定到当前线程
+     * @param input 输入
+     * @return 之前绑定的上下文
+     */
+    ParseContext enter(CharSequence input) {
+        return enter(input, true);
+    }
+
+    /**
+     * 开始解析input并绑定到当前线程
+     * @param input 输入
+     * @param clear 是否清空记忆化表，增量解析时保留上一次解析的结果
+     * @return 之前绑定的上下文
+     */
+    ParseContext enter(CharSequence input, boolean clear) {
+        ParseContext prev = CURRENT.get();
+        this.input = input;
+        this.memoHits = 0;
+        this.memoMisses = 0;
+        this.steps = origin == null ? 0 : origin.steps;
+        this.flushedSteps = steps;
+        this.depth = origin == null ? 0 : origin.depth;
+        this.owner = origin == null ? Thread.currentThread() : origin.owner;
+        // 子任务在第一步就检查共享的限制，较小的子任务也能及时发现超时和中断
+        this.nextCheck = origin == null ? CHECK_INTERVAL : 1;
+        if (clear) {
+            for (MemoTable t : tables) {
+                if (t != null) {
+                    t.clear();
+                }
+            }
+        }
+        CURRENT.set(this);
+        limited = !policy.isUnlimited();
+        if (limited) {
+            Duration timeout = policy.getTimeout();
+            if (origin != null) {
+                deadline = origin.deadline;
+            } else {
+                deadline = timeout == null ? 0 : System.nanoTime() + Math.max(timeout.toNanos(), 1);
+            }
+            if (!(input instanceof Inputs.ReaderInput) && input.length() > policy.getMaxInputLength()) {
+                exit(prev);
+                throw new ParseLimitException(Limit.INPUT_LENGTH, policy.getMaxInputLength());
+            }
+        }
+        return prev;
+    }
+
+    /**
+     * <p>执行一步，检查步数和位置，并定期检查耗时和中断状态</p>
+     * <p>只应在{@link #limited()}返回的上下文上调用</p>
+     * @param index 当前位置
+     */
+    void step(int index) {
+        if (++steps > policy.getMaxSteps()) {
+            throw new ParseLimitException(Limit.STEPS, index);
+        }
+        if (index > policy.getMaxInputLength()) {
+            throw new ParseLimitException(Limit.INPUT_LENGTH, index);
+        }
+        if (--nextCheck == 0) {
+            nextCheck = CHECK_INTERVAL;
+            if (sharedSteps != null) {
+                long total = sharedSteps.addAndGet(steps - flushedSteps);
+                flushedSteps = steps;
+                if (total > policy.getMaxSteps()) {
+                    throw new ParseLimitException(Limit.STEPS, index);
+                }
+            }
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                throw new ParseLimitException(Limit.TIMEOUT, index);
+            }
+            if (policy.isInterruptible() && owner.isInterrupted()) {
+                throw new ParseLimitException(Limit.INTERRUPTED, index);
+            }
+        }
+    }
+
+    /**
+     * 进入一层递归规则
+     * @param index 当前位置
+     */
+    void enterRule(int index) {
+        step(index);
+        if (++depth > policy.getMaxDepth()) {
+            depth--;
+            throw new ParseLimitException(Limit.DEPTH, index);
+        }
+    }
+
+    /**
+     * 退出一层递归规则
+     */
+    void exitRule() {
+        depth--;
+    }
+
+    /**
+     * 输入的[start, end)范围被替换为长度为end - start + delta的文本后，调整记忆化表
+     * @param start 修改的起始位置
+     * @param end 修改前被替换部分的结束位置
+     * @param delta 修改后输入长度的变化量
+     */
+    void edit(int start, int end, int delta) {
+        for (MemoTable t : tables) {
+            if (t != null) {
+                t.edit(start, end, delta);
+            }
+        }
+    }
+
+    /**
+     * 切断点之后不会再回溯到index之前，丢弃记忆化表中index之前的结果
+     * @param index 切断点位置
+     */
+    void discard(int index) {
+        for (MemoTable t : tables) {
+            if (t != null) {
+                t.discard(index);
+            }
+        }
+    }
+
+    /**
+     * 结束解析，恢复之前绑定的上下文
+     * @param prev 之前绑定的上下文
+     */
+    void exit(ParseContext prev) {
+        this.input = null;
+        this.owner = null;
+        if (sharedSteps != null) {
+            sharedSteps.addAndGet(steps - flushedSteps);
+            flushedSteps = steps;
+        }
+        limited = false;
+        if (prev == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(prev);
+        }
+    }
+
+    /**
+     * 当前上下文是否正在解析input
+     * @param input 输入
+     */
+    boolean isParsing(CharSequence input) {
+        return this.input == input;
+    }
+
+    /**
+     * 获取记忆化节点的记忆化表
+     * @param node 记忆化节点
+     */
+    MemoTable table(MemoParser<?> node) {
+        int slot = node.slot();
+        if (slot >= tables.length) {
+            tables = Arrays.copyOf(tables, Math.max(slot + 1, tables.length * 2));
+        }
+        MemoTable t = tables[slot];
+        if (t == null) {
+            t = new MemoTable(node, input.length() + 1);
+            tables[slot] = t;
+        }
+        return t;
+    }
+
+    void hit() {
+        memoHits++;
+    }
+
+    void miss() {
+        memoMisses++;
+    }
+
+    /**
+     * <p>记忆化表，以输入位置为下标保存解析结果</p>
+     * <p>增量解析时还会保存每个结果的读取范围，即计算该结果时读取过的最远位置 + 1</p>
+     */
+    static class MemoTable {
+        /**
+         * 表所属的节点，保证上下文使用表期间节点的编号不会被复用
+         */
+        private final MemoParser<?> owner;
+        private ParseResult<?>[] results;
+        private int[] extents;
+        private int used;
+        private int discarded;
+        private boolean pinned;
+
+        MemoTable(MemoParser<?> owner, int capacity) {
+            this.owner = owner;
+            results = new ParseResult<?>[capacity];
+        }
+
+        ParseResult<?> get(int index) {
+            return index < results.length ? results[index] : null;
+        }
+
+        void put(int index, ParseResult<?> r) {
+            if (index >= results.length) {
+                results = Arrays.copyOf(results, Math.max(index + 1, results.length * 2));
+            }
+            results[index] = r;
+            used = Math.max(used, index + 1);
+        }
+
+        int extent(int index) {
+            return extents != null && index < extents.length ? extents[index] : 0;
+        }
+
+        void put(int index, ParseResult<?> r, int extent) {
+            put(index, r);
+            if (extents == null || extents.length < results.length) {
+                extents = extents == null ? new int[results.length] : Arrays.copyOf(extents, results.length);
+            }
+            extents[index] = extent;
+        }
+
+        void clear() {
+            Arrays.fill(results, 0, used, null);
+            used = 0;
+            discarded = 0;
+            extents = null;
+        }
+
+        /**
+         * 左递归规则增长种子时依赖表中的种子，不能丢弃结果
+         */
+        void pin() {
+            pinned = true;
+        }
+
+        /**
+         * 丢弃index之前的结果，增量解析需要保留所有结果以便复用
+         */
+        void discard(int index) {
+            int end = Math.min(index, used);
+            if (pinned || extents != null || end <= discarded) {
+                return;
+            }
+            Arrays.fill(results, discarded, end, null);
+            discarded = end;
+        }
+
+        /**
+         * 保留读取范围在修改位置之前的结果，平移修改范围之后的结果，丢弃其余结果
+         */
+        void edit(int start, int end, int delta) {
+            if (extents == null) {
+                clear();
+                return;
+            }
+            ParseResult<?>[] oldResults = results;
+            int[] oldExtents = extents;
+            int oldUsed = used;
+            results = new ParseResult<?>[Math.max(oldUsed + delta, 0) + 1];
+            extents = new int[results.length];
+            used = 0;
+            for (int i = 0; i < oldUsed; i++) {
+                ParseResult<?> r = oldResults[i];
+                if (r == null) {
+                    continue;
+                }
+                int extent = oldExtents[i];
+                if (extent <= start) {
+                    put(i, r, extent);
+                } else if (i >= end) {
+                    put(i + delta, r.isFailure() ? r : new ParseResult<>(r.result(), r.index() + delta), extent + delta);
+                }
+            }
+        }
+    }
+}
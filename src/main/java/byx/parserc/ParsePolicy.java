@@ -0,0 +1,130 @@
+package byx.parserc;
+
+import java.time.Duration;
+
+/**
+ * <p>解析策略，限制一次解析的执行步数、递归深度、输入长度和耗时，并允许通过中断线程取消解析</p>
+ * <p>步数为repeat的迭代次数、oneOf的分支选择次数和lazy规则的调用次数之和，递归深度为嵌套的lazy规则调用层数。
+ * 超出任意一个限制时抛出{@link byx.parserc.exception.ParseLimitException}</p>
+ * <p>解析策略是不可变的，每个设置方法都返回新的策略。通过{@link ParseContext#policy(ParsePolicy)}使用</p>
+ */
+public final class ParsePolicy {
+    private static final ParsePolicy UNLIMITED = new ParsePolicy(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null, false);
+
+    private final long maxSteps;
+    private final int maxDepth;
+    private final int maxInputLength;
+    private final Duration timeout;
+    private final boolean interruptible;
+
+    private ParsePolicy(long maxSteps, int maxDepth, int maxInputLength, Duration timeout, boolean interruptible) {
+        this.maxSteps = maxSteps;
+        this.maxDepth = maxDepth;
+        this.maxInputLength = maxInputLength;
+        this.timeout = timeout;
+        this.interruptible = interruptible;
+    }
+
+    /**
+     * 不做任何限制的策略，也是{@link ParseContext}的默认策略
+     */
+    public static ParsePolicy unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * 设置最大执行步数
+     * @param maxSteps 最大执行步数
+     */
+    public ParsePolicy maxSteps(long maxSteps) {
+        if (maxSteps < 0) {
+            throw new IllegalArgumentException("maxSteps must not be negative: " + maxSteps);
+        }
+        return new ParsePolicy(maxSteps, maxDepth, maxInputLength, timeout, interruptible);
+    }
+
+    /**
+     * 设置lazy规则的最大嵌套深度
+     * @param maxDepth 最大嵌套深度
+     */
+    public ParsePolicy maxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+        }
+        return new ParsePolicy(maxSteps, maxDepth, maxInputLength, timeout, interruptible);
+    }
+
+    /**
+     * <p>设置最大输入长度</p>
+     * <p>长度已知的输入在解析开始前检查，流式输入在读取到超出长度的位置时检查</p>
+     * @param maxInputLength 最大输入长度
+     */
+    public ParsePolicy maxInputLength(int maxInputLength) {
+        if (maxInputLength < 0) {
+            throw new IllegalArgumentException("maxInputLength must not be negative: " + maxInputLength);
+        }
+        return new ParsePolicy(maxSteps, maxDepth, maxInputLength, timeout, interruptible);
+    }
+
+    /**
+     * 设置每次解析的最长耗时，从解析开始时计算
+     * @param timeout 最长耗时
+     */
+    public ParsePolicy timeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must not be negative: " + timeout);
+        }
+        return new ParsePolicy(maxSteps, maxDepth, maxInputLength, timeout, interruptible);
+    }
+
+    /**
+     * 设置解析过程中是否检查线程的中断状态，被中断时停止解析，线程的中断状态保持不变
+     * @param interruptible 是否检查
+     */
+    public ParsePolicy interruptible(boolean interruptible) {
+        return new ParsePolicy(maxSteps, maxDepth, maxInputLength, timeout, interruptible);
+    }
+
+    /**
+     * 最大执行步数
+     */
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * 最大嵌套深度
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 最大输入长度
+     */
+    public int getMaxInputLength() {
+        return maxInputLength;
+    }
+
+    /**
+     * 最长耗时，不限制时返回null
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 是否检查线程的中断状态
+     */
+    public boolean isInterruptible() {
+        return interruptible;
+    }
+
+    /**
+     * 是否没有任何限制
+     */
+    public boolean isUnlimited() {
+        return maxSteps == Long.MAX_VALUE && maxDepth == Integer.MAX_VALUE
+            && maxInputLength == Integer.MAX_VALUE && timeout == null && !interruptible;
+    }
+}
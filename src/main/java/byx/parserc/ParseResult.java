@@ -3,7 +3,24 @@ package byx.parserc;
 /**
  * 封装解析结果
  * @param result 解析结果
- * @param index 解析后的索引
+ * @param index 解析后的索引，解析失败时为负数
  * @param <R> 结果类型
  */
-public record ParseResult<R>(R result, int index) {}
+public record ParseResult<R>(R result, int index) {
+    private static final ParseResult<?> FAILURE = new ParseResult<>(null, -1);
+
+    /**
+     * 获取表示解析失败的共享实例
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> ParseResult<R> failure() {
+        return (ParseResult<R>) FAILURE;
+    }
+
+    /**
+     * 是否解析失败
+     */
+    public boolean isFailure() {
+        return index < 0;
+    }
+}
@@ -2,11 +2,12 @@ package byx.parserc;
 
 import byx.parserc.exception.ParseInternalException;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
 
 import static byx.parserc.Parsers.chs;
 
@@ -16,12 +17,47 @@ import static byx.parserc.Parsers.chs;
  */
 public interface Parser<R> {
     /**
-     * 解析字符串
+     * 解析字符序列
+     * @param s 字符序列
+     * @param index 当前位置
+     * @return 解析结果
+     */
+    ParseResult<R> parse(CharSequence s, int index);
+
+    /**
+     * <p>解析字符串，解析失败时返回{@link ParseResult#failure()}而不是抛出异常</p>
+     * <p>内置组合子通过该方法调用子解析器，默认实现捕获{@link ParseInternalException}，
+     * 自定义解析器可通过实现{@link TryParser}避免异常开销</p>
      * @param s 字符串
      * @param index 当前位置
      * @return 解析结果
      */
-    ParseResult<R> parse(String s, int index);
+    default ParseResult<R> tryParse(CharSequence s, int index) {
+        try {
+            return parse(s, index);
+        } catch (ParseInternalException e) {
+            return ParseResult.failure();
+        }
+    }
+
+    /**
+     * <p>只识别输入而不构造解析结果，用于只关心消耗范围的场景</p>
+     * <p>内置组合子会跳过结果的构造和转换（如{@link #map(Function)}中的mapper不会被调用）</p>
+     * @param s 字符串
+     * @param index 当前位置
+     * @return 解析成功时返回解析后的位置，否则返回负数
+     */
+    default int match(CharSequence s, int index) {
+        return tryParse(s, index).index();
+    }
+
+    /**
+     * <p>获取当前解析器的FIRST集，用于在多个分支之间选择</p>
+     * <p>返回null表示FIRST集未知，此时该解析器总是会被尝试</p>
+     */
+    default FirstSet firstSet() {
+        return null;
+    }
 
     /**
      * 解析字符串直到末尾
@@ -29,11 +65,44 @@ public interface Parser<R> {
      * @return 解析结果
      */
     default R parse(String s) {
-        ParseResult<R> r = parse(s, 0);
-        if (r.index() != s.length()) {
-            throw ParseInternalException.INSTANCE;
+        return parse((CharSequence) s);
+    }
+
+    /**
+     * 解析字符序列直到末尾
+     * @param s 字符序列，可以通过{@link Inputs}创建基于字符数组或内存映射文件的输入
+     * @return 解析结果
+     */
+    default R parse(CharSequence s) {
+        return parse(s, new ParseContext());
+    }
+
+    /**
+     * 使用指定的解析上下文解析字符序列直到末尾
+     * @param s 字符序列
+     * @param ctx 解析上下文
+     * @return 解析结果
+     */
+    default R parse(CharSequence s, ParseContext ctx) {
+        ParseContext prev = ctx.enter(s);
+        try {
+            ParseResult<R> r = tryParse(s, 0);
+            if (r.isFailure() || Inputs.has(s, r.index())) {
+                throw ParseInternalException.INSTANCE;
+            }
+            return r.result();
+        } finally {
+            ctx.exit(prev);
         }
-        return r.result();
+    }
+
+    /**
+     * <p>使用{@link ParserExecutor}的默认设置并行解析多个相互独立的输入，每个输入都必须被完整解析</p>
+     * <p>按输入顺序返回每个输入的解析结果或抛出的异常</p>
+     * @param inputs 输入
+     */
+    default List<ParserExecutor.Outcome<R>> parseAll(Collection<? extends CharSequence> inputs) {
+        return new ParserExecutor().parseAll(this, inputs);
     }
 
     /**
@@ -42,11 +111,7 @@ public interface Parser<R> {
      * @param rhs 解析器2
      */
     default <R2> Parser<Pair<R, R2>> and(Parser<R2> rhs) {
-        return (s, index) -> {
-            ParseResult<R> r1 = this.parse(s, index);
-            ParseResult<R2> r2 = rhs.parse(s, r1.index());
-            return new ParseResult<>(new Pair<>(r1.result(), r2.result()), r2.index());
-        };
+        return new AndParser<>(this, rhs);
     }
 
     /**
@@ -68,16 +133,12 @@ public interface Parser<R> {
     /**
      * <p>依次尝试应用两个解析器，如果成功则返回其解析结果</p>
      * <p>如果两个解析器都失败，则解析失败</p>
+     * <p>如果两个解析器的FIRST集已知，则只尝试可能成功的解析器</p>
      * @param rhs 解析器2
      */
+    @SuppressWarnings("unchecked")
     default Parser<R> or(Parser<R> rhs) {
-        return (s, index) -> {
-            try {
-                return this.parse(s, index);
-            } catch (ParseInternalException e) {
-                return rhs.parse(s, index);
-            }
-        };
+        return new OneOfParser<>((Parser<? extends R>[]) new Parser<?>[]{this, rhs});
     }
 
     /**
@@ -85,10 +146,17 @@ public interface Parser<R> {
      * @param mapper 结果转换器
      */
     default <R2> Parser<R2> map(Function<R, R2> mapper) {
-        return (s, index) -> {
-            ParseResult<R> r = this.parse(s, index);
-            return new ParseResult<>(mapper.apply(r.result()), r.index());
-        };
+        return new MapParser<>(this, mapper);
+    }
+
+    /**
+     * <p>应用当前解析器，并返回其消耗的字符串</p>
+     * <p>当前解析器只用于确定消耗的范围，不会构造中间结果（如{@code range('0', '9').many1().text()}不会构造字符列表）</p>
+     * <p>当前解析器中map的mapper不会被调用，在mapper中抛出异常来拒绝输入的校验不会生效，
+     * 需要校验时应先解析得到结果再转换</p>
+     */
+    default Parser<String> text() {
+        return new TextParser(this);
     }
 
     /**
@@ -105,30 +173,7 @@ public interface Parser<R> {
      * @param maxTimes 最大次数
      */
     default Parser<List<R>> repeat(int minTimes, int maxTimes) {
-        return (s, index) -> {
-            List<R> result = new ArrayList<>();
-            int times = 0;
-
-            while (times < minTimes) {
-                ParseResult<R> r = this.parse(s, index);
-                result.add(r.result());
-                index = r.index();
-                times++;
-            }
-
-            while (times < maxTimes || maxTimes < 0) {
-                try {
-                    ParseResult<R> r = this.parse(s, index);
-                    result.add(r.result());
-                    index = r.index();
-                    times++;
-                } catch (ParseInternalException e) {
-                    break;
-                }
-            }
-
-            return new ParseResult<>(result, index);
-        };
+        return new RepeatParser<>(this, minTimes, maxTimes);
     }
 
     /**
@@ -153,12 +198,58 @@ public interface Parser<R> {
         return this.repeat(1, -1);
     }
 
+    /**
+     * <p>连续应用当前解析器零次或多次，直到失败，并用collector收集解析结果</p>
+     * <p>解析结果直接累加到collector的容器中，不构造中间列表，例如{@code not('"').many(Collectors.joining())}</p>
+     * @param collector 收集器
+     */
+    default <A, T> Parser<T> many(Collector<? super R, A, T> collector) {
+        return FoldParser.collect(this, 0, collector);
+    }
+
+    /**
+     * 连续应用当前解析器一次或多次，直到失败，并用collector收集解析结果
+     * @param collector 收集器
+     */
+    default <A, T> Parser<T> many1(Collector<? super R, A, T> collector) {
+        return FoldParser.collect(this, 1, collector);
+    }
+
+    /**
+     * <p>连续应用当前解析器零次或多次，直到失败，从seed生成的初始值开始依次用accumulator累加每次的解析结果</p>
+     * <p>每次解析都调用seed获取新的初始值，因此可以使用可变的累加值，例如{@code skip(ch('+')).and(number).fold(() -> 0.0, Double::sum)}、
+     * {@code any().fold(StringBuilder::new, StringBuilder::append)}</p>
+     * @param seed 初始值的生成器
+     * @param accumulator 累加函数
+     */
+    default <T> Parser<T> fold(Supplier<T> seed, BiFunction<T, ? super R, T> accumulator) {
+        return new FoldParser<>(this, 0, -1, seed, accumulator, Function.identity());
+    }
+
+    /**
+     * <p>与{@link #fold(Supplier, BiFunction)}相同，但累加值为int，累加过程不装箱</p>
+     * <p>例如{@code range('0', '9').foldInt(0, (n, c) -> n * 10 + (c - '0'))}</p>
+     * @param seed 初始值
+     * @param accumulator 累加函数
+     */
+    default Parser<Integer> foldInt(int seed, Functions.IntAccumulator<? super R> accumulator) {
+        return new IntFoldParser<>(this, seed, accumulator);
+    }
+
+    /**
+     * <p>连续应用当前解析器零次或多次，直到失败，并丢弃解析结果，解析结果为null</p>
+     * <p>当前解析器只进行识别，不会构造任何中间结果</p>
+     */
+    default Parser<Void> skipMany() {
+        return FoldParser.skip(this, 0, -1);
+    }
+
     /**
      * 连接另一个解析器并跳过解析结果
      * @param rhs rhs
      */
     default <R2> Parser<R> skip(Parser<R2> rhs) {
-        return this.and(rhs).map(Pair::first);
+        return this.and(rhs).map(PickParser.first());
     }
 
     /**
@@ -182,7 +273,7 @@ public interface Parser<R> {
      * 在当前解析器前后加上空白符
      */
     default Parser<R> trim() {
-        return this.surround(chs(' ', '\t', '\n', '\r').many());
+        return this.surround(chs(' ', '\t', '\n', '\r').skipMany());
     }
 
     /**
@@ -190,13 +281,58 @@ public interface Parser<R> {
      * @param defaultResult 默认值
      */
     default Parser<R> opt(R defaultResult) {
-        return (s, index) -> {
-            try {
-                return this.parse(s, index);
-            } catch (ParseInternalException e) {
-                return new ParseResult<>(defaultResult, index);
-            }
-        };
+        return new OptParser<>(this, defaultResult);
+    }
+
+    /**
+     * <p>记忆化当前解析器，一次解析过程中在同一位置只会真正执行一次</p>
+     * <p>记忆化表的命中情况可通过{@link ParseContext#getMemoHits()}和{@link ParseContext#getMemoMisses()}查看</p>
+     */
+    default Parser<R> memo() {
+        return new MemoParser<>(this, false);
+    }
+
+    /**
+     * <p>为当前解析器命名，用于{@link Profiler}按规则统计</p>
+     * <p>只有在{@link Profiler#build(java.util.function.Supplier)}中或设置了系统属性{@code byx.parserc.profile=true}时
+     * 才会包装当前解析器，否则直接返回当前解析器</p>
+     * @param name 规则名
+     */
+    default Parser<R> named(String name) {
+        Profiler profiler = Profiler.current();
+        return profiler == null ? this : profiler.wrap(this, name);
+    }
+
+    /**
+     * <p>改写当前解析器及其引用的所有解析器，返回解析结果相同、开销更小的解析器</p>
+     * <p>合并连续的map，把嵌套的and、seq和skip展开为一层并且不构造被丢弃的中间结果，合并相邻的str和ch。
+     * lazy在优化时获取目标解析器，自定义解析器保持不变</p>
+     * <p>被skip丢弃的部分优化后只进行识别，其中map的mapper不会被调用。依赖mapper抛出异常来拒绝输入的语法不应使用优化</p>
+     * @throws IllegalArgumentException 如果某个lazy的supplier返回null
+     */
+    default Parser<R> optimize() {
+        return GrammarOptimizer.optimize(this);
+    }
+
+    /**
+     * <p>当前解析器解析成功后设置提交点，表示不会再回溯到解析结束位置之前</p>
+     * <p>对于{@link Inputs#stream(java.io.Reader, int)}创建的流式输入，提交点之前的字符可以被丢弃，
+     * 例如{@code record.commit().many()}的输入缓冲区只需要保留一条记录；记忆化表中提交点之前的结果也会被丢弃</p>
+     */
+    default Parser<R> commit() {
+        return new CommitParser<>(this);
+    }
+
+    /**
+     * <p>当前解析器解析成功后设置切断点，所在的and、seq或skip连接中之后的部分解析失败时抛出
+     * {@link byx.parserc.exception.ParseCutException}，不再尝试oneOf的其他分支或结束repeat</p>
+     * <p>例如{@code skip(ch('{').cut()).and(members).skip(ch('}'))}匹配'{'之后，成员或'}'不匹配时直接报错。
+     * 切断点的作用范围是所在的连接，连接外的oneOf、repeat、opt和lazy不受影响，预读中的切断点之后的失败当作普通的失败</p>
+     * <p>切断点之外仍可能回溯到切断点之前，因此切断点不是提交点。确定不会再回溯时可以再设置提交点，
+     * 例如{@code ch('{').cut().commit()}</p>
+     */
+    default Parser<R> cut() {
+        return new CutParser<>(this);
     }
 
     /**
@@ -204,25 +340,17 @@ public interface Parser<R> {
      * @param mapper 解析器生成器
      */
     default <R2> Parser<Pair<R, R2>> flatMap(Function<ParseResult<R>, Parser<R2>> mapper) {
-        return (s, index) -> {
-            ParseResult<R> r1 = this.parse(s, index);
-            ParseResult<R2> r2 = mapper.apply(r1).parse(s, r1.index());
-            return new ParseResult<>(new Pair<>(r1.result(), r2.result()), r2.index());
-        };
+        return new FlatMapParser<>(this, mapper);
     }
 
     /**
-     * 当前解析器抛出ParseException时，使用exceptionMapper转换异常并重新抛出
+     * <p>当前解析器抛出ParseException时，使用exceptionMapper转换异常并重新抛出</p>
+     * <p>输入为String时exceptionMapper接收整个输入和失败位置；其他输入只传递失败位置前后有限的片段，
+     * 位置为失败位置在片段中的下标</p>
      * @param exceptionMapper 异常转换器
      */
     default Parser<R> fatal(BiFunction<String, Integer, RuntimeException> exceptionMapper) {
-        return (s, index) -> {
-            try {
-                return parse(s, index);
-            } catch (ParseInternalException e) {
-                throw exceptionMapper.apply(s, index);
-            }
-        };
+        return new FatalParser<>(this, exceptionMapper);
     }
 
     /**
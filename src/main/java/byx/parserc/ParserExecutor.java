@@ -0,0 +1,298 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>批量解析大量相互独立的输入，最多同时使用指定数量的线程，按输入顺序返回每个输入的解析结果或异常</p>
+ * <p>每个工作任务持有一个{@link ParseContext}，依次解析取到的输入，记忆化表等解析状态在输入之间复用</p>
+ * <p>由{@link Parsers}和{@link Parser}的组合子构造的语法在构造完成后不再修改（FIRST集等缓存的发布是线程安全的），
+ * 可以被多个线程同时使用；{@link IncrementalParser}和流式输入只能由一个线程使用。
+ * 默认在{@link ForkJoinPool#commonPool()}中执行，也可以通过{@link #executor(Executor)}使用其他线程池或虚拟线程执行器</p>
+ * <p>批量解析器是不可变的，每个设置方法都返回新的批量解析器</p>
+ */
+public final class ParserExecutor {
+    /**
+     * 流式批量解析时，每个线程最多领先输出多少个输入
+     */
+    private static final int WINDOW_PER_WORKER = 4;
+
+    private final Executor executor;
+    private final int concurrency;
+    private final boolean packrat;
+    private final ParsePolicy policy;
+
+    public ParserExecutor() {
+        this(null, Runtime.getRuntime().availableProcessors(), false, ParsePolicy.unlimited());
+    }
+
+    private ParserExecutor(Executor executor, int concurrency, boolean packrat, ParsePolicy policy) {
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.packrat = packrat;
+        this.policy = policy;
+    }
+
+    /**
+     * 设置执行解析任务的线程池
+     * @param executor 线程池
+     */
+    public ParserExecutor executor(Executor executor) {
+        return new ParserExecutor(executor, concurrency, packrat, policy);
+    }
+
+    /**
+     * 设置最多同时解析的输入数量，默认为处理器数量
+     * @param concurrency 并发数
+     */
+    public ParserExecutor concurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        }
+        return new ParserExecutor(executor, concurrency, packrat, policy);
+    }
+
+    /**
+     * 设置解析上下文是否开启packrat模式
+     * @param packrat 是否开启
+     */
+    public ParserExecutor packrat(boolean packrat) {
+        return new ParserExecutor(executor, concurrency, packrat, policy);
+    }
+
+    /**
+     * 设置每个输入的解析策略
+     * @param policy 解析策略
+     */
+    public ParserExecutor policy(ParsePolicy policy) {
+        return new ParserExecutor(executor, concurrency, packrat, policy);
+    }
+
+    /**
+     * <p>解析所有输入，每个输入都必须被完整解析</p>
+     * <p>解析过程中抛出的{@link RuntimeException}作为该输入的结果返回，其他异常终止整个批量解析。
+     * 等待时当前线程被中断会停止分配新的输入，并抛出{@link CancellationException}</p>
+     * @param parser 解析器
+     * @param inputs 输入
+     * @return 按输入顺序排列的解析结果
+     */
+    public <R> List<Outcome<R>> parseAll(Parser<R> parser, Collection<? extends CharSequence> inputs) {
+        CharSequence[] items = inputs.toArray(new CharSequence[0]);
+        @SuppressWarnings("unchecked")
+        Outcome<R>[] outcomes = (Outcome<R>[]) new Outcome<?>[items.length];
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(concurrency, items.length);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        Executor e = executor != null ? executor : ForkJoinPool.commonPool();
+        for (int w = 0; w < workers; w++) {
+            futures[w] = CompletableFuture.runAsync(() -> work(parser, items, outcomes, next), e);
+        }
+        try {
+            CompletableFuture.allOf(futures).get();
+        } catch (InterruptedException ex) {
+            next.set(items.length);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("batch parse interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+        return new ArrayList<>(Arrays.asList(outcomes));
+    }
+
+    /**
+     * <p>解析流中的所有输入，每个输入都必须被完整解析，适合输入数量很大、无法全部放在内存中的情况</p>
+     * <p>开始读取返回的流时才开始解析，输入按需从inputs中读取，已读取但还没有输出的输入最多为并发数的{@value #WINDOW_PER_WORKER}倍，
+     * 输出的顺序与输入顺序相同。输出跟不上时工作任务会结束并释放线程，继续读取时重新开始</p>
+     * <p>解析过程中抛出的{@link RuntimeException}作为该输入的结果返回；读取inputs时抛出的异常和其他异常在读取结果时抛出。
+     * 等待时当前线程被中断会停止读取新的输入，并抛出{@link CancellationException}。关闭返回的流会停止读取并关闭inputs</p>
+     * @param parser 解析器
+     * @param inputs 输入
+     * @return 按输入顺序排列的解析结果
+     */
+    public <R> Stream<Outcome<R>> parseAll(Parser<R> parser, Stream<? extends CharSequence> inputs) {
+        Batch<R> batch = new Batch<>(parser, inputs.iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batch, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(batch::close)
+            .onClose(inputs::close);
+    }
+
+    private <R> void work(Parser<R> parser, CharSequence[] items, Outcome<R>[] outcomes, AtomicInteger next) {
+        ParseContext ctx = new ParseContext().packrat(packrat).policy(policy);
+        for (int i = next.getAndIncrement(); i < items.length; i = next.getAndIncrement()) {
+            outcomes[i] = parseOne(parser, items[i], ctx);
+        }
+    }
+
+    private <R> Outcome<R> parseOne(Parser<R> parser, CharSequence input, ParseContext ctx) {
+        try {
+            return new Outcome<>(parser.parse(input, ctx), null);
+        } catch (RuntimeException ex) {
+            return new Outcome<>(null, ex);
+        }
+    }
+
+    /**
+     * <p>流式批量解析的状态，工作任务从source中依次领取输入，按领取顺序把结果写入环形缓冲区，读取方按顺序取出</p>
+     * <p>所有字段由当前对象的锁保护，source只在持有锁时读取</p>
+     */
+    private final class Batch<R> implements Iterator<Outcome<R>> {
+        private final Parser<R> parser;
+        private final Iterator<? extends CharSequence> source;
+        private final Outcome<R>[] window;
+        /**
+         * 已领取的输入个数和已输出的结果个数
+         */
+        private long taken;
+        private long emitted;
+        private int active;
+        private boolean exhausted;
+        private boolean closed;
+        private Throwable failure;
+
+        @SuppressWarnings("unchecked")
+        Batch(Parser<R> parser, Iterator<? extends CharSequence> source) {
+            this.parser = parser;
+            this.source = source;
+            this.window = (Outcome<R>[]) new Outcome<?>[concurrency * WINDOW_PER_WORKER];
+        }
+
+        @Override
+        public synchronized boolean hasNext() {
+            while (true) {
+                if (failure instanceof RuntimeException ex) {
+                    throw ex;
+                } else if (failure instanceof Error err) {
+                    throw err;
+                } else if (failure != null) {
+                    throw new IllegalStateException(failure);
+                }
+                if (window[slot(emitted)] != null) {
+                    return true;
+                }
+                if (closed || exhausted && emitted == taken) {
+                    return false;
+                }
+                spawn();
+                if (window[slot(emitted)] != null || failure != null || exhausted && emitted == taken) {
+                    // 在调用方线程中执行的线程池会在spawn中直接完成解析
+                    continue;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("batch parse interrupted");
+                }
+            }
+        }
+
+        @Override
+        public synchronized Outcome<R> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int i = slot(emitted++);
+            Outcome<R> o = window[i];
+            window[i] = null;
+            spawn();
+            return o;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        private int slot(long seq) {
+            return (int) (seq % window.length);
+        }
+
+        /**
+         * 缓冲区有空位时补足工作任务
+         */
+        private void spawn() {
+            Executor e = executor != null ? executor : ForkJoinPool.commonPool();
+            while (active < concurrency && !exhausted && !closed && failure == null && taken - emitted < window.length) {
+                active++;
+                e.execute(this::work);
+            }
+        }
+
+        private void work() {
+            ParseContext ctx = new ParseContext().packrat(packrat).policy(policy);
+            try {
+                while (true) {
+                    CharSequence input;
+                    long seq;
+                    synchronized (this) {
+                        if (closed || exhausted || failure != null || taken - emitted >= window.length) {
+                            active--;
+                            return;
+                        }
+                        if (!source.hasNext()) {
+                            exhausted = true;
+                            active--;
+                            notifyAll();
+                            return;
+                        }
+                        input = source.next();
+                        seq = taken++;
+                    }
+                    Outcome<R> o = parseOne(parser, input, ctx);
+                    synchronized (this) {
+                        window[slot(seq)] = o;
+                        notifyAll();
+                    }
+                }
+            } catch (Throwable ex) {
+                synchronized (this) {
+                    failure = ex;
+                    active--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个输入的解析结果
+     * @param value 解析成功时的结果
+     * @param error 解析失败时抛出的异常，成功时为null
+     */
+    public record Outcome<R>(R value, RuntimeException error) {
+        /**
+         * 是否解析成功
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * 获取解析结果，解析失败时重新抛出异常
+         */
+        public R get() {
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        }
+    }
+}
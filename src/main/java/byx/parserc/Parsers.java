@@ -1,14 +1,17 @@
 package byx.parserc;
 
-import byx.parserc.exception.ParseInternalException;
+import byx.parserc.Functions.Function3;
+import byx.parserc.Functions.Function4;
+import byx.parserc.Functions.Function5;
+import byx.parserc.Functions.Function6;
+import byx.parserc.Functions.Function7;
+import byx.parserc.Functions.Function8;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 /**
  * 常用解析器的静态工厂
@@ -18,21 +21,34 @@ public class Parsers {
      * 解析指定字符
      * @param predicate 条件
      */
-    public static Parser<Character> ch(Predicate<Character> predicate) {
-        return (s, index) -> {
-            if (index < s.length() && predicate.test(s.charAt(index))) {
-                return new ParseResult<>(s.charAt(index), index + 1);
-            }
-            throw ParseInternalException.INSTANCE;
-        };
+    public static CharParser ch(Predicate<Character> predicate) {
+        return new CharParser(c -> predicate.test((char) c));
+    }
+
+    /**
+     * <p>如果当前位置的字符满足predicate，则解析成功，并返回当前位置的字符作为解析结果</p>
+     * <p>与{@link #ch(Predicate)}不同，predicate接收基本类型的字符，匹配过程不装箱</p>
+     * @param predicate 条件
+     */
+    public static CharParser satisfy(IntPredicate predicate) {
+        return new CharParser(predicate);
+    }
+
+    /**
+     * <p>如果当前位置的字符属于字符集charClass，则解析成功，并返回当前位置的字符作为解析结果</p>
+     * <p>如果当前位置的字符不属于charClass或到达输入末尾，则抛出ParseException</p>
+     * @param charClass 字符集
+     */
+    public static CharParser ch(CharClass charClass) {
+        return new CharParser(charClass);
     }
 
     /**
      * <p>匹配当前位置的任何字符，并将当前位置的字符作为解析结果返回</p>
      * <p>如果到达输入末尾，则抛出ParseException</p>
      */
-    public static Parser<Character> any() {
-        return ch(c -> true);
+    public static CharParser any() {
+        return ch(CharClass.all());
     }
 
     /**
@@ -40,8 +56,8 @@ public class Parsers {
      * <p>如果当前位置的字符不等于c或到达输入末尾，则抛出ParseException</p>
      * @param c c
      */
-    public static Parser<Character> ch(char c) {
-        return ch(ch -> c == ch);
+    public static CharParser ch(char c) {
+        return ch(CharClass.of(c));
     }
 
     /**
@@ -50,8 +66,8 @@ public class Parsers {
      * @param c1 c1
      * @param c2 c2
      */
-    public static Parser<Character> range(char c1, char c2) {
-        return ch(c -> (c - c1) * (c - c2) <= 0);
+    public static CharParser range(char c1, char c2) {
+        return ch(CharClass.range(c1, c2));
     }
 
     /**
@@ -59,9 +75,8 @@ public class Parsers {
      * <p>如果当前位置的字符不在字符集chs内或到达输入末尾，则抛出ParseException</p>
      * @param chs 字符集
      */
-    public static Parser<Character> chs(Character... chs) {
-        Set<Character> set = Arrays.stream(chs).collect(Collectors.toSet());
-        return ch(set::contains);
+    public static CharParser chs(Character... chs) {
+        return ch(toCharClass(chs));
     }
 
     /**
@@ -69,9 +84,16 @@ public class Parsers {
      * <p>如果当前位置的字符在字符集chs内或到达输入末尾，则抛出ParseException</p>
      * @param chs 字符集
      */
-    public static Parser<Character> not(Character... chs) {
-        Set<Character> set = Arrays.stream(chs).collect(Collectors.toSet());
-        return ch(c -> !set.contains(c));
+    public static CharParser not(Character... chs) {
+        return ch(toCharClass(chs).negate());
+    }
+
+    private static CharClass toCharClass(Character... chs) {
+        char[] arr = new char[chs.length];
+        for (int i = 0; i < chs.length; i++) {
+            arr[i] = chs[i];
+        }
+        return CharClass.of(arr);
     }
 
     /**
@@ -80,29 +102,90 @@ public class Parsers {
      * @param str 字符串
      */
     public static Parser<String> str(String str) {
-        return (s, index) -> {
-            if (s.startsWith(str, index)) {
-                return new ParseResult<>(str, index + str.length());
-            } else {
-                throw ParseInternalException.INSTANCE;
-            }
-        };
+        return new StrParser(str);
     }
 
     /**
      * <p>如果当前位置匹配ss中的任何字符串前缀，则解析成功，并返回该字符串作为解析结果</p>
      * <p>如果不匹配ss中的任何字符串或在匹配过程中遇到输入结尾，则抛出ParseException</p>
+     * <p>多个字符串同时匹配时返回ss中最靠前的一个，可通过{@link StrsParser#longest()}切换为最长匹配</p>
      * @param ss 字符串集合
      */
-    public static Parser<String> strs(String... ss) {
-        return (s, index) -> {
-            for (String s1 : ss) {
-                try {
-                    return str(s1).parse(s, index);
-                } catch (ParseInternalException ignored) {}
+    public static StrsParser strs(String... ss) {
+        return new StrsParser(ss);
+    }
+
+    /**
+     * <p>连续匹配零个或多个属于字符集charClass的字符，并返回匹配的字符串</p>
+     * <p>该解析器总是成功</p>
+     * @param charClass 字符集
+     */
+    public static Parser<String> takeWhile(CharClass charClass) {
+        return new TakeWhileParser(charClass, 0);
+    }
+
+    /**
+     * <p>连续匹配一个或多个属于字符集charClass的字符，并返回匹配的字符串</p>
+     * <p>如果当前位置的字符不属于charClass或到达输入末尾，则抛出ParseException</p>
+     * @param charClass 字符集
+     */
+    public static Parser<String> takeWhile1(CharClass charClass) {
+        return new TakeWhileParser(charClass, 1);
+    }
+
+    /**
+     * <p>在{@link Inputs#tokens}创建的记号输入上，如果当前记号的类型编号为kind，则解析成功，并返回该记号</p>
+     * <p>如果类型不匹配或到达输入末尾，则抛出ParseException</p>
+     * @param kind 类型编号
+     */
+    public static <T> TokenParser<T> token(int kind) {
+        return tokens(kind);
+    }
+
+    /**
+     * 匹配类型为枚举kind的记号，类型编号为枚举的序号
+     * @param kind 记号类型
+     */
+    public static <T> TokenParser<T> token(Enum<?> kind) {
+        return tokens(kind.ordinal());
+    }
+
+    /**
+     * 如果当前记号的类型编号属于kinds，则解析成功，并返回该记号
+     * @param kinds 类型编号
+     */
+    public static <T> TokenParser<T> tokens(int... kinds) {
+        char[] chars = new char[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] < 0 || kinds[i] > Character.MAX_VALUE) {
+                throw new IllegalArgumentException("token kind out of range: " + kinds[i]);
             }
-            throw ParseInternalException.INSTANCE;
-        };
+            chars[i] = (char) kinds[i];
+        }
+        return new TokenParser<>(CharClass.of(chars));
+    }
+
+    /**
+     * 如果当前记号的类型属于枚举kinds，则解析成功，并返回该记号
+     * @param kinds 记号类型
+     */
+    public static <T> TokenParser<T> tokens(Enum<?>... kinds) {
+        int[] ordinals = new int[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            ordinals[i] = kinds[i].ordinal();
+        }
+        return tokens(ordinals);
+    }
+
+    /**
+     * <p>把只由ch、range、chs、not、str、strs、takeWhile、and、seq、skip、oneOf、repeat、many、opt和map
+     * 构成的正则子语法编译为DFA，返回最长匹配的字符串</p>
+     * <p>匹配只扫描一遍输入且不回溯，语义为正则语言的最长匹配，而不是oneOf的有序选择和many的贪婪匹配，详见{@link LexemeParser}</p>
+     * <p>如果parser包含其他组合子、自定义解析器或递归规则，则抛出IllegalArgumentException</p>
+     * @param parser 正则子语法
+     */
+    public static LexemeParser lexeme(Parser<?> parser) {
+        return new LexemeParser(parser);
     }
 
     /**
@@ -111,42 +194,164 @@ public class Parsers {
      * @param parsers 解析器数组
      */
     public static Parser<List<Object>> seq(Parser<?>... parsers) {
-        return (s, index) -> {
-            List<Object> result = new ArrayList<>();
-            for (Parser<?> p : parsers) {
-                ParseResult<?> r = p.parse(s, index);
-                result.add(r.result());
-                index = r.index();
-            }
-            return new ParseResult<>(result, index);
-        };
+        return new SeqParser(parsers);
+    }
+
+    /**
+     * <p>连续应用2个解析器，并把所有解析结果传给combiner，返回combiner的结果</p>
+     * <p>不构造Pair或List等中间结果，如果任意一个解析器解析失败，则解析失败</p>
+     * <p>与{@link #seq(Parser[])}区分命名：{@link Parser}本身是函数式接口，同名重载会让lambda形式的解析器被当作combiner</p>
+     */
+    public static <A, B, R> Parser<R> seqMap(Parser<A> p1, Parser<B> p2,
+            BiFunction<? super A, ? super B, ? extends R> combiner) {
+        return new TypedSeqParser<>(new Parser<?>[]{p1, p2}, combiner);
+    }
+
+    /**
+     * 连续应用3个解析器，并把所有解析结果传给combiner，见{@link #seqMap(Parser, Parser, BiFunction)}
+     */
+    public static <A, B, C, R> Parser<R> seqMap(Parser<A> p1, Parser<B> p2, Parser<C> p3,
+            Function3<? super A, ? super B, ? super C, ? extends R> combiner) {
+        return new TypedSeqParser<>(new Parser<?>[]{p1, p2, p3}, combiner);
+    }
+
+    /**
+     * 连续应用4个解析器，并把所有解析结果传给combiner，见{@link #seqMap(Parser, Parser, BiFunction)}
+     */
+    public static <A, B, C, D, R> Parser<R> seqMap(Parser<A> p1, Parser<B> p2, Parser<C> p3, Parser<D> p4,
+            Function4<? super A, ? super B, ? super C, ? super D, ? extends R> combiner) {
+        return new TypedSeqParser<>(new Parser<?>[]{p1, p2, p3, p4}, combiner);
+    }
+
+    /**
+     * 连续应用5个解析器，并把所有解析结果传给combiner，见{@link #seqMap(Parser, Parser, BiFunction)}
+     */
+    public static <A, B, C, D, E, R> Parser<R> seqMap(Parser<A> p1, Parser<B> p2, Parser<C> p3, Parser<D> p4, Parser<E> p5,
+            Function5<? super A, ? super B, ? super C, ? super D, ? super E, ? extends R> combiner) {
+        return new TypedSeqParser<>(new Parser<?>[]{p1, p2, p3, p4, p5}, combiner);
+    }
+
+    /**
+     * 连续应用6个解析器，并把所有解析结果传给combiner，见{@link #seqMap(Parser, Parser, BiFunction)}
+     */
+    public static <A, B, C, D, E, F, R> Parser<R> seqMap(Parser<A> p1, Parser<B> p2, Parser<C> p3, Parser<D> p4, Parser<E> p5, Parser<F> p6,
+            Function6<? super A, ? super B, ? super C, ? super D, ? super E, ? super F, ? extends R> combiner) {
+        return new TypedSeqParser<>(new Parser<?>[]{p1, p2, p3, p4, p5, p6}, combiner);
+    }
+
+    /**
+     * 连续应用7个解析器，并把所有解析结果传给combiner，见{@link #seqMap(Parser, Parser, BiFunction)}
+     */
+    public static <A, B, C, D, E, F, G, R> Parser<R> seqMap(Parser<A> p1, Parser<B> p2, Parser<C> p3, Parser<D> p4, Parser<E> p5, Parser<F> p6, Parser<G> p7,
+            Function7<? super A, ? super B, ? super C, ? super D, ? super E, ? super F, ? super G, ? extends R> combiner) {
+        return new TypedSeqParser<>(new Parser<?>[]{p1, p2, p3, p4, p5, p6, p7}, combiner);
+    }
+
+    /**
+     * 连续应用8个解析器，并把所有解析结果传给combiner，见{@link #seqMap(Parser, Parser, BiFunction)}
+     */
+    public static <A, B, C, D, E, F, G, H, R> Parser<R> seqMap(Parser<A> p1, Parser<B> p2, Parser<C> p3, Parser<D> p4, Parser<E> p5, Parser<F> p6, Parser<G> p7, Parser<H> p8,
+            Function8<? super A, ? super B, ? super C, ? super D, ? super E, ? super F, ? super G, ? super H, ? extends R> combiner) {
+        return new TypedSeqParser<>(new Parser<?>[]{p1, p2, p3, p4, p5, p6, p7, p8}, combiner);
+    }
+
+    /**
+     * <p>解析零个或多个由分隔符separator分隔的element，结果与{@code element (separator element)*}相同</p>
+     * <p>所有元素直接追加到同一个列表中，可通过{@link SepByParser#sizeHint(int)}预设容量，
+     * 通过{@link SepByParser#immutable()}返回不可修改的紧凑列表</p>
+     * @param element 元素解析器
+     * @param separator 分隔符，只进行识别
+     */
+    public static <R> SepByParser<R> sepBy(Parser<R> element, Parser<?> separator) {
+        return new SepByParser<>(element, separator, 0, false);
+    }
+
+    /**
+     * 解析一个或多个由分隔符separator分隔的element，见{@link #sepBy(Parser, Parser)}
+     * @param element 元素解析器
+     * @param separator 分隔符，只进行识别
+     */
+    public static <R> SepByParser<R> sepBy1(Parser<R> element, Parser<?> separator) {
+        return new SepByParser<>(element, separator, 1, false);
+    }
+
+    /**
+     * <p>解析零个或多个由分隔符separator分隔的element，最后一个元素之后可以有一个分隔符</p>
+     * <p>例如{@code sepEndBy(number, ch(','))}可以解析"1,2,3"和"1,2,3,"</p>
+     * @param element 元素解析器
+     * @param separator 分隔符，只进行识别
+     */
+    public static <R> SepByParser<R> sepEndBy(Parser<R> element, Parser<?> separator) {
+        return new SepByParser<>(element, separator, 0, true);
+    }
+
+    /**
+     * 依次应用open、parser和close，并返回parser的解析结果，与{@code parser.surround(open, close)}相同
+     * @param open 左边界，只进行识别
+     * @param close 右边界，只进行识别
+     * @param parser 解析器
+     */
+    public static <R> Parser<R> between(Parser<?> open, Parser<?> close, Parser<R> parser) {
+        return parser.surround(open, close);
+    }
+
+    /**
+     * <p>解析零个或多个由分隔符separator分隔的element，结果与{@code element (separator element)*}相同</p>
+     * <p>顺序解析的范围超过阈值后扫描出剩余部分顶层分隔符的位置，再使用{@link java.util.concurrent.ForkJoinPool}并行解析各个元素，
+     * 适用于元素之间相互独立的大型输入，例如{@code skip(ch('[')).and(sepByParallel(value, ',')).skip(ch(']'))}，详见{@link ParallelSepByParser}</p>
+     * @param element 元素解析器，需要自行处理元素前后的空白
+     * @param separator 分隔符
+     */
+    public static <R> ParallelSepByParser<R> sepByParallel(Parser<R> element, char separator) {
+        return new ParallelSepByParser<>(element, separator);
     }
 
     /**
      * <p>依次尝试应用parsers中的解析器，如果成功则返回其解析结果</p>
      * <p>如果所有解析器都解析失败，则解析失败</p>
+     * <p>如果解析器的FIRST集已知，则只尝试可能成功的解析器</p>
      * @param parsers 解析器数组
      */
     @SafeVarargs
     @SuppressWarnings("unchecked")
     public static <R> Parser<R> oneOf(Parser<? extends R>... parsers) {
-        return (s, index) -> {
-            for (Parser<? extends R> p : parsers) {
-                try {
-                    return (ParseResult<R>) p.parse(s, index);
-                } catch (ParseInternalException ignored) {}
+        // 逐个复制分支，避免可变参数数组逃逸
+        Parser<? extends R>[] branches = (Parser<? extends R>[]) new Parser<?>[parsers.length];
+        CharClass charClass = CharClass.none();
+        boolean allChars = parsers.length > 0;
+        for (int i = 0; i < parsers.length; i++) {
+            branches[i] = parsers[i];
+            if (allChars && parsers[i] instanceof CharParser c && c.charClass() != null) {
+                charClass = charClass.union(c.charClass());
+            } else {
+                allChars = false;
             }
-            throw ParseInternalException.INSTANCE;
-        };
+        }
+        if (allChars) {
+            return (Parser<R>) ch(charClass);
+        }
+        return new OneOfParser<>(branches);
     }
 
     /**
      * <p>延迟解析器，解析动作发生时才调用parserSupplier获取解析器并调用其解析方法</p>
      * <p>该方法一般被用于解决解析器之间循环引用的问题</p>
+     * <p>在packrat模式下，延迟解析器的解析结果会被记忆化</p>
      * @param parserSupplier 解析器生成器
      */
     public static <R> Parser<R> lazy(Supplier<Parser<R>> parserSupplier) {
-        return (s, index) -> parserSupplier.get().parse(s, index);
+        return new MemoParser<>(new LazyParser<>(parserSupplier), true);
+    }
+
+    /**
+     * <p>与{@link #lazy(Supplier)}相同，但允许规则直接左递归，例如{@code expr = expr '+' term | term}</p>
+     * <p>规则的解析结果总是被记忆化，在同一位置反复解析直到结果不再变长；
+     * 非左递归的分支在每一轮都会重新执行，开销较大时可以使用{@link Parser#memo()}</p>
+     * <p>只支持规则直接引用自身，不支持经过其他规则的间接左递归</p>
+     * @param parserSupplier 解析器生成器
+     */
+    public static <R> Parser<R> leftRec(Supplier<Parser<R>> parserSupplier) {
+        return new MemoParser<>(new LazyParser<>(parserSupplier), false, true);
     }
 
     public static class SkipWrapper<R> {
@@ -157,7 +362,7 @@ public class Parsers {
         }
 
         public <R2> Parser<R2> and(Parser<R2> rhs) {
-            return lhs.and(rhs).map(Pair::second);
+            return lhs.and(rhs).map(PickParser.second());
         }
     }
 
@@ -174,10 +379,7 @@ public class Parsers {
      * @param predicate predicate
      */
     public static <R> Parser<R> expect(Parser<?> predicate) {
-        return (s, index) -> {
-            predicate.parse(s, index);
-            return new ParseResult<>(null, index);
-        };
+        return new LookaheadParser<>(predicate, false);
     }
 
     /**
@@ -185,13 +387,6 @@ public class Parsers {
      * @param predicate predicate
      */
     public static <R> Parser<R> not(Parser<?> predicate) {
-        return (s, index) -> {
-            try {
-                predicate.parse(s, index);
-            } catch (ParseInternalException e) {
-                return new ParseResult<>(null, index);
-            }
-            throw ParseInternalException.INSTANCE;
-        };
+        return new LookaheadParser<>(predicate, true);
     }
 }
@@ -0,0 +1,138 @@
+package byx.parserc;
+
+import java.util.function.Function;
+
+/**
+ * <p>连续应用多个解析器，只保留其中一个解析器的解析结果</p>
+ * <p>结果被丢弃的解析器只进行识别，不构造解析结果。只由{@link Parser#optimize()}从skip改写得到</p>
+ */
+public class PickParser<R> implements TryParser<R>, CompositeParser {
+    private static final Function<Pair<?, ?>, ?> FIRST = Pair::first;
+    private static final Function<Pair<?, ?>, ?> SECOND = Pair::second;
+
+    private final Parser<?>[] parsers;
+    private final int keep;
+    private final int cut;
+
+    PickParser(Parser<?>[] parsers, int keep) {
+        this.parsers = parsers.clone();
+        this.keep = keep;
+        this.cut = CutParser.firstCut(this.parsers);
+    }
+
+    /**
+     * skip使用的映射，保留and的第一个结果
+     */
+    @SuppressWarnings("unchecked")
+    static <A, B> Function<Pair<A, B>, A> first() {
+        return (Function<Pair<A, B>, A>) (Function<?, ?>) FIRST;
+    }
+
+    /**
+     * skip使用的映射，保留and的第二个结果
+     */
+    @SuppressWarnings("unchecked")
+    static <A, B> Function<Pair<A, B>, B> second() {
+        return (Function<Pair<A, B>, B>) (Function<?, ?>) SECOND;
+    }
+
+    /**
+     * 把skip构造的and和map识别为PickParser，不是时返回null
+     */
+    static PickParser<?> of(Parser<?> node) {
+        if (node instanceof MapParser<?, ?> m && m.parser() instanceof AndParser<?, ?> p) {
+            if (m.mapper() == FIRST) {
+                return new PickParser<>(new Parser<?>[]{p.lhs(), p.rhs()}, 0);
+            }
+            if (m.mapper() == SECOND) {
+                return new PickParser<>(new Parser<?>[]{p.lhs(), p.rhs()}, 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取依次应用的解析器
+     */
+    public Parser<?>[] parsers() {
+        return parsers.clone();
+    }
+
+    /**
+     * 获取保留结果的解析器的下标
+     */
+    public int keep() {
+        return keep;
+    }
+
+    /**
+     * 第一个包含切断点的解析器的下标，之后的解析器失败时抛出异常；没有切断点时为解析器数量
+     */
+    int cutIndex() {
+        return cut;
+    }
+
+    @Override
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new PickParser<>(rewriter.visit(parsers()), keep);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        R result = null;
+        for (int i = 0; i < parsers.length; i++) {
+            if (i == keep) {
+                ParseResult<R> r = (ParseResult<R>) parsers[i].tryParse(s, index);
+                if (r.isFailure()) {
+                    if (i > cut) {
+                        throw CutParser.failure(index);
+                    }
+                    return ParseResult.failure();
+                }
+                if (i == parsers.length - 1) {
+                    return r;
+                }
+                result = r.result();
+                index = r.index();
+            } else {
+                int next = parsers[i].match(s, index);
+                if (next < 0) {
+                    if (i > cut) {
+                        throw CutParser.failure(index);
+                    }
+                    return ParseResult.failure();
+                }
+                index = next;
+            }
+        }
+        return new ParseResult<>(result, index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = FirstSet.empty();
+        for (Parser<?> p : parsers) {
+            if (first == null || !first.nullable()) {
+                break;
+            }
+            first = FirstSet.concat(first, p.firstSet());
+        }
+        return first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        for (int i = 0; i < parsers.length; i++) {
+            int next = parsers[i].match(s, index);
+            if (next < 0) {
+                if (i > cut) {
+                    throw CutParser.failure(index);
+                }
+                return -1;
+            }
+            index = next;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,74 @@
+package byx.parserc;
+
+/**
+ * 由{@link Profiler}统计的命名规则
+ */
+public class ProfiledParser<R> implements TryParser<R>, CompositeParser {
+    private final Parser<R> parser;
+    private final String name;
+    private final Profiler profiler;
+
+    ProfiledParser(Parser<R> parser, String name, Profiler profiler) {
+        this.parser = parser;
+        this.name = name;
+        this.profiler = profiler;
+    }
+
+    /**
+     * 获取被统计的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取规则名
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 获取分析器
+     */
+    public Profiler profiler() {
+        return profiler;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new ProfiledParser<>((Parser<R>) rewriter.visit(parser), name, profiler);
+    }
+
+    @Override
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        profiler.enter(name, s, index);
+        boolean success = false;
+        try {
+            ParseResult<R> r = parser.tryParse(s, index);
+            success = !r.isFailure();
+            return r;
+        } finally {
+            profiler.exit(success);
+        }
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        profiler.enter(name, s, index);
+        boolean success = false;
+        try {
+            int end = parser.match(s, index);
+            success = end >= 0;
+            return end;
+        } finally {
+            profiler.exit(success);
+        }
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return parser.firstSet();
+    }
+}
@@ -0,0 +1,297 @@
+package byx.parserc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * <p>语法性能分析器，统计{@link Parser#named(String)}命名的规则的调用次数、成功和失败（回溯）次数、
+ * 在同一位置的重复调用次数、累计和自身耗时以及内存分配量</p>
+ * <p>是否分析在构造语法时决定：在{@link #build(Supplier)}中构造的语法，或者设置了系统属性
+ * {@code byx.parserc.profile=true}时构造的语法（使用{@link #global()}）会被分析；
+ * 否则{@link Parser#named(String)}直接返回原解析器，没有任何额外开销</p>
+ * <p>自身耗时和自身分配量不包括嵌套的命名规则，递归规则的累计值只在最外层调用结束时计入</p>
+ * <p>分析器只通过弱引用记录每个规则最近解析的输入，不会阻止输入被回收；已结束的线程的统计结果在新线程开始统计或生成报告时合并，
+ * 不再保留这些线程的状态</p>
+ */
+public final class Profiler {
+    private static final Profiler GLOBAL = Boolean.getBoolean("byx.parserc.profile") ? new Profiler() : null;
+    private static final ThreadLocal<Profiler> BUILDING = new ThreadLocal<>();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final Queue<ThreadState> threadStates = new ConcurrentLinkedQueue<>();
+    private final Map<String, RuleStats> retired = new HashMap<>();
+    private final ThreadLocal<ThreadState> state = ThreadLocal.withInitial(() -> {
+        prune();
+        ThreadState s = new ThreadState();
+        threadStates.add(s);
+        return s;
+    });
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    /**
+     * 获取通过系统属性{@code byx.parserc.profile=true}启用的全局分析器，未启用时返回null
+     */
+    public static Profiler global() {
+        return GLOBAL;
+    }
+
+    /**
+     * 获取当前构造的语法使用的分析器，不分析时返回null
+     */
+    static Profiler current() {
+        Profiler p = BUILDING.get();
+        return p != null ? p : GLOBAL;
+    }
+
+    /**
+     * 在当前线程中构造语法，其中通过{@link Parser#named(String)}命名的规则由当前分析器统计
+     * @param grammar 构造语法的函数
+     * @return grammar的返回值
+     */
+    public <T> T build(Supplier<T> grammar) {
+        Profiler prev = BUILDING.get();
+        BUILDING.set(this);
+        try {
+            return grammar.get();
+        } finally {
+            BUILDING.set(prev);
+        }
+    }
+
+    <R> Parser<R> wrap(Parser<R> parser, String name) {
+        return new ProfiledParser<>(parser, name, this);
+    }
+
+    /**
+     * 开始一次调用
+     */
+    void enter(String name, CharSequence s, int index) {
+        ThreadState t = state.get();
+        Counter c;
+        synchronized (t.counters) {
+            c = t.counters.computeIfAbsent(name, k -> new Counter());
+            c.calls++;
+            if (c.input == null || c.input.get() != s) {
+                // 只保留当前输入的调用位置，不持有之前的输入
+                c.input = new WeakReference<>(s);
+                c.offsets = new BitSet();
+            }
+            if (c.offsets.get(index)) {
+                c.reentries++;
+            } else {
+                c.offsets.set(index);
+            }
+            c.active++;
+        }
+        t.push(c, System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * 结束一次调用
+     * @param success 是否成功
+     */
+    void exit(boolean success) {
+        long now = System.nanoTime();
+        long allocated = allocatedBytes();
+        ThreadState t = state.get();
+        int d = --t.depth;
+        Counter c = t.stack[d];
+        long time = now - t.startTimes[d];
+        long bytes = allocated - t.startBytes[d];
+        synchronized (t.counters) {
+            if (success) {
+                c.successes++;
+            } else {
+                c.failures++;
+            }
+            c.selfNanos += time - t.childTimes[d];
+            c.selfBytes += bytes - t.childBytes[d];
+            if (--c.active == 0) {
+                c.totalNanos += time;
+                c.totalBytes += bytes;
+            }
+        }
+        if (d > 0) {
+            t.childTimes[d - 1] += time;
+            t.childBytes[d - 1] += bytes;
+        }
+        t.stack[d] = null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * 把已结束的线程的统计结果合并到retired中，不再保留这些线程的状态。已结束的线程不会再修改统计结果，不需要加锁读取
+     */
+    private void prune() {
+        for (ThreadState t : threadStates) {
+            if (!t.thread.isAlive()) {
+                synchronized (retired) {
+                    if (threadStates.remove(t)) {
+                        addTo(retired, t.counters);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addTo(Map<String, RuleStats> merged, Map<String, Counter> counters) {
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            Counter c = e.getValue();
+            RuleStats s = new RuleStats(e.getKey(), c.calls, c.successes, c.failures, c.reentries,
+                c.totalNanos, c.selfNanos, c.totalBytes, c.selfBytes);
+            merged.merge(e.getKey(), s, RuleStats::plus);
+        }
+    }
+
+    /**
+     * 获取所有线程合并后的统计结果，按自身耗时从大到小排序
+     */
+    public List<RuleStats> stats() {
+        prune();
+        Map<String, RuleStats> merged = new LinkedHashMap<>();
+        synchronized (retired) {
+            merged.putAll(retired);
+            for (ThreadState t : threadStates) {
+                synchronized (t.counters) {
+                    addTo(merged, t.counters);
+                }
+            }
+        }
+        List<RuleStats> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparingLong(RuleStats::selfNanos).reversed());
+        return result;
+    }
+
+    /**
+     * 清空统计结果，应在没有正在进行的解析时调用
+     */
+    public void reset() {
+        prune();
+        synchronized (retired) {
+            retired.clear();
+        }
+        for (ThreadState t : threadStates) {
+            synchronized (t.counters) {
+                t.counters.clear();
+            }
+        }
+    }
+
+    /**
+     * 生成按自身耗时排序的文本报告
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %10s %10s %10s %10s %12s %12s %14s %14s%n",
+            "rule", "calls", "success", "fail", "reenter", "total(ms)", "self(ms)", "total(bytes)", "self(bytes)"));
+        for (RuleStats s : stats()) {
+            sb.append(String.format("%-24s %10d %10d %10d %10d %12.3f %12.3f %14d %14d%n",
+                s.name(), s.calls(), s.successes(), s.failures(), s.reentries(),
+                s.totalNanos() / 1e6, s.selfNanos() / 1e6, s.allocatedBytes(), s.selfAllocatedBytes()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 以CSV格式导出统计结果，第一行为表头，时间单位为纳秒
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder("rule,calls,successes,failures,reentries,totalNanos,selfNanos,allocatedBytes,selfAllocatedBytes\n");
+        for (RuleStats s : stats()) {
+            sb.append('"').append(s.name().replace("\"", "\"\"")).append('"')
+                .append(',').append(s.calls()).append(',').append(s.successes()).append(',').append(s.failures())
+                .append(',').append(s.reentries()).append(',').append(s.totalNanos()).append(',').append(s.selfNanos())
+                .append(',').append(s.allocatedBytes()).append(',').append(s.selfAllocatedBytes()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 一个规则的统计结果
+     * @param name 规则名
+     * @param calls 调用次数
+     * @param successes 成功次数
+     * @param failures 失败次数，包括抛出异常
+     * @param reentries 在同一输入的同一位置再次调用的次数，记忆化可以消除这部分调用
+     * @param totalNanos 累计耗时
+     * @param selfNanos 不包括嵌套命名规则的耗时
+     * @param allocatedBytes 累计分配的字节数，JVM不支持时为0
+     * @param selfAllocatedBytes 不包括嵌套命名规则的分配字节数
+     */
+    public record RuleStats(String name, long calls, long successes, long failures, long reentries,
+                            long totalNanos, long selfNanos, long allocatedBytes, long selfAllocatedBytes) {
+        private RuleStats plus(RuleStats o) {
+            return new RuleStats(name, calls + o.calls, successes + o.successes, failures + o.failures,
+                reentries + o.reentries, totalNanos + o.totalNanos, selfNanos + o.selfNanos,
+                allocatedBytes + o.allocatedBytes, selfAllocatedBytes + o.selfAllocatedBytes);
+        }
+    }
+
+    private static final class Counter {
+        long calls;
+        long successes;
+        long failures;
+        long reentries;
+        long totalNanos;
+        long selfNanos;
+        long totalBytes;
+        long selfBytes;
+        int active;
+        WeakReference<CharSequence> input;
+        BitSet offsets;
+    }
+
+    /**
+     * <p>每个线程的调用栈和统计结果</p>
+     * <p>统计结果只由所属线程修改，加锁是为了在生成报告时读取到一致的值</p>
+     */
+    private static final class ThreadState {
+        final Thread thread = Thread.currentThread();
+        final Map<String, Counter> counters = new HashMap<>();
+        Counter[] stack = new Counter[16];
+        long[] startTimes = new long[16];
+        long[] startBytes = new long[16];
+        long[] childTimes = new long[16];
+        long[] childBytes = new long[16];
+        int depth;
+
+        void push(Counter c, long time, long bytes) {
+            if (depth == stack.length) {
+                int n = depth * 2;
+                stack = Arrays.copyOf(stack, n);
+                startTimes = Arrays.copyOf(startTimes, n);
+                startBytes = Arrays.copyOf(startBytes, n);
+                childTimes = Arrays.copyOf(childTimes, n);
+                childBytes = Arrays.copyOf(childBytes, n);
+            }
+            stack[depth] = c;
+            startTimes[depth] = time;
+            startBytes[depth] = bytes;
+            childTimes[depth] = 0;
+            childBytes[depth] = 0;
+            depth++;
+        }
+    }
+}
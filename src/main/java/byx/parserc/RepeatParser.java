@@ -0,0 +1,113 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 连续应用解析器多次
+ */
+public class RepeatParser<R> implements TryParser<List<R>>, CompositeParser {
+    private final Parser<R> parser;
+    private final int minTimes;
+    private final int maxTimes;
+
+    /**
+     * @param parser 解析器
+     * @param minTimes 最小次数
+     * @param maxTimes 最大次数，小于0表示不限次数
+     */
+    RepeatParser(Parser<R> parser, int minTimes, int maxTimes) {
+        this.parser = parser;
+        this.minTimes = minTimes;
+        this.maxTimes = maxTimes;
+    }
+
+    /**
+     * 获取被重复的解析器
+     */
+    public Parser<R> parser() {
+        return parser;
+    }
+
+    /**
+     * 获取最少重复次数
+     */
+    public int minTimes() {
+        return minTimes;
+    }
+
+    /**
+     * 获取最多重复次数
+     */
+    public int maxTimes() {
+        return maxTimes;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new RepeatParser<>((Parser<R>) rewriter.visit(parser), minTimes, maxTimes);
+    }
+
+    @Override
+    public ParseResult<List<R>> tryParse(CharSequence s, int index) {
+        List<R> result = new ArrayList<>();
+        int times = 0;
+        ParseContext ctx = ParseContext.limited();
+
+        while (times < minTimes) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            ParseResult<R> r = parser.tryParse(s, index);
+            if (r.isFailure()) {
+                return ParseResult.failure();
+            }
+            result.add(r.result());
+            index = r.index();
+            times++;
+        }
+
+        while (times < maxTimes || maxTimes < 0) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            ParseResult<R> r = parser.tryParse(s, index);
+            if (r.isFailure()) {
+                break;
+            }
+            result.add(r.result());
+            index = r.index();
+            times++;
+        }
+
+        return new ParseResult<>(result, index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = parser.firstSet();
+        if (first == null) {
+            return null;
+        }
+        return minTimes <= 0 ? first.asNullable() : first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int times = 0;
+        ParseContext ctx = ParseContext.limited();
+        while (times < minTimes || times < maxTimes || maxTimes < 0) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            int i = parser.match(s, index);
+            if (i < 0) {
+                break;
+            }
+            index = i;
+            times++;
+        }
+        return times < minTimes ? -1 : index;
+    }
+}
@@ -0,0 +1,189 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>解析由分隔符分隔的元素列表，结果与{@code element (separator element)*}相同</p>
+ * <p>所有元素直接追加到同一个列表中，不构造Pair或临时列表。分隔符只进行识别，
+ * 分隔符之后的元素解析失败时回退到分隔符之前</p>
+ * <p>可通过{@link #sizeHint(int)}预设列表容量，通过{@link #immutable()}返回不可修改的紧凑列表</p>
+ */
+public class SepByParser<R> implements TryParser<List<R>>, CompositeParser {
+    private final Parser<R> element;
+    private final Parser<?> separator;
+    private final int minTimes;
+    private final boolean trailing;
+    private final int sizeHint;
+    private final boolean immutable;
+
+    /**
+     * @param element 元素解析器
+     * @param separator 分隔符解析器
+     * @param minTimes 最少元素个数，为0或1
+     * @param trailing 是否允许最后一个元素之后出现分隔符
+     */
+    SepByParser(Parser<R> element, Parser<?> separator, int minTimes, boolean trailing) {
+        this(element, separator, minTimes, trailing, 0, false);
+    }
+
+    private SepByParser(Parser<R> element, Parser<?> separator, int minTimes, boolean trailing,
+                        int sizeHint, boolean immutable) {
+        this.element = element;
+        this.separator = separator;
+        this.minTimes = minTimes;
+        this.trailing = trailing;
+        this.sizeHint = sizeHint;
+        this.immutable = immutable;
+    }
+
+    /**
+     * 获取元素解析器
+     */
+    public Parser<R> element() {
+        return element;
+    }
+
+    /**
+     * 获取分隔符解析器
+     */
+    public Parser<?> separator() {
+        return separator;
+    }
+
+    /**
+     * 获取最少元素个数
+     */
+    public int minTimes() {
+        return minTimes;
+    }
+
+    /**
+     * 是否允许最后一个元素之后出现分隔符
+     */
+    public boolean trailing() {
+        return trailing;
+    }
+
+    /**
+     * 获取列表的初始容量，为0时使用{@link ArrayList}的默认容量
+     */
+    public int sizeHint() {
+        return sizeHint;
+    }
+
+    /**
+     * 是否返回不可修改的列表
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * 返回使用指定初始容量的解析器，预计的元素个数准确时列表不需要扩容
+     * @param sizeHint 预计的元素个数
+     */
+    public SepByParser<R> sizeHint(int sizeHint) {
+        if (sizeHint < 0) {
+            throw new IllegalArgumentException("size hint must not be negative: " + sizeHint);
+        }
+        return new SepByParser<>(element, separator, minTimes, trailing, sizeHint, immutable);
+    }
+
+    /**
+     * 返回解析结果为不可修改列表的解析器，列表的容量被收缩到元素个数
+     */
+    public SepByParser<R> immutable() {
+        return new SepByParser<>(element, separator, minTimes, trailing, sizeHint, true);
+    }
+
+    /**
+     * 返回使用另一个元素解析器和分隔符、其他设置不变的解析器
+     */
+    <R2> SepByParser<R2> withParsers(Parser<R2> element, Parser<?> separator) {
+        return new SepByParser<>(element, separator, minTimes, trailing, sizeHint, immutable);
+    }
+
+    /**
+     * 把解析得到的列表转换为解析结果
+     */
+    List<R> finish(ArrayList<R> list) {
+        if (!immutable) {
+            return list;
+        }
+        list.trimToSize();
+        return Collections.unmodifiableList(list);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return withParsers((Parser<R>) rewriter.visit(element), rewriter.visit(separator));
+    }
+
+    @Override
+    public ParseResult<List<R>> tryParse(CharSequence s, int index) {
+        ArrayList<R> list = sizeHint > 0 ? new ArrayList<>(sizeHint) : new ArrayList<>();
+        ParseResult<R> r = element.tryParse(s, index);
+        if (r.isFailure()) {
+            return minTimes > 0 ? ParseResult.failure() : new ParseResult<>(finish(list), index);
+        }
+        list.add(r.result());
+        index = r.index();
+
+        ParseContext ctx = ParseContext.limited();
+        while (true) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            int next = separator.match(s, index);
+            if (next < 0) {
+                break;
+            }
+            r = element.tryParse(s, next);
+            if (r.isFailure()) {
+                if (trailing) {
+                    index = next;
+                }
+                break;
+            }
+            list.add(r.result());
+            index = r.index();
+        }
+        return new ParseResult<>(finish(list), index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = element.firstSet();
+        if (first == null) {
+            return null;
+        }
+        return minTimes <= 0 ? first.asNullable() : first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int first = element.match(s, index);
+        if (first < 0) {
+            return minTimes > 0 ? -1 : index;
+        }
+        index = first;
+        ParseContext ctx = ParseContext.limited();
+        while (true) {
+            if (ctx != null) {
+                ctx.step(index);
+            }
+            int next = separator.match(s, index);
+            if (next < 0) {
+                return index;
+            }
+            int end = element.match(s, next);
+            if (end < 0) {
+                return trailing ? next : index;
+            }
+            index = end;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 连续应用多个解析器，并组合所有解析器的解析结果
+ */
+public class SeqParser implements TryParser<List<Object>>, CompositeParser {
+    private final Parser<?>[] parsers;
+    private final int cut;
+
+    SeqParser(Parser<?>[] parsers) {
+        this.parsers = parsers.clone();
+        this.cut = CutParser.firstCut(this.parsers);
+    }
+
+    /**
+     * 获取依次应用的解析器
+     */
+    public Parser<?>[] parsers() {
+        return parsers.clone();
+    }
+
+    /**
+     * 第一个包含切断点的解析器的下标，之后的解析器失败时抛出异常；没有切断点时为解析器数量
+     */
+    int cutIndex() {
+        return cut;
+    }
+
+    @Override
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new SeqParser(rewriter.visit(parsers()));
+    }
+
+    @Override
+    public ParseResult<List<Object>> tryParse(CharSequence s, int index) {
+        List<Object> result = new ArrayList<>(parsers.length);
+        for (int i = 0; i < parsers.length; i++) {
+            ParseResult<?> r = parsers[i].tryParse(s, index);
+            if (r.isFailure()) {
+                if (i > cut) {
+                    throw CutParser.failure(index);
+                }
+                return ParseResult.failure();
+            }
+            result.add(r.result());
+            index = r.index();
+        }
+        return new ParseResult<>(result, index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = FirstSet.empty();
+        for (Parser<?> p : parsers) {
+            if (first == null || !first.nullable()) {
+                break;
+            }
+            first = FirstSet.concat(first, p.firstSet());
+        }
+        return first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        for (int i = 0; i < parsers.length; i++) {
+            int next = parsers[i].match(s, index);
+            if (next < 0) {
+                if (i > cut) {
+                    throw CutParser.failure(index);
+                }
+                return -1;
+            }
+            index = next;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,38 @@
+package byx.parserc;
+
+/**
+ * 匹配指定字符串
+ */
+public class StrParser implements TryParser<String> {
+    private final String str;
+
+    StrParser(String str) {
+        this.str = str;
+    }
+
+    /**
+     * 获取匹配的字符串
+     */
+    public String str() {
+        return str;
+    }
+
+    @Override
+    public ParseResult<String> tryParse(CharSequence s, int index) {
+        if (Inputs.startsWith(s, str, index)) {
+            return new ParseResult<>(str, index + str.length());
+        } else {
+            return ParseResult.failure();
+        }
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return str.isEmpty() ? FirstSet.empty() : FirstSet.of(CharClass.of(str.charAt(0)));
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        return Inputs.startsWith(s, str, index) ? index + str.length() : -1;
+    }
+}
@@ -0,0 +1,179 @@
+package byx.parserc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>多字符串解析器，在构造时把所有候选字符串编译成字典树，解析时只需扫描一遍输入</p>
+ * <p>默认返回参数列表中最靠前的匹配，可通过{@link #longest()}切换为最长匹配，
+ * 通过{@link #keyword()}要求匹配之后不能紧跟标识符字符</p>
+ */
+public class StrsParser implements TryParser<String> {
+    private static final CharClass IDENTIFIER_CHARS = CharClass.range('a', 'z')
+        .union(CharClass.range('A', 'Z'))
+        .union(CharClass.range('0', '9'))
+        .union(CharClass.of('_'));
+
+    private final String[] strs;
+    private final boolean longest;
+    private final CharClass boundary;
+
+    /**
+     * 字典树，第i个节点的子节点按字符排序保存在keys[i]和children[i]中，
+     * terminal[i]为以该节点结尾的字符串在strs中的下标，不存在时为-1
+     */
+    private final char[][] keys;
+    private final int[][] children;
+    private final int[] terminal;
+
+    /**
+     * @param strs 候选字符串
+     */
+    public StrsParser(String... strs) {
+        this(strs, false, null);
+    }
+
+    private StrsParser(String[] strs, boolean longest, CharClass boundary) {
+        this.strs = strs.clone();
+        this.longest = longest;
+        this.boundary = boundary;
+
+        List<StringBuilder> nodeKeys = new ArrayList<>();
+        List<List<Integer>> nodeChildren = new ArrayList<>();
+        List<Integer> nodeTerminal = new ArrayList<>();
+        nodeKeys.add(new StringBuilder());
+        nodeChildren.add(new ArrayList<>());
+        nodeTerminal.add(-1);
+
+        for (int i = 0; i < strs.length; i++) {
+            int node = 0;
+            for (char c : strs[i].toCharArray()) {
+                int pos = nodeKeys.get(node).indexOf(String.valueOf(c));
+                if (pos < 0) {
+                    nodeKeys.get(node).append(c);
+                    nodeChildren.get(node).add(nodeKeys.size());
+                    nodeKeys.add(new StringBuilder());
+                    nodeChildren.add(new ArrayList<>());
+                    nodeTerminal.add(-1);
+                    node = nodeKeys.size() - 1;
+                } else {
+                    node = nodeChildren.get(node).get(pos);
+                }
+            }
+            if (nodeTerminal.get(node) < 0) {
+                nodeTerminal.set(node, i);
+            }
+        }
+
+        int n = nodeKeys.size();
+        keys = new char[n][];
+        children = new int[n][];
+        terminal = new int[n];
+        for (int i = 0; i < n; i++) {
+            char[] k = nodeKeys.get(i).toString().toCharArray();
+            List<Integer> ch = nodeChildren.get(i);
+            Integer[] order = new Integer[k.length];
+            for (int j = 0; j < k.length; j++) {
+                order[j] = j;
+            }
+            Arrays.sort(order, (a, b) -> Character.compare(k[a], k[b]));
+            keys[i] = new char[k.length];
+            children[i] = new int[k.length];
+            for (int j = 0; j < k.length; j++) {
+                keys[i][j] = k[order[j]];
+                children[i][j] = ch.get(order[j]);
+            }
+            terminal[i] = nodeTerminal.get(i);
+        }
+    }
+
+    /**
+     * 获取候选字符串
+     */
+    public String[] strs() {
+        return strs.clone();
+    }
+
+    /**
+     * 获取匹配之后不能紧跟的字符集，不要求时返回null
+     */
+    public CharClass boundary() {
+        return boundary;
+    }
+
+    /**
+     * 返回使用最长匹配的解析器，匹配结果不再依赖参数顺序
+     */
+    public StrsParser longest() {
+        return new StrsParser(strs, true, boundary);
+    }
+
+    /**
+     * 返回要求匹配之后不能紧跟标识符字符（字母、数字、下划线）的解析器
+     */
+    public StrsParser keyword() {
+        return keyword(IDENTIFIER_CHARS);
+    }
+
+    /**
+     * 返回要求匹配之后不能紧跟identifierChars中字符的解析器
+     * @param identifierChars 标识符字符集
+     */
+    public StrsParser keyword(CharClass identifierChars) {
+        return new StrsParser(strs, longest, identifierChars);
+    }
+
+    /**
+     * 查找当前位置匹配的字符串
+     * @param s 字符串
+     * @param index 当前位置
+     * @return 匹配成功时返回匹配字符串在候选字符串中的下标，否则返回-1
+     */
+    public int find(CharSequence s, int index) {
+        int best = -1;
+        int node = 0;
+        int i = index;
+        while (true) {
+            int t = terminal[node];
+            if (t >= 0 && (best < 0 || (longest ? strs[t].length() > strs[best].length() : t < best)) && atBoundary(s, i)) {
+                best = t;
+            }
+            if (!Inputs.has(s, i)) {
+                break;
+            }
+            int pos = Arrays.binarySearch(keys[node], s.charAt(i));
+            if (pos < 0) {
+                break;
+            }
+            node = children[node][pos];
+            i++;
+        }
+        return best;
+    }
+
+    private boolean atBoundary(CharSequence s, int index) {
+        return boundary == null || !Inputs.has(s, index) || !boundary.contains(s.charAt(index));
+    }
+
+    @Override
+    public ParseResult<String> tryParse(CharSequence s, int index) {
+        int m = find(s, index);
+        if (m < 0) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(strs[m], index + strs[m].length());
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        int m = find(s, index);
+        return m < 0 ? -1 : index + strs[m].length();
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        char[] firstChars = keys[0];
+        return new FirstSet(CharClass.of(firstChars), terminal[0] >= 0);
+    }
+}
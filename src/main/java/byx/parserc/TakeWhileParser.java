@@ -0,0 +1,62 @@
+package byx.parserc;
+
+/**
+ * 连续匹配属于字符集的字符，并返回匹配的字符串
+ */
+public class TakeWhileParser implements TryParser<String> {
+    private final CharClass charClass;
+    private final int minLength;
+
+    TakeWhileParser(CharClass charClass, int minLength) {
+        this.charClass = charClass;
+        this.minLength = minLength;
+    }
+
+    /**
+     * 获取字符集
+     */
+    public CharClass charClass() {
+        return charClass;
+    }
+
+    /**
+     * 获取最少匹配的字符数
+     */
+    public int minLength() {
+        return minLength;
+    }
+
+    @Override
+    public ParseResult<String> tryParse(CharSequence s, int index) {
+        int end = match(s, index);
+        if (end < 0) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(Inputs.substring(s, index, end), end);
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        if (s instanceof Inputs.CharArrayInput a) {
+            char[] chars = a.chars;
+            int i = a.offset + index;
+            int end = a.offset + a.length;
+            while (i < end && charClass.contains(chars[i])) {
+                i++;
+            }
+            i -= a.offset;
+            return i - index < minLength ? -1 : i;
+        }
+
+        int i = index;
+        while (Inputs.has(s, i) && charClass.contains(s.charAt(i))) {
+            i++;
+        }
+        return i - index < minLength ? -1 : i;
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return new FirstSet(charClass, minLength == 0);
+    }
+}
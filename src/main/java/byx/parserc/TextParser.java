@@ -0,0 +1,43 @@
+package byx.parserc;
+
+/**
+ * 应用解析器，并返回其消耗的字符串
+ */
+public class TextParser implements TryParser<String>, CompositeParser {
+    private final Parser<?> parser;
+
+    TextParser(Parser<?> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * 获取被识别的解析器
+     */
+    public Parser<?> parser() {
+        return parser;
+    }
+
+    @Override
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new TextParser(rewriter.visit(parser));
+    }
+
+    @Override
+    public ParseResult<String> tryParse(CharSequence s, int index) {
+        int end = parser.match(s, index);
+        if (end < 0) {
+            return ParseResult.failure();
+        }
+        return new ParseResult<>(Inputs.substring(s, index, end), end);
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        return parser.match(s, index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return parser.firstSet();
+    }
+}
@@ -0,0 +1,52 @@
+package byx.parserc;
+
+/**
+ * <p>记号解析器，在{@link Inputs#tokens}创建的记号输入上匹配类型属于kinds的单个记号，并返回该记号</p>
+ * <p>记号的类型编号即输入中的字符，因此可以和其他组合子一样参与FIRST集分派</p>
+ * @param <T> 记号类型
+ */
+public class TokenParser<T> implements TryParser<T> {
+    private final CharClass kinds;
+
+    TokenParser(CharClass kinds) {
+        this.kinds = kinds;
+    }
+
+    /**
+     * 获取匹配的类型编号集合
+     */
+    public CharClass kinds() {
+        return kinds;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ParseResult<T> tryParse(CharSequence s, int index) {
+        checkTokens(s);
+        if (Inputs.has(s, index) && kinds.contains(s.charAt(index))) {
+            Object token = s instanceof Inputs.TokenInput<?> input ? input.token(index) : ((Inputs.TrackingInput) s).token(index);
+            return new ParseResult<>((T) token, index + 1);
+        }
+        return ParseResult.failure();
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        checkTokens(s);
+        return Inputs.has(s, index) && kinds.contains(s.charAt(index)) ? index + 1 : -1;
+    }
+
+    /**
+     * 解析和识别都只接受记号输入（包括增量解析的记号输入），保证两者的结果一致
+     */
+    private static void checkTokens(CharSequence s) {
+        if (!(s instanceof Inputs.TokenInput<?>) && !(s instanceof Inputs.TrackingInput t && t.hasTokens())) {
+            throw new IllegalArgumentException("token parsers require input created by Inputs.tokens");
+        }
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        return FirstSet.of(kinds);
+    }
+}
@@ -0,0 +1,23 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseInternalException;
+
+/**
+ * <p>通过返回值报告失败的解析器</p>
+ * <p>解析失败时返回{@link ParseResult#failure()}而不是抛出异常，内置组合子都基于该接口实现</p>
+ * @param <R> 解析结果类型
+ */
+@FunctionalInterface
+public interface TryParser<R> extends Parser<R> {
+    @Override
+    ParseResult<R> tryParse(CharSequence s, int index);
+
+    @Override
+    default ParseResult<R> parse(CharSequence s, int index) {
+        ParseResult<R> r = tryParse(s, index);
+        if (r.isFailure()) {
+            throw ParseInternalException.INSTANCE;
+        }
+        return r;
+    }
+}
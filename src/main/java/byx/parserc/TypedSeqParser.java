@@ -0,0 +1,130 @@
+package byx.parserc;
+
+import byx.parserc.Functions.Function3;
+import byx.parserc.Functions.Function4;
+import byx.parserc.Functions.Function5;
+import byx.parserc.Functions.Function6;
+import byx.parserc.Functions.Function7;
+import byx.parserc.Functions.Function8;
+
+import java.util.function.BiFunction;
+
+/**
+ * <p>连续应用2到8个解析器，并把所有解析结果一次性传给组合函数</p>
+ * <p>解析过程不构造Pair或List等中间结果，子解析器的结果保存在局部变量中</p>
+ */
+public class TypedSeqParser<R> implements TryParser<R>, CompositeParser {
+    private final Parser<?>[] parsers;
+    private final Object combiner;
+    private final int cut;
+
+    /**
+     * @param parsers 依次应用的解析器
+     * @param combiner 组合函数，参数个数与parsers的长度相同：2个时为{@link BiFunction}，3到8个时为{@link Functions}中对应的函数
+     */
+    TypedSeqParser(Parser<?>[] parsers, Object combiner) {
+        if (parsers.length < 2 || parsers.length > 8) {
+            throw new IllegalArgumentException("typed seq supports 2 to 8 parsers: " + parsers.length);
+        }
+        this.parsers = parsers.clone();
+        this.combiner = combiner;
+        this.cut = CutParser.firstCut(this.parsers);
+    }
+
+    /**
+     * 获取依次应用的解析器
+     */
+    public Parser<?>[] parsers() {
+        return parsers.clone();
+    }
+
+    /**
+     * 获取组合函数
+     */
+    public Object combiner() {
+        return combiner;
+    }
+
+    /**
+     * 第一个包含切断点的解析器的下标，之后的解析器失败时抛出异常；没有切断点时为解析器数量
+     */
+    int cutIndex() {
+        return cut;
+    }
+
+    /**
+     * 按解析器数量调用组合函数
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object combine(Object a, Object b, Object c, Object d, Object e, Object f, Object g, Object h) {
+        return switch (parsers.length) {
+            case 2 -> ((BiFunction) combiner).apply(a, b);
+            case 3 -> ((Function3) combiner).apply(a, b, c);
+            case 4 -> ((Function4) combiner).apply(a, b, c, d);
+            case 5 -> ((Function5) combiner).apply(a, b, c, d, e);
+            case 6 -> ((Function6) combiner).apply(a, b, c, d, e, f);
+            case 7 -> ((Function7) combiner).apply(a, b, c, d, e, f, g);
+            default -> ((Function8) combiner).apply(a, b, c, d, e, f, g, h);
+        };
+    }
+
+    @Override
+    public Parser<?> rebuild(GrammarRewriter rewriter) {
+        return new TypedSeqParser<>(rewriter.visit(parsers()), combiner);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ParseResult<R> tryParse(CharSequence s, int index) {
+        Object a = null, b = null, c = null, d = null, e = null, f = null, g = null, h = null;
+        for (int i = 0; i < parsers.length; i++) {
+            ParseResult<?> r = parsers[i].tryParse(s, index);
+            if (r.isFailure()) {
+                if (i > cut) {
+                    throw CutParser.failure(index);
+                }
+                return ParseResult.failure();
+            }
+            Object v = r.result();
+            switch (i) {
+                case 0 -> a = v;
+                case 1 -> b = v;
+                case 2 -> c = v;
+                case 3 -> d = v;
+                case 4 -> e = v;
+                case 5 -> f = v;
+                case 6 -> g = v;
+                default -> h = v;
+            }
+            index = r.index();
+        }
+        return new ParseResult<>((R) combine(a, b, c, d, e, f, g, h), index);
+    }
+
+    @Override
+    public FirstSet firstSet() {
+        FirstSet first = FirstSet.empty();
+        for (Parser<?> p : parsers) {
+            if (first == null || !first.nullable()) {
+                break;
+            }
+            first = FirstSet.concat(first, p.firstSet());
+        }
+        return first;
+    }
+
+    @Override
+    public int match(CharSequence s, int index) {
+        for (int i = 0; i < parsers.length; i++) {
+            int next = parsers[i].match(s, index);
+            if (next < 0) {
+                if (i > cut) {
+                    throw CutParser.failure(index);
+                }
+                return -1;
+            }
+            index = next;
+        }
+        return index;
+    }
+}
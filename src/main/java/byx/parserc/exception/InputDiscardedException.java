@@ -0,0 +1,33 @@
+package byx.parserc.exception;
+
+/**
+ * <p>流式输入中访问了已被丢弃的位置</p>
+ * <p>通常是因为语法在提交点之后回溯到了提交点之前</p>
+ */
+public class InputDiscardedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final int discardedBefore;
+
+    public InputDiscardedException(int index, int discardedBefore) {
+        super("cannot access index " + index + ": input before index " + discardedBefore
+            + " has been discarded after a commit point");
+        this.index = index;
+        this.discardedBefore = discardedBefore;
+    }
+
+    /**
+     * 访问的位置
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 该位置之前的输入已被丢弃
+     */
+    public int getDiscardedBefore() {
+        return discardedBefore;
+    }
+}
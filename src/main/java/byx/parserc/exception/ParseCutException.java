@@ -0,0 +1,24 @@
+package byx.parserc.exception;
+
+/**
+ * <p>经过切断点之后解析失败</p>
+ * <p>与普通的解析失败不同，该异常不会被oneOf、repeat、opt等组合子捕获，会直接终止整个解析；
+ * 只有预读（not、expect）会把它当作普通的解析失败。预读用它控制流程，因此不填充调用栈</p>
+ */
+public class ParseCutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+
+    public ParseCutException(int index) {
+        super("parse failed at index " + index + " after a cut", null, false, false);
+        this.index = index;
+    }
+
+    /**
+     * 切断点之后失败的解析器的起始位置
+     */
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,68 @@
+package byx.parserc.exception;
+
+/**
+ * <p>解析超出了{@link byx.parserc.ParsePolicy}的限制，或者解析线程被中断</p>
+ * <p>与解析失败不同，该异常不会被组合子捕获，会直接终止整个解析</p>
+ */
+public class ParseLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 被超出的限制
+     */
+    public enum Limit {
+        /**
+         * 执行步数
+         */
+        STEPS,
+        /**
+         * 递归深度
+         */
+        DEPTH,
+        /**
+         * 输入长度
+         */
+        INPUT_LENGTH,
+        /**
+         * 解析耗时
+         */
+        TIMEOUT,
+        /**
+         * 线程被中断
+         */
+        INTERRUPTED
+    }
+
+    private final Limit limit;
+    private final int index;
+
+    public ParseLimitException(Limit limit, int index) {
+        super(message(limit) + " at index " + index);
+        this.limit = limit;
+        this.index = index;
+    }
+
+    private static String message(Limit limit) {
+        return switch (limit) {
+            case STEPS -> "step limit exceeded";
+            case DEPTH -> "nesting depth limit exceeded";
+            case INPUT_LENGTH -> "input length limit exceeded";
+            case TIMEOUT -> "parse timed out";
+            case INTERRUPTED -> "parse interrupted";
+        };
+    }
+
+    /**
+     * 被超出的限制
+     */
+    public Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * 超出限制时的解析位置
+     */
+    public int getIndex() {
+        return index;
+    }
+}
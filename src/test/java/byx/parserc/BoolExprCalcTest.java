@@ -2,7 +2,6 @@ package byx.parserc;
 
 import org.junit.jupiter.api.Test;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import static byx.parserc.Parsers.*;
@@ -23,22 +22,13 @@ class BoolExprCalc {
     ).fatal((s, i) -> new MyParseException(s, i, "expected one of: t, f, &(...), |(...), !(...)"));
     private static final Parser<Boolean> trueValue = ch('t').value(true);
     private static final Parser<Boolean> falseValue = ch('f').value(false);
-    private static final Parser<List<Boolean>> boolExprList = boolExpr.and(skip(ch(',')).and(boolExpr).many())
-        .map(r -> reduceList(r.first(), r.second()));
+    private static final Parser<List<Boolean>> boolExprList = sepBy1(boolExpr, ch(','));
     private static final Parser<Boolean> andExpr = skip(ch('&').and(lp)).and(boolExprList).skip(rp)
         .map(r -> r.stream().reduce(true, Boolean::logicalAnd));
     private static final Parser<Boolean> orExpr = skip(ch('|').and(lp)).and(boolExprList).skip(rp)
         .map(r -> r.stream().reduce(false, Boolean::logicalOr));
     private static final Parser<Boolean> notExpr = skip(ch('!').and(lp)).and(boolExpr).skip(rp).map(v -> !v);
 
-
-    private static <T> List<T> reduceList(T first, List<T> remain) {
-        List<T> list = new ArrayList<>();
-        list.add(first);
-        list.addAll(remain);
-        return list;
-    }
-
     public static boolean eval(String s) {
         ParseResult<Boolean> r = boolExpr.parse(s, 0);
         if (r.index() != s.length()) {
@@ -0,0 +1,81 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseInternalException;
+import org.junit.jupiter.api.Test;
+
+import static byx.parserc.Parsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CharClassTest {
+    @Test
+    public void testOf() {
+        CharClass c = CharClass.of('b', 'a', 'c', 'x', '中');
+        assertTrue(c.contains('a'));
+        assertTrue(c.contains('b'));
+        assertTrue(c.contains('c'));
+        assertTrue(c.contains('x'));
+        assertTrue(c.contains('中'));
+        assertFalse(c.contains('d'));
+        assertFalse(c.contains('文'));
+        assertArrayEquals(new int[]{'a', 'c', 'x', 'x', '中', '中'}, c.ranges());
+        assertTrue(CharClass.of().isEmpty());
+    }
+
+    @Test
+    public void testRange() {
+        CharClass c = CharClass.range('9', '0');
+        for (char ch = '0'; ch <= '9'; ch++) {
+            assertTrue(c.contains(ch));
+        }
+        assertFalse(c.contains('/'));
+        assertFalse(c.contains(':'));
+        assertEquals(CharClass.range('0', '9'), c);
+    }
+
+    @Test
+    public void testAlgebra() {
+        CharClass digit = CharClass.range('0', '9');
+        CharClass alpha = CharClass.range('a', 'z').union(CharClass.range('A', 'Z'));
+        CharClass word = digit.union(alpha).union(CharClass.of('_'));
+        assertTrue(word.contains('_'));
+        assertTrue(word.contains('q'));
+        assertTrue(word.contains('Q'));
+        assertTrue(word.contains('7'));
+        assertFalse(word.contains('-'));
+
+        assertEquals(digit, word.intersect(CharClass.range('0', '@')));
+        assertEquals(alpha.union(CharClass.of('_')), word.minus(digit));
+        assertEquals(CharClass.all(), word.union(word.negate()));
+        assertTrue(word.intersect(word.negate()).isEmpty());
+        assertEquals(word, word.negate().negate());
+
+        CharClass nonAscii = CharClass.range('\u0080', '￿');
+        assertEquals(CharClass.range('\u0000', '\u007f'), nonAscii.negate());
+        assertTrue(nonAscii.contains('￿'));
+        assertFalse(nonAscii.contains('\u007f'));
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("[0-9A-Z_a-z]", CharClass.range('0', '9').union(CharClass.range('A', 'Z'))
+            .union(CharClass.of('_')).union(CharClass.range('a', 'z')).toString());
+        assertEquals("[]", CharClass.none().toString());
+    }
+
+    @Test
+    public void testMergeParsers() {
+        Parser<Character> p1 = range('0', '9').or(chs('_'));
+        assertEquals(CharClass.range('0', '9').union(CharClass.of('_')), ((CharParser) p1).charClass());
+        assertEquals('_', p1.parse("_"));
+        assertEquals('5', p1.parse("5"));
+
+        Parser<Character> p2 = oneOf(range('a', 'z'), range('A', 'Z'), ch('_'));
+        assertInstanceOf(CharParser.class, p2);
+        assertEquals('Q', p2.parse("Q"));
+        assertThrows(ParseInternalException.class, () -> p2.parse("1"));
+
+        Parser<Character> p3 = ch(c -> c == 'a').or(ch('b'));
+        assertFalse(p3 instanceof CharParser);
+        assertEquals('b', p3.parse("b"));
+    }
+}
@@ -3,7 +3,6 @@ package byx.parserc;
 import byx.parserc.exception.ParseInternalException;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -22,41 +21,26 @@ class ExprCalc {
     private static final Parser<Character> div = ch('/').trim();
     private static final Parser<Character> lp = ch('(').trim();
     private static final Parser<Character> rp = ch(')').trim();
-    private static final Parser<String> digits = digit.many1().map(ExprCalc::join);
+    private static final Parser<String> digits = digit.many1(Collectors.mapping(Objects::toString, Collectors.joining()));
     private static final Parser<Double> integer = digits.map(Double::parseDouble);
-    private static final Parser<Double> decimal = seq(digits, ch('.'), digits).map(ExprCalc::join).map(Double::parseDouble);
+    private static final Parser<Double> decimal = seqMap(digits, ch('.'), digits, (i, p, f) -> Double.parseDouble(i + "." + f));
     private static final Parser<Double> number = decimal.or(integer).trim();
     private static final Parser<Double> bracketExpr = skip(lp).and(lazy(() -> ExprCalc.expr)).skip(rp);
     private static final Parser<Double> negFact = skip(sub).and(lazy(() -> ExprCalc.fact)).map(e -> -e);
-    private static final Parser<Double> fact = oneOf(number, bracketExpr, negFact);
-    private static final Parser<Double> term = fact.and(mul.or(div).and(fact).many()).map(ExprCalc::calc);
-    private static final Parser<Double> expr = term.and(add.or(sub).and(term).many()).map(ExprCalc::calc)
-        .fatal(() -> new MyParseException("illegal arithmetic expr"));
-
-    private static String join(List<?> list) {
-        return list.stream().map(Objects::toString).collect(Collectors.joining());
-    }
-
-    private static Double calc(Pair<Double, List<Pair<Character, Double>>> p) {
-        double res = p.first();
-        for (Pair<Character, Double> pp : p.second()) {
-            switch (pp.first()) {
-                case '+':
-                    res += pp.second();
-                    break;
-                case '-':
-                    res -= pp.second();
-                    break;
-                case '*':
-                    res *= pp.second();
-                    break;
-                case '/':
-                    res /= pp.second();
-                    break;
-            }
-        }
-        return res;
-    }
+    private static final Parser<Double> fact = oneOf(number, bracketExpr, negFact).memo();
+    private static final Parser<Double> term = leftRec(() -> ExprCalc.termRule);
+    private static final Parser<Double> termRule = oneOf(
+        term.skip(mul).and(fact).map(p -> p.first() * p.second()),
+        term.skip(div).and(fact).map(p -> p.first() / p.second()),
+        fact
+    );
+    private static final Parser<Double> sum = leftRec(() -> ExprCalc.sumRule);
+    private static final Parser<Double> sumRule = oneOf(
+        sum.skip(add).and(term).map(p -> p.first() + p.second()),
+        sum.skip(sub).and(term).map(p -> p.first() - p.second()),
+        term
+    );
+    private static final Parser<Double> expr = sum.fatal(() -> new MyParseException("illegal arithmetic expr"));
 
     public static Double eval(String s) {
         ParseResult<Double> r = expr.parse(s, 0);
@@ -0,0 +1,67 @@
+package byx.parserc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static byx.parserc.Parsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GrammarTest {
+    @Test
+    public void testFreeze() {
+        int[] calls = {0};
+        AtomicReference<Parser<Integer>> rule = new AtomicReference<>();
+        Parser<Integer> expr = lazy(() -> {
+            calls[0]++;
+            return rule.get();
+        });
+        rule.set(oneOf(
+            range('0', '9').many1().text().map(Integer::parseInt),
+            skip(ch('(')).and(expr.and(skip(ch('+')).and(expr))).skip(ch(')')).map(p -> p.first() + p.second())
+        ));
+
+        Parser<Integer> frozen = Grammar.freeze(expr);
+        int linkCalls = calls[0];
+        assertEquals(1, linkCalls);
+        assertTrue(((LazyParser<?>) ((MemoParser<?>) frozen).parser()).isLinked());
+        for (Parser<Integer> p : List.of(frozen, frozen.optimize(), GrammarCompiler.compile(frozen), Grammar.freeze(expr.optimize()))) {
+            assertEquals(10, p.parse("((1+2)+(3+4))"));
+            assertEquals(-1, p.match("((1+2)+3", 0));
+        }
+        assertEquals(linkCalls + 1, calls[0]);
+
+        // 链接之后修改规则不影响链接结果
+        Parser<Integer> old = rule.get();
+        rule.set(ch('x').value(0));
+        assertEquals(3, frozen.parse("(1+2)"));
+        rule.set(old);
+
+        // 递归规则只有一个记忆化表
+        ParseContext ctx = new ParseContext().packrat(true);
+        assertEquals(10, frozen.parse("((1+2)+(3+4))", ctx));
+        assertEquals(0, ctx.getMemoHits());
+        Parser<Object> twice = Grammar.freeze(oneOf(expr.and(ch('!')), expr.and(ch('?'))));
+        assertEquals(new Pair<>(3, '?'), twice.parse("(1+2)?", ctx));
+        assertEquals(1, ctx.getMemoHits());
+    }
+
+    @Test
+    public void testFreezeLeftRec() {
+        AtomicReference<Parser<Integer>> rule = new AtomicReference<>();
+        Parser<Integer> num = range('0', '9').map(c -> c - '0');
+        Parser<Integer> expr = leftRec(rule::get);
+        rule.set(oneOf(expr.skip(ch('-')).and(num).map(p -> p.first() - p.second()), num));
+        Parser<Integer> frozen = Grammar.freeze(expr);
+        assertEquals(9 - 2 - 3, frozen.parse("9-2-3"));
+        assertEquals(9 - 2 - 3, GrammarCompiler.compile(frozen).parse("9-2-3"));
+    }
+
+    @Test
+    public void testFreezeNull() {
+        Parser<Object> dangling = lazy(() -> null);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Grammar.freeze(ch('a').and(dangling)));
+        assertTrue(e.getMessage().contains("null"));
+    }
+}
@@ -0,0 +1,90 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseInternalException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static byx.parserc.Parsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalParserTest {
+    private static final Parser<Object> item = lazy(() -> IncrementalParserTest.element).trim();
+    private static final Parser<List<Object>> list = skip(ch('(')).and(item.many()).skip(ch(')'));
+    private static final Parser<Object> element = Parsers.<Object>oneOf(takeWhile1(CharClass.range('a', 'z')), list);
+
+    @Test
+    public void testEdit() {
+        IncrementalParser<Object> p = new IncrementalParser<>(item);
+        assertEquals(List.of("ab", List.of("cd", "ef")), p.parse("(ab (cd ef))"));
+        assertEquals(List.of("abx", List.of("cd", "ef")), p.edit(3, 0, "x"));
+        assertEquals("(abx (cd ef))", p.text());
+        assertEquals(List.of("abx", List.of("cd"), List.of("ef")), p.edit(8, 0, ") ("));
+        assertEquals("(abx (cd) ( ef))", p.text());
+        assertThrows(ParseInternalException.class, () -> p.edit(0, 1, ""));
+        assertEquals(List.of("abx", List.of("cd"), List.of("ef")), p.edit(0, 0, "("));
+        assertThrows(IndexOutOfBoundsException.class, () -> p.edit(10, 10, ""));
+    }
+
+    @Test
+    public void testTokens() {
+        // 记号的类型编号：0为数，1为加号
+        Parser<Integer> num = Parsers.<String>token(0).map(Integer::parseInt).memo();
+        Parser<Integer> sum = num.and(skip(token(1)).and(num).many())
+            .map(r -> r.first() + r.second().stream().mapToInt(Integer::intValue).sum());
+        IncrementalParser<Integer> p = new IncrementalParser<>(sum);
+        assertEquals(6, p.parse(Inputs.tokens(List.of("1", "+", "2", "+", "3"), t -> t.equals("+") ? 1 : 0)));
+        assertEquals(16, p.edit(2, 1, Inputs.tokens(List.of("5", "+", "7"), t -> t.equals("+") ? 1 : 0)));
+        assertEquals(15, p.edit(0, 2, Inputs.tokens(List.of(), t -> 0)));
+        assertThrows(IllegalArgumentException.class, () -> p.edit(0, 0, "1"));
+        assertThrows(IllegalArgumentException.class, () -> new IncrementalParser<>(sum).parse("1"));
+    }
+
+    @Test
+    public void testReuse() {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < 100; i++) {
+            sb.append("(aaa bbb ccc ddd eee fff ggg hhh iii jjj) ");
+        }
+        String s = sb.append(")").toString();
+
+        IncrementalParser<Object> p = new IncrementalParser<>(item);
+        p.parse(s);
+        long fullMisses = p.context().getMemoMisses();
+
+        int offset = s.indexOf("eee", s.length() / 2);
+        Object result = p.edit(offset, 3, "xyz");
+        assertEquals(item.parse(p.text()), result);
+        assertTrue(p.context().getMemoMisses() * 10 < fullMisses);
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(42);
+        String[] pieces = {"a", "bc", " ", "(", ")", "(d e)", ""};
+        IncrementalParser<Object> p = new IncrementalParser<>(item);
+        p.parse("(ab (cd ef) gh (ij (kl)))");
+        for (int i = 0; i < 1000; i++) {
+            String text = p.text();
+            int offset = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(Math.min(3, text.length() - offset) + 1);
+            String inserted = pieces[random.nextInt(pieces.length)];
+            String expected = text.substring(0, offset) + inserted + text.substring(offset + removed);
+
+            Object expectedResult;
+            try {
+                expectedResult = item.parse(expected);
+            } catch (ParseInternalException e) {
+                expectedResult = e;
+            }
+            Object result;
+            try {
+                result = p.edit(offset, removed, inserted);
+            } catch (ParseInternalException e) {
+                result = e;
+            }
+            assertEquals(expectedResult, result, expected);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package byx.parserc;
+
+import byx.parserc.exception.InputDiscardedException;
+import byx.parserc.exception.ParseInternalException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static byx.parserc.Parsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InputsTest {
+    private static final Parser<String> word = takeWhile1(CharClass.range('a', 'z').union(CharClass.range('一', '鿿')));
+    private static final Parser<Integer> number = range('0', '9').many1().text().map(Integer::parseInt);
+    private static final Parser<Object> item = Parsers.<Object>oneOf(word, number, str("<>")).trim();
+    private static final Parser<List<Object>> items = item.and(skip(ch(',')).and(item).many())
+        .map(p -> {
+            List<Object> list = new ArrayList<>();
+            list.add(p.first());
+            list.addAll(p.second());
+            return list;
+        });
+
+    @Test
+    public void testCharSequence() {
+        assertEquals(List.of("abc", 123, "<>"), items.parse(new StringBuilder("abc, 123,<>")));
+        assertThrows(ParseInternalException.class, () -> items.parse(new StringBuilder("abc, ")));
+    }
+
+    @Test
+    public void testCharArray() {
+        char[] chars = "xx abc, 123 ,<>, 中文 yy".toCharArray();
+        assertEquals(List.of("abc", 123, "<>", "中文"), items.parse(Inputs.of(chars, 2, chars.length - 4)));
+        assertEquals(List.of("xx"), items.parse(Inputs.of(chars, 0, 2)));
+        assertThrows(ParseInternalException.class, () -> items.parse(Inputs.of(chars)));
+        assertThrows(IndexOutOfBoundsException.class, () -> Inputs.of(chars, 5, chars.length));
+
+        CharSequence s = Inputs.of(chars, 3, 3);
+        assertEquals("abc", s.toString());
+        assertEquals("bc", s.subSequence(1, 3).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> s.charAt(3));
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        Path file = Files.createTempFile("parserc", ".txt");
+        try {
+            Files.writeString(file, "abc, 123,<>", StandardCharsets.ISO_8859_1);
+            assertEquals(List.of("abc", 123, "<>"), items.parse(Inputs.map(file, StandardCharsets.ISO_8859_1)));
+
+            Files.writeString(file, "中文, 123", StandardCharsets.UTF_8);
+            assertEquals(List.of("中文", 123), items.parse(Inputs.map(file)));
+
+            // UTF-8按块解码，块的边界不会拆开代理对
+            String text = "中文😀a".repeat(50000);
+            Files.writeString(file, text, StandardCharsets.UTF_8);
+            CharSequence mapped = Inputs.map(file);
+            assertEquals(text.length(), mapped.length());
+            for (int i = text.length() - 1; i >= 0; i -= 997) {
+                assertEquals(text.charAt(i), mapped.charAt(i));
+            }
+            assertEquals(text.substring(65530, 131080), mapped.subSequence(65530, 131080).toString());
+            assertEquals(text, mapped.toString());
+            assertEquals(text.length(), any().many().match(mapped, 0));
+            assertThrows(IndexOutOfBoundsException.class, () -> mapped.charAt(text.length()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFatal() {
+        Parser<Character> p = ch('a').fatal((s, i) -> new MyParseException(s, i, "a expected"));
+        MyParseException e = assertThrows(MyParseException.class, () -> p.parse(Inputs.of("b".toCharArray())));
+        assertEquals(0, e.getIndex());
+
+        // 非String输入只传递失败位置附近的片段
+        String[] excerpt = new String[1];
+        Parser<Character> q = ch('a').many().and(ch('b').fatal((s, i) -> {
+            excerpt[0] = s.substring(i);
+            return new MyParseException(s, i, "b expected");
+        })).map(Pair::second);
+        String input = "a".repeat(100000) + "c" + "a".repeat(100000);
+        assertThrows(MyParseException.class, () -> q.parse(Inputs.of(input.toCharArray())));
+        assertTrue(excerpt[0].startsWith("caaa"));
+        assertTrue(excerpt[0].length() <= 1024);
+        assertThrows(MyParseException.class, () -> GrammarCompiler.compile(q).parse(Inputs.of(input.toCharArray())));
+        assertTrue(excerpt[0].startsWith("caaa"));
+        assertTrue(excerpt[0].length() <= 1024);
+
+        // 流式输入的片段从缓冲区中的字符开始，位置与片段一致
+        Parser<Pair<List<String>, Character>> records = str("ab").skip(ch(';')).commit().many().and(ch('x').fatal((s, i) -> {
+            excerpt[0] = s.substring(i);
+            return new MyParseException(s, i, "x expected");
+        }));
+        assertThrows(MyParseException.class, () -> records.parse(Inputs.stream(new StringReader("ab;".repeat(1000) + "yz"), 16)));
+        assertEquals("yz", excerpt[0]);
+    }
+
+    @Test
+    public void testStream() {
+        assertEquals(List.of("abc", 123, "<>"), items.parse(Inputs.stream(new StringReader("abc, 123,<>"))));
+        assertEquals(List.of("中文", 123), items.parse(Inputs.stream(
+            new ByteArrayInputStream("中文, 123".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, 64)));
+        assertThrows(ParseInternalException.class, () -> items.parse(Inputs.stream(new StringReader("abc, "))));
+        assertThrows(IllegalArgumentException.class, () -> Inputs.stream(new StringReader(""), 0));
+    }
+
+    @Test
+    public void testStreamCommit() {
+        int count = 1000000;
+        Reader records = new Reader() {
+            private int pos;
+
+            @Override
+            public int read(char[] buf, int off, int len) {
+                if (pos == count * 3) {
+                    return -1;
+                }
+                int n = Math.min(len, count * 3 - pos);
+                for (int i = 0; i < n; i++, pos++) {
+                    buf[off + i] = "ab;".charAt(pos % 3);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Parser<List<String>> p = str("ab").skip(ch(';')).commit().many();
+        assertEquals(count, p.parse(Inputs.stream(records, 16)).size());
+    }
+
+    @Test
+    public void testStreamDiscarded() {
+        Parser<String> p = str("ab").commit().and(str("cdefgx")).text().or(str("abcdefgh"));
+        InputDiscardedException e = assertThrows(InputDiscardedException.class,
+            () -> p.parse(Inputs.stream(new StringReader("abcdefgh"), 6)));
+        assertEquals(0, e.getIndex());
+        assertEquals(2, e.getDiscardedBefore());
+
+        // 没有提交点时缓冲区满
+        assertThrows(IllegalStateException.class, () -> any().many().parse(Inputs.stream(new StringReader("abcdefgh"), 4)));
+        // 非流式输入不受提交点影响
+        assertEquals("abcdefgh", p.parse("abcdefgh"));
+    }
+}
@@ -28,35 +28,41 @@ class JsonParser {
         lazy(() -> JsonParser.obj)
     );
     private static final Parser<String> digit = range('0', '9').map(Objects::toString);
-    private static final Parser<String> digits = digit.many1().map(JsonParser::join);
+    private static final Parser<String> digits = digit.many1(Collectors.joining());
     private static final Parser<Integer> integer = digits.map(Integer::parseInt).trim();
-    private static final Parser<Double> decimal = seq(digits, ch('.'), digits).map(JsonParser::join).map(Double::parseDouble);
-    private static final Parser<String> string = skip(ch('"')).and(not('"').many()).skip(ch('"')).map(JsonParser::join);
+    private static final Parser<Double> decimal = seqMap(digits, ch('.'), digits, (i, p, f) -> Double.parseDouble(i + "." + f));
+    private static final Parser<String> string = skip(ch('"')).and(not('"').many(Collectors.mapping(Objects::toString, Collectors.joining()))).skip(ch('"'));
     private static final Parser<Boolean> bool = strs("true", "false").map(Boolean::parseBoolean).trim();
-    private static final Parser<List<Object>> jsonObjList = jsonObj.and(skip(comma).and(jsonObj).many())
-        .map(r -> reduceList(r.first(), r.second()));
-    private static final Parser<List<Object>> arr = skip(arrStart).and(jsonObjList.opt(Collections.emptyList())).skip(arrEnd);
-    private static final Parser<Pair<String, Object>> pair = string.skip(colon).and(jsonObj);
-    private static final Parser<List<Pair<String, Object>>> pairList = pair.and(skip(comma).and(pair).many())
-        .map(r -> reduceList(r.first(), r.second()));
-    private static final Parser<Map<String, Object>> obj = skip(objStart).and(pairList.opt(Collections.emptyList())).skip(objEnd)
+    private static final Parser<List<Object>> arr = between(arrStart, arrEnd, sepBy(jsonObj, comma));
+    private static final Parser<Pair<String, Object>> pair = seqMap(string, colon, jsonObj, (k, c, v) -> new Pair<>(k, v));
+    private static final Parser<Map<String, Object>> obj = between(objStart, objEnd, sepBy(pair, comma))
         .map(ps -> ps.stream().collect(Collectors.toMap(Pair::first, Pair::second)));
 
     private static final Parser<Object> parser = jsonObj;
+    private static final Parser<Object> compiledParser = GrammarCompiler.compile(parser);
+    private static final Parser<Object> optimizedParser = parser.optimize();
+    private static final Parser<Object> frozenParser = Grammar.freeze(parser);
+    // 顶层数组的元素并行解析
+    private static final Parser<List<Object>> parallelParser = skip(arrStart).and(sepByParallel(jsonObj.trim(), ',')).skip(arrEnd);
 
-    private static String join(List<?> list) {
-        return list.stream().map(Objects::toString).collect(Collectors.joining(""));
+    public static Object parse(String input) {
+        return parser.parse(input);
     }
 
-    private static <T> List<T> reduceList(T first, List<T> remain) {
-        List<T> list = new ArrayList<>();
-        list.add(first);
-        list.addAll(remain);
-        return list;
+    public static Object parseCompiled(String input) {
+        return compiledParser.parse(input);
     }
 
-    public static Object parse(String input) {
-        return parser.parse(input);
+    public static Object parseOptimized(String input) {
+        return optimizedParser.parse(input);
+    }
+
+    public static Object parseFrozen(String input) {
+        return frozenParser.parse(input);
+    }
+
+    public static List<Object> parseParallel(String input) {
+        return parallelParser.parse(input);
     }
 }
 
@@ -128,4 +134,62 @@ public class JsonParserTest {
         assertThrows(ParseInternalException.class, () -> JsonParser.parse("[100 200 300]"));
         assertThrows(ParseInternalException.class, () -> JsonParser.parse("[1,2,3],4"));
     }
+
+    @Test
+    public void testCompiled() {
+        String[] inputs = {
+            "123", "3.14", "true", "\"hello!\"", "[]", "[ ]", "{ }", "[{}]",
+            "{\"a\": [1, 2.5, {\"b\": false}], \"c\": \"d\"}", "[true, {\"m\": false}]"
+        };
+        for (String input : inputs) {
+            assertEquals(JsonParser.parse(input), JsonParser.parseCompiled(input));
+        }
+
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseCompiled(""));
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseCompiled("{"));
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseCompiled("[{]}"));
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseCompiled("[1,2,3],4"));
+    }
+
+    @Test
+    public void testOptimized() {
+        String[] inputs = {
+            "123", "3.14", "true", "\"hello!\"", "[]", "[ ]", "{ }", "[{}]",
+            "{\"a\": [1, 2.5, {\"b\": false}], \"c\": \"d\"}", "[true, {\"m\": false}]"
+        };
+        for (String input : inputs) {
+            assertEquals(JsonParser.parse(input), JsonParser.parseOptimized(input));
+        }
+
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseOptimized("{"));
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseOptimized("[1,2,3],4"));
+    }
+
+    @Test
+    public void testFrozen() {
+        String[] inputs = {
+            "123", "3.14", "true", "\"hello!\"", "[]", "[ ]", "{ }", "[{}]",
+            "{\"a\": [1, 2.5, {\"b\": false}], \"c\": \"d\"}", "[true, {\"m\": false}]"
+        };
+        for (String input : inputs) {
+            assertEquals(JsonParser.parse(input), JsonParser.parseFrozen(input));
+        }
+
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseFrozen("{"));
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseFrozen("[1,2,3],4"));
+    }
+
+    @Test
+    public void testParallel() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 20000; i++) {
+            sb.append(i > 0 ? ", " : "").append("{\"a\": [1, 2.5, {\"b\": false}], \"c\": \"d,]\"}");
+        }
+        String input = sb.append("]").toString();
+        assertEquals(JsonParser.parse(input), JsonParser.parseParallel(input));
+        assertEquals(List.of(), JsonParser.parseParallel("[ ]"));
+
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseParallel(input.replace("2.5, {", "2.5 {")));
+        assertThrows(ParseInternalException.class, () -> JsonParser.parseParallel("[1,2,3],4"));
+    }
 }
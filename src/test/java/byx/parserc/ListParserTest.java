@@ -3,8 +3,6 @@ package byx.parserc;
 import byx.parserc.exception.ParseInternalException;
 import org.junit.jupiter.api.Test;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -46,22 +44,13 @@ class ListParser {
     private static final Parser<Character> rp = ch(']').trim();
     private static final Parser<Character> comma = ch(',').trim();
     private static final Parser<Object> listItem = oneOf(decimal, integer, string, lazy(() -> ListParser.list));
-    private static final Parser<List<Object>> itemList = listItem.and(skip(comma).and(listItem).many())
-        .map(r -> reduceList(r.first(), r.second()));
-    private static final Parser<List<Object>> list = skip(lp).and(itemList.opt(Collections.emptyList())).skip(rp);
+    private static final Parser<List<Object>> list = between(lp, rp, sepBy(listItem, comma));
     private static final Parser<List<Object>> parser = list;
 
     private static String join(List<?> list) {
         return list.stream().map(Objects::toString).collect(Collectors.joining());
     }
 
-    private static <T> List<T> reduceList(T first, List<T> remain) {
-        List<T> list = new ArrayList<>();
-        list.add(first);
-        list.addAll(remain);
-        return list;
-    }
-
     public static List<Object> parse(String s) {
         return parser.parse(s);
     }
@@ -0,0 +1,120 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseLimitException;
+import byx.parserc.exception.ParseLimitException.Limit;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static byx.parserc.Parsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParsePolicyTest {
+    /**
+     * 在输入"aaa...a"上需要指数时间
+     */
+    private static Parser<Object> exponential() {
+        AtomicReference<Parser<Object>> rule = new AtomicReference<>();
+        Parser<Object> e = lazy(rule::get);
+        rule.set(Parsers.<Object>oneOf(ch('a').and(e).and(ch('b')), ch('a').and(e).and(ch('c')), ch('a')));
+        return e;
+    }
+
+    private static Parser<Integer> nested() {
+        AtomicReference<Parser<Integer>> rule = new AtomicReference<>();
+        Parser<Integer> v = lazy(rule::get);
+        rule.set(oneOf(v.surround(ch('['), ch(']')).map(d -> d + 1), ch('x').value(0)));
+        return v;
+    }
+
+    private static ParseLimitException assertLimit(Limit limit, Parser<?> parser, String input, ParsePolicy policy) {
+        ParseLimitException e = assertThrows(ParseLimitException.class,
+            () -> parser.parse(input, new ParseContext().policy(policy)));
+        assertEquals(limit, e.getLimit());
+        return e;
+    }
+
+    @Test
+    public void testUnlimited() {
+        ParsePolicy policy = ParsePolicy.unlimited();
+        assertTrue(policy.isUnlimited());
+        assertFalse(policy.maxSteps(10).isUnlimited());
+        assertFalse(policy.interruptible(true).isUnlimited());
+        assertThrows(IllegalArgumentException.class, () -> policy.maxDepth(-1));
+
+        ParseContext ctx = new ParseContext();
+        assertEquals(3, nested().parse("[[[x]]]", ctx));
+        assertEquals(0, ctx.getSteps());
+        assertNull(ParseContext.limited());
+    }
+
+    @Test
+    public void testSteps() {
+        ParseContext ctx = new ParseContext().policy(ParsePolicy.unlimited().maxSteps(1000));
+        assertEquals(3, nested().parse("[[[x]]]", ctx));
+        assertTrue(ctx.getSteps() > 0 && ctx.getSteps() <= 1000);
+
+        // 每次解析重新计数
+        long steps = ctx.getSteps();
+        assertEquals(3, nested().parse("[[[x]]]", ctx));
+        assertEquals(steps, ctx.getSteps());
+
+        ParseLimitException e = assertLimit(Limit.STEPS, exponential(), "a".repeat(40), ParsePolicy.unlimited().maxSteps(100000));
+        assertTrue(e.getIndex() >= 0 && e.getIndex() <= 40);
+        assertTrue(e.getMessage().contains("step limit"));
+        assertLimit(Limit.STEPS, ch('a').many(), "a".repeat(100), ParsePolicy.unlimited().maxSteps(50));
+        assertNull(ParseContext.limited());
+    }
+
+    @Test
+    public void testDepth() {
+        String input = "[".repeat(100000) + "x" + "]".repeat(100000);
+        assertThrows(StackOverflowError.class, () -> nested().parse(input));
+
+        ParsePolicy policy = ParsePolicy.unlimited().maxDepth(500);
+        ParseLimitException e = assertLimit(Limit.DEPTH, nested(), input, policy);
+        assertEquals(500, e.getIndex());
+        assertLimit(Limit.DEPTH, GrammarCompiler.compile(nested()), input, policy);
+        assertLimit(Limit.DEPTH, nested().optimize(), input, policy);
+
+        String shallow = "[".repeat(499) + "x" + "]".repeat(499);
+        assertEquals(499, nested().parse(shallow, new ParseContext().policy(policy)));
+        assertEquals(499, GrammarCompiler.compile(nested()).parse(shallow, new ParseContext().policy(policy)));
+    }
+
+    @Test
+    public void testInputLength() {
+        ParsePolicy policy = ParsePolicy.unlimited().maxInputLength(10);
+        assertEquals("aaaaaaaaaa", ch('a').many().text().parse("a".repeat(10), new ParseContext().policy(policy)));
+        ParseLimitException e = assertLimit(Limit.INPUT_LENGTH, ch('a').many().text(), "a".repeat(11), policy);
+        assertEquals(10, e.getIndex());
+
+        // 流式输入在读取到超出长度的位置时才检查
+        e = assertThrows(ParseLimitException.class, () -> ch('a').many().text()
+            .parse(Inputs.stream(new java.io.StringReader("a".repeat(100)), 16), new ParseContext().policy(policy)));
+        assertEquals(Limit.INPUT_LENGTH, e.getLimit());
+        assertEquals(11, e.getIndex());
+    }
+
+    @Test
+    public void testTimeout() {
+        ParsePolicy policy = ParsePolicy.unlimited().timeout(Duration.ofMillis(50));
+        long start = System.nanoTime();
+        assertLimit(Limit.TIMEOUT, exponential(), "a".repeat(60), policy);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(10).toNanos());
+    }
+
+    @Test
+    public void testInterrupted() {
+        ParsePolicy policy = ParsePolicy.unlimited().interruptible(true);
+        Thread.currentThread().interrupt();
+        try {
+            assertLimit(Limit.INTERRUPTED, exponential(), "a".repeat(60), policy);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(3, nested().parse("[[[x]]]", new ParseContext().policy(policy)));
+    }
+}
@@ -0,0 +1,133 @@
+package byx.parserc;
+
+import byx.parserc.exception.ParseInternalException;
+import byx.parserc.exception.ParseLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static byx.parserc.Parsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParserExecutorTest {
+    /**
+     * 每次构造新的语法，FIRST集等缓存在并发解析时才初始化
+     */
+    private static Parser<Integer> sum() {
+        AtomicReference<Parser<Integer>> rule = new AtomicReference<>();
+        Parser<Integer> term = oneOf(
+            range('0', '9').many1().text().map(Integer::parseInt),
+            lazy(rule::get).surround(ch('('), ch(')'))
+        );
+        rule.set(term.and(skip(ch('+')).and(term).many())
+            .map(r -> r.first() + r.second().stream().mapToInt(Integer::intValue).sum()));
+        return lazy(rule::get);
+    }
+
+    private static String input(int i) {
+        return i % 10 == 9 ? i + "+" : i + "+(" + i + "+1)+" + (i % 7);
+    }
+
+    @Test
+    public void testParseAll() {
+        List<String> inputs = IntStream.range(0, 2000).mapToObj(ParserExecutorTest::input).toList();
+        for (Parser<Integer> p : List.of(sum(), GrammarCompiler.compile(sum()), sum().optimize())) {
+            List<ParserExecutor.Outcome<Integer>> outcomes = new ParserExecutor().concurrency(4).parseAll(p, inputs);
+            assertEquals(inputs.size(), outcomes.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                ParserExecutor.Outcome<Integer> o = outcomes.get(i);
+                if (i % 10 == 9) {
+                    assertFalse(o.isSuccess());
+                    assertInstanceOf(ParseInternalException.class, o.error());
+                    assertThrows(ParseInternalException.class, o::get);
+                } else {
+                    assertTrue(o.isSuccess());
+                    assertEquals(2 * i + 1 + i % 7, o.get());
+                }
+            }
+        }
+
+        assertEquals(List.of(3, 7), sum().parseAll(List.of("1+2", "(3+4)")).stream().map(ParserExecutor.Outcome::get).toList());
+        assertEquals(List.of(), sum().parseAll(List.of()));
+        assertEquals(6, new ParserExecutor().parseAll(sum(), Stream.of("1+2+3")).findFirst().orElseThrow().get());
+    }
+
+    @Test
+    public void testParseStream() {
+        // 按需读取输入，按输入顺序输出
+        AtomicInteger pulled = new AtomicInteger();
+        Stream<String> inputs = Stream.iterate(0, i -> i + 1).peek(i -> pulled.incrementAndGet()).map(ParserExecutorTest::input);
+        try (Stream<ParserExecutor.Outcome<Integer>> outcomes = new ParserExecutor().concurrency(2).parseAll(sum(), inputs)) {
+            List<ParserExecutor.Outcome<Integer>> first = outcomes.limit(100).toList();
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i % 10 == 9 ? null : 2 * i + 1 + i % 7, first.get(i).value());
+            }
+        }
+        assertTrue(pulled.get() <= 100 + 2 * 4);
+
+        // 与集合的结果相同，读取输入的异常在读取结果时抛出
+        List<String> list = IntStream.range(0, 500).mapToObj(ParserExecutorTest::input).toList();
+        ParserExecutor executor = new ParserExecutor().concurrency(3).executor(Runnable::run);
+        assertEquals(executor.parseAll(sum(), list).stream().map(ParserExecutor.Outcome::value).toList(),
+            executor.parseAll(sum(), list.stream()).map(ParserExecutor.Outcome::value).toList());
+        Stream<String> broken = Stream.of("1", "x", "2").map(s -> {
+            if (s.equals("x")) {
+                throw new IllegalStateException("broken input");
+            }
+            return s;
+        });
+        assertThrows(IllegalStateException.class, () -> new ParserExecutor().parseAll(sum(), broken).toList());
+    }
+
+    @Test
+    public void testConcurrency() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Parser<String> slow = range('a', 'z').many1().text().map(s -> {
+            int n = active.incrementAndGet();
+            maxActive.accumulateAndGet(n, Math::max);
+            threads.add(Thread.currentThread());
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            return s;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<String> inputs = IntStream.range(0, 200).mapToObj(i -> "abc".repeat(i % 5 + 1)).toList();
+            List<ParserExecutor.Outcome<String>> outcomes = new ParserExecutor().executor(pool).concurrency(3).parseAll(slow, inputs);
+            assertEquals(inputs, outcomes.stream().map(ParserExecutor.Outcome::get).toList());
+            assertTrue(maxActive.get() <= 3);
+            assertTrue(threads.size() <= 3);
+            assertFalse(threads.contains(Thread.currentThread()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPolicy() {
+        String deep = "(".repeat(200) + "1" + ")".repeat(200);
+        List<ParserExecutor.Outcome<Integer>> outcomes = new ParserExecutor()
+            .policy(ParsePolicy.unlimited().maxDepth(100))
+            .packrat(true)
+            .parseAll(sum(), List.of("1+2", deep, "(1)"));
+        assertEquals(3, outcomes.get(0).get());
+        assertInstanceOf(ParseLimitException.class, outcomes.get(1).error());
+        assertEquals(1, outcomes.get(2).get());
+        assertThrows(IllegalArgumentException.class, () -> new ParserExecutor().concurrency(0));
+    }
+}
@@ -1,12 +1,20 @@
 package byx.parserc;
 
+import byx.parserc.exception.ParseCutException;
 import byx.parserc.exception.ParseInternalException;
+import byx.parserc.exception.ParseLimitException;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static byx.parserc.Parsers.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,6 +36,24 @@ public class ParsercTest {
         assertThrows(ParseInternalException.class, () -> p.parse(""));
     }
 
+    @Test
+    public void testSatisfy() {
+        CharParser p = satisfy(Character::isDigit);
+        assertEquals('5', p.parse("5"));
+        assertThrows(ParseInternalException.class, () -> p.parse("a"));
+        assertThrows(ParseInternalException.class, () -> p.parse(""));
+        assertEquals(2, p.match("a5", 1));
+        assertEquals(-1, p.match("a5", 0));
+        assertEquals(-1, p.match("a5", 2));
+        assertEquals('5', p.matchChar("a5", 1));
+        assertEquals(-1, p.matchChar("a5", 0));
+        assertEquals(-1, p.matchChar("a5", 2));
+        assertEquals('中', range('一', '鿿').matchChar(Inputs.of("x中".toCharArray()), 1));
+        assertEquals(-1, range('一', '鿿').matchChar(Inputs.of("x中".toCharArray()), 2));
+        assertTrue(p.test('0'));
+        assertFalse(p.test('x'));
+    }
+
     @Test
     public void testAny() {
         Parser<Character> p = any();
@@ -146,6 +172,33 @@ public class ParsercTest {
         assertThrows(ParseInternalException.class, () -> p.parse(""));
     }
 
+    @Test
+    public void testStrs4() {
+        Parser<String> p = strs("=", "==", "=>", "");
+        assertEquals(new ParseResult<>("=", 1), p.parse("==", 0));
+        assertEquals(new ParseResult<>("", 0), p.parse("x", 0));
+
+        Parser<String> q = strs("=", "==", "=>", "").longest();
+        assertEquals(new ParseResult<>("==", 2), q.parse("==", 0));
+        assertEquals(new ParseResult<>("=>", 2), q.parse("=>", 0));
+        assertEquals(new ParseResult<>("=", 1), q.parse("=a", 0));
+        assertEquals(new ParseResult<>("", 0), q.parse("x", 0));
+    }
+
+    @Test
+    public void testStrsKeyword() {
+        Parser<String> p = strs("if", "in", "int").longest().keyword();
+        assertEquals("if", p.parse("if"));
+        assertEquals("int", p.parse("int"));
+        assertEquals(new ParseResult<>("in", 2), p.parse("in x", 0));
+        assertThrows(ParseInternalException.class, () -> p.parse("iff"));
+        assertThrows(ParseInternalException.class, () -> p.parse("int_"));
+        assertThrows(ParseInternalException.class, () -> p.parse("inter"));
+
+        Parser<String> q = strs("in", "int").keyword();
+        assertEquals(new ParseResult<>("int", 3), q.parse("int(", 0));
+    }
+
     @Test
     public void testAnd1() {
         Parser<Pair<String, Character>> p = str("hello").and(ch('a'));
@@ -201,6 +254,63 @@ public class ParsercTest {
         assertEquals(Collections.emptyList(), p.parse(""));
     }
 
+    @Test
+    public void testSeq4() {
+        Parser<Character> a = ch('a');
+        List<Parser<String>> ps = List.of(
+            seqMap(a, a, (c1, c2) -> "" + c1 + c2),
+            seqMap(a, a, a, (c1, c2, c3) -> "" + c1 + c2 + c3),
+            seqMap(a, a, a, a, (c1, c2, c3, c4) -> "" + c1 + c2 + c3 + c4),
+            seqMap(a, a, a, a, a, (c1, c2, c3, c4, c5) -> "" + c1 + c2 + c3 + c4 + c5),
+            seqMap(a, a, a, a, a, a, (c1, c2, c3, c4, c5, c6) -> "" + c1 + c2 + c3 + c4 + c5 + c6),
+            seqMap(a, a, a, a, a, a, a, (c1, c2, c3, c4, c5, c6, c7) -> "" + c1 + c2 + c3 + c4 + c5 + c6 + c7),
+            seqMap(a, a, a, a, a, a, a, a, (c1, c2, c3, c4, c5, c6, c7, c8) -> "" + c1 + c2 + c3 + c4 + c5 + c6 + c7 + c8)
+        );
+        for (int n = 2; n <= 8; n++) {
+            Parser<String> p = ps.get(n - 2);
+            String input = "a".repeat(n);
+            for (Parser<String> q : List.of(p, p.optimize(), GrammarCompiler.compile(p), Grammar.freeze(p))) {
+                assertEquals(input, q.parse(input));
+                assertEquals(n, q.match(input, 0));
+                assertThrows(ParseInternalException.class, () -> q.parse(input.substring(1)));
+                assertThrows(ParseInternalException.class, () -> q.parse(input + "a"));
+                assertEquals(-1, q.match("a".repeat(n - 1) + "b", 0));
+            }
+        }
+    }
+
+    @Test
+    public void testSeq5() {
+        int[] calls = {0};
+        Parser<Integer> num = range('0', '9').many1().text().map(Integer::parseInt);
+        Parser<Integer> p = seqMap(num, ch('+'), num, (x, op, y) -> {
+            calls[0]++;
+            return x + y;
+        });
+        for (Parser<Integer> q : List.of(p, p.optimize(), GrammarCompiler.compile(p), GrammarCompiler.compile(p.optimize()))) {
+            assertEquals(35, q.parse("12+23"));
+            assertEquals(5, q.match("12+23", 0));
+            assertThrows(ParseInternalException.class, () -> q.parse("12+"));
+        }
+        // 只识别时不调用组合函数
+        assertEquals(4, calls[0]);
+        assertEquals("a1", lexeme(seqMap(ch('a'), num, (c, n) -> c + "" + n)).parse("a1"));
+
+        // 切断点之后的解析器失败时抛出异常
+        Parser<Integer> cut = seqMap(ch('(').cut(), num, ch(')'), (l, n, r) -> n);
+        Parser<Integer> alt = oneOf(cut, str("(x").value(-1));
+        for (Parser<Integer> q : List.of(alt, alt.optimize(), GrammarCompiler.compile(alt))) {
+            assertEquals(7, q.parse("(7)"));
+            ParseCutException e = assertThrows(ParseCutException.class, () -> q.parse("(7"));
+            assertEquals(2, e.getIndex());
+            assertThrows(ParseCutException.class, () -> q.parse("(x"));
+        }
+
+        // seq的最后一个参数为lambda时仍然作为解析器
+        Parser<List<Object>> lambda = seq(ch('a'), ch('b'), (s, i) -> new ParseResult<>("c", i));
+        assertEquals(List.of('a', 'b', "c"), lambda.parse("ab"));
+    }
+
     @Test
     public void testOr() {
         Parser<Character> p = ch('a').or(ch('b'));
@@ -290,6 +400,66 @@ public class ParsercTest {
         assertThrows(ParseInternalException.class, () -> p.parse(""));
     }
 
+    @Test
+    public void testManyCollector() {
+        Parser<String> p = range('a', 'z').many(Collectors.mapping(Objects::toString, Collectors.joining()));
+        Parser<Set<Character>> q = range('a', 'z').many1(Collectors.toSet());
+        for (Parser<String> r : List.of(p, p.optimize(), GrammarCompiler.compile(p), Grammar.freeze(p))) {
+            assertEquals("abc", r.parse("abc"));
+            assertEquals("", r.parse(""));
+            assertEquals(3, r.match("abc1", 0));
+        }
+        for (Parser<Set<Character>> r : List.of(q, GrammarCompiler.compile(q))) {
+            assertEquals(Set.of('a', 'b'), r.parse("abab"));
+            assertThrows(ParseInternalException.class, () -> r.parse(""));
+            assertEquals(-1, r.match("1", 0));
+        }
+        assertEquals("ab", lexeme(p).parse("ab"));
+    }
+
+    @Test
+    public void testFold() {
+        Parser<Integer> num = range('0', '9').many1().text().map(Integer::parseInt);
+        Parser<Integer> p = num.and(skip(ch('+')).and(num).fold(() -> 0, Integer::sum)).map(r -> r.first() + r.second());
+        for (Parser<Integer> q : List.of(p, p.optimize(), GrammarCompiler.compile(p), Grammar.freeze(p))) {
+            assertEquals(1, q.parse("1"));
+            assertEquals(6, q.parse("1+2+3"));
+            assertThrows(ParseInternalException.class, () -> q.parse("1+"));
+        }
+
+        // 每次解析使用新的初始值
+        Parser<String> joined = any().fold(StringBuilder::new, StringBuilder::append).map(StringBuilder::toString);
+        for (Parser<String> q : List.of(joined, GrammarCompiler.compile(joined))) {
+            assertEquals("ab", q.parse("ab"));
+            assertEquals("cd", q.parse("cd"));
+        }
+
+        Parser<Integer> digits = range('0', '9').foldInt(0, (n, c) -> n * 10 + (c - '0'));
+        for (Parser<Integer> q : List.of(digits, digits.optimize(), GrammarCompiler.compile(digits), Grammar.freeze(digits))) {
+            assertEquals(12345, q.parse("12345"));
+            assertEquals(0, q.parse(""));
+            assertEquals(2, q.match("12a", 0));
+        }
+    }
+
+    @Test
+    public void testSkipMany() {
+        int[] calls = {0};
+        Parser<Character> a = ch('a').map(c -> {
+            calls[0]++;
+            return c;
+        });
+        Parser<Character> p = skip(a.skipMany()).and(ch('b'));
+        for (Parser<Character> q : List.of(p, p.optimize(), GrammarCompiler.compile(p))) {
+            assertEquals('b', q.parse("aaab"));
+            assertEquals('b', q.parse("b"));
+            assertThrows(ParseInternalException.class, () -> q.parse("aa"));
+        }
+        assertNull(a.skipMany().parse("aa"));
+        assertNull(GrammarCompiler.compile(a.skipMany()).parse("aa"));
+        assertEquals(0, calls[0]);
+    }
+
     @Test
     public void testOpt() {
         Parser<Character> p = ch('a').opt('x');
@@ -343,6 +513,31 @@ public class ParsercTest {
         assertEquals('a', p.parse("abc"));
     }
 
+    @Test
+    public void testSkipRunsMappers() {
+        Parser<Integer> octet = range('0', '9').many1().text().map(Integer::parseInt).map(n -> {
+            if (n > 255) {
+                throw ParseInternalException.INSTANCE;
+            }
+            return n;
+        });
+        Parser<Character> first = skip(octet).and(ch('x'));
+        Parser<Character> second = ch('x').skip(octet);
+        Parser<Character> surround = ch('x').surround(octet, octet);
+        for (Parser<Character> p : List.of(first, GrammarCompiler.compile(first))) {
+            assertEquals('x', p.parse("200x"));
+            assertThrows(ParseInternalException.class, () -> p.parse("300x"));
+        }
+        for (Parser<Character> p : List.of(second, GrammarCompiler.compile(second))) {
+            assertEquals('x', p.parse("x200"));
+            assertThrows(ParseInternalException.class, () -> p.parse("x300"));
+        }
+        for (Parser<Character> p : List.of(surround, GrammarCompiler.compile(surround))) {
+            assertEquals('x', p.parse("1x2"));
+            assertThrows(ParseInternalException.class, () -> p.parse("1x300"));
+        }
+    }
+
     @Test
     public void testFlatMap() {
         Parser<Character> alpha = range('a', 'z').or(range('A', 'Z'));
@@ -402,4 +597,580 @@ public class ParsercTest {
         assertEquals("abxyz", p.parse("abxyz"));
         assertThrows(ParseInternalException.class, () -> p.parse("abcde"));
     }
+
+    @Test
+    public void testCut() {
+        int[] tried = {0};
+        Parser<String> fallback = str("{x").map(s -> {
+            tried[0]++;
+            return s;
+        });
+        Parser<String> obj = skip(ch('{').cut()).and(ch('a').many().text()).skip(ch('}'));
+        Parser<String> p = oneOf(obj, fallback);
+        for (Parser<String> q : List.of(p, p.optimize(), GrammarCompiler.compile(p), GrammarCompiler.compile(p.optimize()))) {
+            assertEquals("aa", q.parse("{aa}"));
+            ParseCutException e = assertThrows(ParseCutException.class, () -> q.parse("{ax}"));
+            assertEquals(2, e.getIndex());
+            assertThrows(ParseCutException.class, () -> q.parse("{x"));
+            assertThrows(ParseCutException.class, () -> q.match("{x", 0));
+            assertThrows(ParseInternalException.class, () -> q.parse("x"));
+        }
+        assertEquals(0, tried[0]);
+        assertEquals("{x", oneOf(skip(ch('{')).and(ch('a').many().text()).skip(ch('}')), fallback).parse("{x"));
+        assertEquals(1, tried[0]);
+
+        // 切断点之前失败时正常尝试其他分支，切断点对外层连接同样生效，但不越过lazy
+        Parser<Object> q1 = oneOf(ch('a').cut().and(ch('b')).and(ch('c')), str("abd"));
+        assertThrows(ParseCutException.class, () -> q1.parse("abd"));
+        assertEquals("x", oneOf(ch('a').cut().and(ch('b')), str("x")).parse("x"));
+        Parser<Object> q2 = oneOf(lazy(() -> ch('a').cut().and(ch('b'))).and(ch('c')), str("abd"));
+        assertEquals("abd", q2.parse("abd"));
+
+        // repeat中的切断点
+        Parser<List<String>> list = skip(ch('(').cut()).and(ch('x').many().text()).skip(ch(')')).many();
+        assertEquals(List.of("x", "xx"), list.parse("(x)(xx)"));
+        assertThrows(ParseCutException.class, () -> list.parse("(x)(xx"));
+
+        // 切断点不丢弃记忆化结果，结果与输入的缓冲区大小无关
+        int[] count = {0};
+        Parser<Character> a = ch('a').map(c -> {
+            count[0]++;
+            return c;
+        }).memo();
+        Parser<Character> item = lazy(() -> a.skip(ch(';').cut()));
+        Parser<Object> r = oneOf(item.and(ch('x')), item.and(ch('y')));
+        assertEquals(new Pair<>('a', 'y'), r.parse("a;y"));
+        assertEquals(1, count[0]);
+        for (Parser<Object> q : List.of(q2, GrammarCompiler.compile(q2))) {
+            assertEquals("abd", q.parse(Inputs.stream(new StringReader("abd"), 4)));
+        }
+
+        // 预读中的切断点不越过边界，opt与oneOf相同
+        Parser<Character> cutAb = ch('a').cut().and(ch('b')).map(Pair::second);
+        Parser<Character> notAb = not(cutAb).and(any()).map(Pair::second);
+        Parser<Character> expectAb = Parsers.<Character>expect(cutAb).and(ch('a')).map(Pair::second);
+        Parser<Character> optAb = cutAb.opt('x');
+        for (Parser<Character> q : List.of(notAb, notAb.optimize(), GrammarCompiler.compile(notAb))) {
+            assertEquals(new ParseResult<>('a', 1), q.parse("ax", 0));
+            assertThrows(ParseInternalException.class, () -> q.parse("ab"));
+            assertEquals(-1, q.match("ab", 0));
+        }
+        for (Parser<Character> q : List.of(expectAb, GrammarCompiler.compile(expectAb))) {
+            assertThrows(ParseInternalException.class, () -> q.parse("ax"));
+            assertEquals(-1, q.match("ax", 0));
+        }
+        for (Parser<Character> q : List.of(optAb, GrammarCompiler.compile(optAb))) {
+            assertEquals(1, assertThrows(ParseCutException.class, () -> q.parse("ax", 0)).getIndex());
+            assertThrows(ParseCutException.class, () -> q.match("ax", 0));
+            assertEquals(new ParseResult<>('x', 0), q.parse("bx", 0));
+            assertEquals('b', q.parse("ab"));
+        }
+
+        // 提交点丢弃流式输入的缓冲区
+        Parser<List<String>> stream = skip(ch('(').cut().commit()).and(ch('x').many().text()).skip(ch(')')).many();
+        assertEquals(1000, stream.parse(Inputs.stream(new StringReader("(xx)".repeat(1000)), 16)).size());
+    }
+
+    @Test
+    public void testSepBy() {
+        Parser<Integer> num = range('0', '9').many1().text().map(Integer::parseInt);
+        Parser<List<Integer>> p = sepBy(num, ch(','));
+        for (Parser<List<Integer>> q : List.of(p, p.optimize(), GrammarCompiler.compile(p), Grammar.freeze(p))) {
+            assertEquals(List.of(1, 22, 333), q.parse("1,22,333"));
+            assertEquals(List.of(), q.parse(""));
+            assertEquals(new ParseResult<>(List.of(1, 2), 3), q.parse("1,2,", 0));
+            assertEquals(3, q.match("1,2,x", 0));
+            assertEquals(0, q.match("x", 0));
+        }
+
+        Parser<List<Integer>> p1 = sepBy1(num, ch(',').trim());
+        for (Parser<List<Integer>> q : List.of(p1, p1.optimize(), GrammarCompiler.compile(p1))) {
+            assertEquals(List.of(1, 2), q.parse("1 , 2"));
+            assertThrows(ParseInternalException.class, () -> q.parse(""));
+            assertEquals(-1, q.match(",1", 0));
+        }
+
+        Parser<List<Integer>> p2 = sepEndBy(num, ch(';'));
+        for (Parser<List<Integer>> q : List.of(p2, p2.optimize(), GrammarCompiler.compile(p2))) {
+            assertEquals(List.of(1, 2), q.parse("1;2"));
+            assertEquals(List.of(1, 2), q.parse("1;2;"));
+            assertEquals(List.of(), q.parse(""));
+            assertThrows(ParseInternalException.class, () -> q.parse(";"));
+            assertThrows(ParseInternalException.class, () -> q.parse("1;;"));
+            assertEquals(4, q.match("1;2;;", 0));
+        }
+        assertEquals("1,2;", lexeme(sepEndBy(num, chs(',', ';'))).parse("1,2;"));
+    }
+
+    @Test
+    public void testSepByOptions() {
+        Parser<Integer> num = range('0', '9').many1().text().map(Integer::parseInt);
+        SepByParser<Integer> p = sepBy(num, ch(',')).sizeHint(4).immutable();
+        assertEquals(4, p.sizeHint());
+        assertTrue(p.isImmutable());
+        for (Parser<List<Integer>> q : List.of(p, p.optimize(), GrammarCompiler.compile(p))) {
+            List<Integer> list = q.parse("1,2,3");
+            assertEquals(List.of(1, 2, 3), list);
+            assertThrows(UnsupportedOperationException.class, () -> list.add(4));
+            assertThrows(UnsupportedOperationException.class, () -> q.parse("").add(4));
+        }
+        List<Integer> mutable = sepBy(num, ch(',')).sizeHint(1).parse("1,2,3");
+        mutable.add(4);
+        assertEquals(List.of(1, 2, 3, 4), mutable);
+        assertThrows(IllegalArgumentException.class, () -> sepBy(num, ch(',')).sizeHint(-1));
+    }
+
+    @Test
+    public void testBetween() {
+        Parser<List<Character>> p = between(ch('['), ch(']'), sepBy(range('a', 'z'), ch(',')));
+        assertEquals(List.of('a', 'b'), p.parse("[a,b]"));
+        assertEquals(List.of(), p.parse("[]"));
+        assertThrows(ParseInternalException.class, () -> p.parse("[a,b"));
+        assertThrows(ParseInternalException.class, () -> p.parse("a,b]"));
+    }
+
+    @Test
+    public void testSepByParallel() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        AtomicReference<Parser<Object>> value = new AtomicReference<>();
+        Parser<Object> v = lazy(value::get).trim();
+        Parser<String> string = seq(ch('"'), oneOf(ch('\\').and(any()), not('"', '\\')).many(), ch('"')).text();
+        Parser<String> number = range('0', '9').many1().text().map(n -> {
+            threads.add(Thread.currentThread());
+            return n;
+        });
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelSepByParser<Object> items = sepByParallel(v, ',').threshold(64).pool(pool);
+            value.set(oneOf(string, number, skip(ch('[')).and(items).skip(ch(']'))));
+            Parser<Object> parallel = v;
+            Parser<Object> sequential = lazy(() -> oneOf(string, number,
+                skip(ch('[')).and(sepByParallel(v, ',').threshold(Integer.MAX_VALUE)).skip(ch(']')))).trim();
+
+            List<String> elements = IntStream.range(0, 3000)
+                .mapToObj(i -> switch (i % 4) {
+                    case 0 -> String.valueOf(i);
+                    case 1 -> "\"a,b]" + i + "\"";
+                    case 2 -> " [1, [\"q\\\"[,\", " + i + "], []] ";
+                    default -> "\"\\\\\"";
+                })
+                .collect(Collectors.toList());
+            String input = String.join(",", elements);
+            input = "[" + input + "]";
+            Object expected = sequential.parse(input);
+            assertEquals(3000, ((List<?>) expected).size());
+            threads.clear();
+            assertEquals(expected, parallel.parse(input));
+            // 阈值范围内的元素在调用方线程中解析，其余元素在线程池中解析
+            assertTrue(threads.contains(Thread.currentThread()));
+            assertTrue(threads.stream().anyMatch(t -> t != Thread.currentThread()));
+            assertEquals(input.length(), parallel.match(input, 0));
+            assertEquals(expected, parallel.optimize().parse(input));
+            assertEquals(expected, parallel.parse(input, new ParseContext().packrat(true)));
+
+            // 元素解析失败或列表不完整时与顺序解析相同
+            elements.add(1500, " 1 2");
+            String malformed = "[" + String.join(",", elements) + "]";
+            assertThrows(ParseInternalException.class, () -> sequential.parse(malformed));
+            assertThrows(ParseInternalException.class, () -> parallel.parse(malformed));
+            String trailing = input.substring(0, input.length() - 1) + ",]";
+            assertThrows(ParseInternalException.class, () -> parallel.parse(trailing));
+            assertEquals(input.length() - 1, items.match(input, 1));
+            assertEquals(List.of(), parallel.parse("[]"));
+            assertEquals(List.of("1", List.of("2", "3")), parallel.parse("[1, [2, 3]]"));
+            assertEquals(expected, parallel.parse(Inputs.stream(new StringReader(input), 1 << 20)));
+
+            // 所有分组共享调用方的步数限制和中断状态
+            String list = input;
+            ParseContext counted = new ParseContext().policy(ParsePolicy.unlimited().maxSteps(1L << 40));
+            assertEquals(expected, parallel.parse(input, counted));
+            long total = counted.getSteps();
+            ParseContext limited = new ParseContext().policy(ParsePolicy.unlimited().maxSteps(total / 2));
+            ParseLimitException e = assertThrows(ParseLimitException.class, () -> parallel.parse(list, limited));
+            assertEquals(ParseLimitException.Limit.STEPS, e.getLimit());
+            ParseContext interruptible = new ParseContext().policy(ParsePolicy.unlimited().interruptible(true));
+            Thread.currentThread().interrupt();
+            try {
+                e = assertThrows(ParseLimitException.class, () -> parallel.parse(list, interruptible));
+                assertEquals(ParseLimitException.Limit.INTERRUPTED, e.getLimit());
+            } finally {
+                Thread.interrupted();
+            }
+
+            // 第一个失败的元素在切断点之后失败时抛出异常，之前有元素失败时与顺序解析相同
+            Parser<Object> cutItem = oneOf(skip(ch('(').cut()).and(range('0', '9').many1().text()).skip(ch(')')), str("x"));
+            ParallelSepByParser<Object> cutItems = sepByParallel(cutItem, ',').threshold(8).pool(pool);
+            String cutInput = IntStream.range(0, 100).mapToObj(i -> i == 60 ? "(1x)" : "(" + i + ")").collect(Collectors.joining(","));
+            ParseCutException ce = assertThrows(ParseCutException.class, () -> cutItems.parse(cutInput));
+            assertEquals(cutInput.indexOf("(1x)") + 2, ce.getIndex());
+            String earlier = cutInput.replace("(30)", "y");
+            assertEquals(new ParseResult<>(IntStream.range(0, 30).mapToObj(String::valueOf).collect(Collectors.toList()),
+                earlier.indexOf(",y")), cutItems.parse(earlier, 0));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemo() {
+        int[] count = {0};
+        Parser<Character> a = ch('a').map(c -> {
+            count[0]++;
+            return c;
+        }).memo();
+        Parser<Pair<Character, Character>> p = oneOf(a.and('b'), a.and('c'));
+        ParseContext ctx = new ParseContext();
+        assertEquals(new Pair<>('a', 'c'), p.parse("ac", ctx));
+        assertEquals(1, count[0]);
+        assertEquals(1, ctx.getMemoHits());
+        assertEquals(1, ctx.getMemoMisses());
+
+        assertEquals(new Pair<>('a', 'b'), p.parse("ab", ctx));
+        assertEquals(2, count[0]);
+        assertEquals(0, ctx.getMemoHits());
+        assertEquals(1, ctx.getMemoMisses());
+
+        Parser<Character> b = ch('b').memo();
+        Parser<Object> q = oneOf(b.and('x'), b.and('y'), ch('z'));
+        assertThrows(ParseInternalException.class, () -> q.parse("bz", ctx));
+        assertEquals(1, ctx.getMemoHits());
+        assertEquals(1, ctx.getMemoMisses());
+
+        // 编号在第一次记忆化时分配，没有使用过的节点不占用编号
+        for (int i = 0; i < 10000; i++) {
+            ch('c').memo();
+        }
+        MemoParser<?> c = assertInstanceOf(MemoParser.class, ch('c').memo());
+        assertEquals('c', c.parse("c"));
+        assertTrue(c.slot() < 10000);
+    }
+
+    @Test
+    public void testPackrat() {
+        int[] count = {0};
+        Parser<String> ab = str("ab").map(s -> {
+            count[0]++;
+            return s;
+        });
+        Parser<String> a = lazy(() -> ab);
+        Parser<Object> p = oneOf(a.and('x'), a.and('y'));
+
+        assertEquals(new Pair<>("ab", 'y'), p.parse("aby"));
+        assertEquals(2, count[0]);
+
+        ParseContext ctx = new ParseContext().packrat(true);
+        assertEquals(new Pair<>("ab", 'y'), p.parse("aby", ctx));
+        assertEquals(3, count[0]);
+        assertEquals(1, ctx.getMemoHits());
+        assertEquals(1, ctx.getMemoMisses());
+    }
+
+    @Test
+    public void testTryParse() {
+        Parser<String> p = oneOf(str("ab"), str("cd")).many1().map(this::join);
+        assertEquals(new ParseResult<>("abcd", 4), p.tryParse("abcdx", 0));
+        assertTrue(p.tryParse("x", 0).isFailure());
+        assertSame(ParseResult.failure(), p.tryParse("", 0));
+
+        Parser<Character> custom = (s, index) -> {
+            throw ParseInternalException.INSTANCE;
+        };
+        assertTrue(custom.tryParse("a", 0).isFailure());
+        assertEquals('b', custom.or(ch('b')).parse("b"));
+    }
+
+    @Test
+    public void testFirstSet() {
+        assertEquals(FirstSet.of(CharClass.of('a')), ch('a').firstSet());
+        assertEquals(FirstSet.of(CharClass.of('h')), str("hello").firstSet());
+        assertEquals(FirstSet.empty(), str("").firstSet());
+        assertEquals(new FirstSet(CharClass.of('a', 'b'), true), strs("a", "b", "").firstSet());
+        assertEquals(FirstSet.of(CharClass.of('a')), ch('a').and(ch('b')).firstSet());
+        assertEquals(FirstSet.of(CharClass.of('a', 'b')), ch('a').many().and(ch('b')).firstSet());
+        assertEquals(new FirstSet(CharClass.of('a', 'b'), true), ch('a').opt('x').and(ch('b').many()).firstSet());
+        assertEquals(FirstSet.of(CharClass.of('a', 'b', 'c')), seq(ch('a').many(), ch('b').opt('x'), ch('c')).firstSet());
+        assertEquals(FirstSet.of(CharClass.of('a', 'h')), oneOf(ch('a'), str("hello")).firstSet());
+        assertEquals(FirstSet.of(CharClass.of('a')), ch('a').map(c -> 1).firstSet());
+        assertEquals(FirstSet.of(CharClass.of('a')), lazy(() -> ch('a')).firstSet());
+        assertEquals(FirstSet.of(CharClass.of(' ', '\t', '\n', '\r', 'a')), ch('a').trim().firstSet());
+        assertNull(ch(c -> c == 'a').firstSet());
+        assertNull(ch('a').fatal(() -> new MyParseException("a")).firstSet());
+        assertNull(oneOf(ch('a'), (s, index) -> new ParseResult<>('b', index)).firstSet());
+    }
+
+    @Test
+    public void testOneOfDispatch() {
+        int[] count = {0, 0, 0};
+        Parser<String> p1 = str("abc").map(s -> {
+            count[0]++;
+            return s;
+        });
+        Parser<String> p2 = (s, index) -> {
+            count[1]++;
+            throw ParseInternalException.INSTANCE;
+        };
+        Parser<String> p3 = ch('x').many().map(r -> {
+            count[2]++;
+            return "x";
+        });
+        Parser<String> p = oneOf(str("xyz"), p1, p2, p3);
+
+        assertEquals("abc", p.parse("abc"));
+        assertArrayEquals(new int[]{1, 0, 0}, count);
+        assertEquals("xyz", p.parse("xyz"));
+        assertArrayEquals(new int[]{1, 0, 0}, count);
+        assertEquals("x", p.parse("xx"));
+        assertArrayEquals(new int[]{1, 1, 1}, count);
+        assertEquals("x", p.parse(""));
+        assertArrayEquals(new int[]{1, 2, 2}, count);
+        assertThrows(ParseInternalException.class, () -> p.parse("中"));
+        assertArrayEquals(new int[]{1, 3, 3}, count);
+
+        Parser<Character> fatal = oneOf(ch('a'), ch('b').fatal(() -> new MyParseException("b expected")));
+        assertThrows(MyParseException.class, () -> fatal.parse("c"));
+    }
+
+    @Test
+    public void testText() {
+        int[] count = {0};
+        Parser<String> digits = range('0', '9').map(c -> {
+            count[0]++;
+            return c;
+        }).many1().text();
+        assertEquals("123", digits.parse("123"));
+        assertEquals(new ParseResult<>("12", 2), digits.parse("12.5", 0));
+        assertEquals(0, count[0]);
+        assertThrows(ParseInternalException.class, () -> digits.parse("abc"));
+
+        Parser<String> decimal = seq(digits, ch('.'), digits.opt("0")).text();
+        assertEquals("3.14", decimal.parse("3.14"));
+        assertEquals("3.", decimal.parse("3."));
+        assertThrows(ParseInternalException.class, () -> decimal.parse("3"));
+
+        Parser<String> word = oneOf(str("if"), strs("for", "while")).and(not(ch('_'))).text();
+        assertEquals("while", word.parse("while"));
+        assertThrows(ParseInternalException.class, () -> word.parse("do"));
+
+        // mapper中的校验不生效
+        Parser<Integer> octet = range('0', '9').many1().text().map(Integer::parseInt).map(n -> {
+            if (n > 255) {
+                throw ParseInternalException.INSTANCE;
+            }
+            return n;
+        });
+        assertThrows(ParseInternalException.class, () -> octet.parse("300"));
+        assertEquals("300", octet.text().parse("300"));
+        assertEquals("300", GrammarCompiler.compile(octet.text()).parse("300"));
+    }
+
+    @Test
+    public void testTakeWhile() {
+        CharClass digit = CharClass.range('0', '9');
+        Parser<String> p1 = takeWhile(digit);
+        assertEquals("123", p1.parse("123"));
+        assertEquals("", p1.parse(""));
+        assertEquals(new ParseResult<>("", 0), p1.parse("abc", 0));
+        assertEquals(new ParseResult<>("45", 4), p1.parse("ab45c", 2));
+
+        Parser<String> p2 = takeWhile1(digit.union(CharClass.of('_')));
+        assertEquals("1_000", p2.parse("1_000"));
+        assertThrows(ParseInternalException.class, () -> p2.parse(""));
+        assertThrows(ParseInternalException.class, () -> p2.parse("x"));
+        assertEquals(new FirstSet(digit, true), p1.firstSet());
+    }
+
+    /**
+     * 左递归的减法表达式，如10-3-2
+     */
+    private static Parser<Integer> difference() {
+        AtomicReference<Parser<Integer>> rule = new AtomicReference<>();
+        Parser<Integer> num = takeWhile1(CharClass.range('0', '9')).map(Integer::parseInt);
+        Parser<Integer> expr = leftRec(rule::get);
+        rule.set(oneOf(expr.skip(ch('-')).and(num).map(p -> p.first() - p.second()), num));
+        return expr;
+    }
+
+    @Test
+    public void testLeftRec() {
+        Parser<Integer> expr = difference();
+
+        assertEquals(5, expr.parse("10-3-2"));
+        assertEquals(10, expr.parse("10"));
+        assertEquals(new ParseResult<>(7, 4), expr.parse("10-3-", 0));
+        assertThrows(ParseInternalException.class, () -> expr.parse("-3"));
+        assertEquals(5, expr.parse("10-3-2", new ParseContext().packrat(true)));
+
+        // 左递归展开为循环，不会因为输入过长而栈溢出
+        String s = "1" + "-1".repeat(10000);
+        assertEquals(-9999, expr.parse(s));
+    }
+
+    private static Object parseOrError(Parser<?> p, String s) {
+        try {
+            return p.parse(s);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static Object matchOrError(Parser<?> p, String s) {
+        try {
+            return p.match(s, 0);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    /**
+     * testCompile和testOptimize共用的递归文法：括号内嵌套任意多个元素，extra为额外的分支
+     */
+    private static Parser<Object> nested(Parser<Integer> diff, Parser<?>... extra) {
+        AtomicReference<Parser<Object>> rule = new AtomicReference<>();
+        Parser<Object> item = lazy(rule::get);
+        rule.set(Parsers.<Object>oneOf(
+            skip(ch('(')).and(item.many()).skip(ch(')')),
+            seq(ch('#'), diff, ch(';')),
+            str("let").and(not(range('a', 'z'))).and(ch(' ').many1()).and(takeWhile1(CharClass.range('a', 'z'))),
+            ch('?').and(str("x").opt("none")).and(expect(ch('y'))),
+            ch('~').flatMap(r -> str("~~")),
+            ch('c').and(str("ommit").commit()),
+            ch('[').and(ch(']').fatal(() -> new MyParseException("] expected"))),
+            oneOf(extra)
+        ).trim());
+        return item;
+    }
+
+    @Test
+    public void testCompile() {
+        Parser<Integer> diff = difference();
+        Parser<Character> custom = (s, index) -> {
+            if (index < s.length() && s.charAt(index) == '!') {
+                return new ParseResult<>('!', index + 1);
+            }
+            throw ParseInternalException.INSTANCE;
+        };
+        Parser<Object> item = nested(diff,
+            strs("if", "in", "int").keyword(),
+            ch('@').and(satisfy(c -> c % 2 == 0).repeat(1, 3).text()),
+            ch('$').and(any().repeat(2)),
+            ch('中').and(range('一', '鿿').many()),
+            custom.and(ch('^').many().map(List::size)),
+            ch('m').and(str("emo").memo())
+        );
+        Parser<Object> compiled = GrammarCompiler.compile(item);
+        assertSame(compiled, GrammarCompiler.compile(compiled));
+
+        String[] inputs = {
+            "(if (#10-3-2;) let  abc)", "(@ba)", "@babab", "$ab", "$a", "?xy", "?y", "?x", "中文字", "!^^^", "!",
+            "~~~", "memo", "commit", "[]", "[", "(int in if)", "(integer)", "letx abc", "#1-;", "(", "", "(((())))"
+        };
+        for (String input : inputs) {
+            assertEquals(parseOrError(item, input), parseOrError(compiled, input), input);
+            assertEquals(matchOrError(item, input), matchOrError(compiled, input), input);
+        }
+        assertEquals(item.parse("(if in)", 1), compiled.parse("(if in)", 1));
+        assertEquals(item.parse("(if in)", new ParseContext().packrat(true)), compiled.parse("(if in)", new ParseContext().packrat(true)));
+        assertEquals(5, GrammarCompiler.compile(diff).parse("10-3-2"));
+        assertEquals("123", GrammarCompiler.compile(range('0', '9').many1().text()).parse(Inputs.of("123".toCharArray())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOptimize() {
+        // 连续的map合并为一个
+        Parser<Integer> mapped = takeWhile1(CharClass.range('0', '9')).map(Integer::parseInt).map(n -> n * 2).optimize();
+        MapParser<?, ?> map = assertInstanceOf(MapParser.class, mapped);
+        assertInstanceOf(TakeWhileParser.class, map.parser());
+        assertEquals(246, mapped.parse("123"));
+
+        // 嵌套的连接展开为一层，相邻的str和ch合并
+        Parser<Pair<Pair<Pair<String, Character>, String>, List<Object>>> and = str("let").and(ch(' ')).and(takeWhile1(CharClass.range('a', 'z')))
+            .and(seq(ch('='), str("1"), ch(';')));
+        Parser<Pair<Pair<Pair<String, Character>, String>, List<Object>>> chain = and.optimize();
+        ChainParser<?> c = assertInstanceOf(ChainParser.class, chain);
+        assertEquals(3, c.parsers().length);
+        assertEquals("let ", assertInstanceOf(StrParser.class, c.parsers()[0]).str());
+        assertEquals("=1;", assertInstanceOf(StrParser.class, c.parsers()[2]).str());
+        assertEquals(and.parse("let x=1;"), chain.parse("let x=1;"));
+        assertThrows(ParseInternalException.class, () -> chain.parse("let x=2;"));
+
+        // skip不构造中间结果
+        Parser<String> skip = skip(ch('(')).and(skip(ch(' ').many()).and(str("abc"))).skip(ch(' ').many()).skip(ch(')'));
+        assertNotNull(PickParser.of(skip));
+        assertEquals(5, assertInstanceOf(ChainParser.class, skip.optimize()).parsers().length);
+        assertEquals("abc", skip.optimize().parse("(  abc )"));
+
+        Parser<Integer> diff = difference();
+        Parser<Object> ref = nested(diff, ch('@').and(satisfy(c1 -> c1 % 2 == 0).repeat(1, 3).text()).map(Pair::second).map(String::length));
+        Parser<Object> optimized = ref.optimize();
+
+        String[] inputs = {
+            "(#10-3-2; let  abc)", "(@ba)", "@babab", "?xy", "?y", "?x", "~~~", "commit", "[]", "[", "letx abc", "#1-;", "(", "", "((()))"
+        };
+        for (String input : inputs) {
+            assertEquals(parseOrError(ref, input), parseOrError(optimized, input), input);
+            assertEquals(matchOrError(ref, input), matchOrError(optimized, input), input);
+            assertEquals(parseOrError(ref, input), parseOrError(GrammarCompiler.compile(optimized), input), input);
+        }
+        assertEquals(5, diff.optimize().parse("10-3-2"));
+
+        // 记忆化的lazy与直接引用的同一个lazy改写为同一个解析器，与freeze相同
+        Parser<?> inner = ((MemoParser<Integer>) diff).parser();
+        for (Parser<?> copied : List.of(seq(diff, inner).optimize(), Grammar.freeze(seq(diff, inner)))) {
+            Parser<?>[] parsers = copied instanceof ChainParser<?> p ? p.parsers() : ((SeqParser) copied).parsers();
+            assertSame(assertInstanceOf(MemoParser.class, parsers[0]).parser(), parsers[1]);
+        }
+    }
+
+    @Test
+    public void testLexeme() {
+        Parser<String> identifier = lexeme(oneOf(range('a', 'z'), ch('_')).and(oneOf(range('a', 'z'), range('0', '9'), ch('_')).many()));
+        assertEquals("abc_1", identifier.parse("abc_1"));
+        assertEquals(new ParseResult<>("ab", 2), identifier.parse("ab+c", 0));
+        assertThrows(ParseInternalException.class, () -> identifier.parse("1ab"));
+        assertEquals(new FirstSet(CharClass.range('a', 'z').union(CharClass.of('_')), false), identifier.firstSet());
+
+        // 最长匹配
+        assertEquals("ab", lexeme(oneOf(str("a"), str("ab"))).parse("ab"));
+        assertEquals("aaa", lexeme(ch('a').many().and(ch('a'))).parse("aaa"));
+        assertThrows(ParseInternalException.class, () -> ch('a').many().and(ch('a')).parse("aaa"));
+        assertEquals("intx", lexeme(strs("if", "in", "int").and(ch('x').opt(' '))).parse("intx"));
+
+        Parser<String> xs = lexeme(ch('x').repeat(2, 3));
+        assertThrows(ParseInternalException.class, () -> xs.parse("x"));
+        assertEquals("xxx", xs.parse("xxx"));
+        assertEquals(3, xs.match("xxxx", 0));
+        assertEquals("", lexeme(ch('a').many()).parse(""));
+        assertEquals("中文", lexeme(range('一', '鿿').many1()).parse("中文"));
+        assertEquals("3.14", lexeme(seq(takeWhile1(CharClass.range('0', '9')), ch('.'), takeWhile(CharClass.range('0', '9')))).parse("3.14"));
+        assertEquals("12345", lexeme(range('0', '9').many1()).parse(Inputs.stream(new java.io.StringReader("12345"), 64)));
+        assertEquals("ab", lexeme(str("a").and(str("b")).optimize()).parse("ab"));
+
+        assertThrows(IllegalArgumentException.class, () -> lexeme(satisfy(Character::isDigit)));
+        assertThrows(IllegalArgumentException.class, () -> lexeme(ch('a').and(not(ch('b')))));
+        assertThrows(IllegalArgumentException.class, () -> lexeme(strs("if").keyword()));
+        AtomicReference<Parser<Object>> rule = new AtomicReference<>();
+        rule.set(ch('(').and(lazy(rule::get).opt(null)).and(ch(')')).map(p -> p));
+        assertThrows(IllegalArgumentException.class, () -> lexeme(rule.get()));
+
+        // 与正则表达式的最长匹配前缀比较
+        Parser<String> lexeme = lexeme(oneOf(str("ab"), ch('a').many1()).and(ch('b').opt('-')).and(chs('c', 'd').repeat(0, 2)).many1());
+        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("(?:(?:ab|a+)b?[cd]{0,2})+");
+        java.util.Random random = new java.util.Random(0);
+        for (int n = 0; n < 500; n++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = random.nextInt(12); i > 0; i--) {
+                sb.append("abcd".charAt(random.nextInt(4)));
+            }
+            String input = sb.toString();
+            int expected = -1;
+            for (int end = input.length(); end >= 0; end--) {
+                if (pattern.matcher(input.substring(0, end)).matches()) {
+                    expected = end;
+                    break;
+                }
+            }
+            assertEquals(expected, lexeme.match(input, 0), input);
+        }
+    }
 }
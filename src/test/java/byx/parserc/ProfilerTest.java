@@ -0,0 +1,108 @@
+package byx.parserc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static byx.parserc.Parsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfilerTest {
+    private static Map<String, Profiler.RuleStats> statsByName(Profiler profiler) {
+        return profiler.stats().stream().collect(Collectors.toMap(Profiler.RuleStats::name, Function.identity()));
+    }
+
+    @Test
+    public void testDisabled() {
+        Parser<String> p = str("abc");
+        assertSame(p, p.named("abc"));
+    }
+
+    @Test
+    public void testStats() {
+        Profiler profiler = new Profiler();
+        Parser<Object> rule = profiler.build(() -> {
+            Parser<String> a = str("a").named("a");
+            return Parsers.<Object>oneOf(a.and(ch('x')), a.and(ch('y')), ch('z')).named("rule");
+        });
+        assertInstanceOf(ProfiledParser.class, rule);
+
+        rule.parse("ay");
+        Map<String, Profiler.RuleStats> stats = statsByName(profiler);
+        assertEquals(1, stats.get("rule").calls());
+        assertEquals(1, stats.get("rule").successes());
+        assertEquals(0, stats.get("rule").reentries());
+        Profiler.RuleStats a = stats.get("a");
+        assertEquals(2, a.calls());
+        assertEquals(2, a.successes());
+        assertEquals(0, a.failures());
+        assertEquals(1, a.reentries());
+        assertTrue(a.selfNanos() >= 0 && a.selfNanos() <= a.totalNanos());
+        assertTrue(stats.get("rule").totalNanos() >= a.totalNanos());
+        assertTrue(stats.get("rule").selfNanos() <= stats.get("rule").totalNanos() - a.totalNanos());
+
+        // 新的输入重新统计重复调用，FIRST集排除的分支不会被调用
+        assertEquals(-1, rule.match("az", 0));
+        stats = statsByName(profiler);
+        assertEquals(4, stats.get("a").calls());
+        assertEquals(2, stats.get("a").reentries());
+        assertEquals(1, stats.get("rule").failures());
+
+        String report = profiler.report();
+        assertTrue(report.contains("rule") && report.contains("reenter"));
+        List<String> lines = profiler.dump().lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("rule,calls,"));
+
+        profiler.reset();
+        assertTrue(profiler.stats().isEmpty());
+    }
+
+    @Test
+    public void testRecursionAndExceptions() {
+        Profiler profiler = new Profiler();
+        AtomicReference<Parser<Object>> rule = new AtomicReference<>();
+        Parser<Object> nested = profiler.build(() -> {
+            Parser<Object> r = lazy(rule::get).named("nested");
+            rule.set(Parsers.<Object>oneOf(skip(ch('(')).and(r).skip(ch(')').fatal(() -> new MyParseException("')' expected"))), ch('x')));
+            return r;
+        });
+
+        assertEquals('x', nested.parse("(((x)))"));
+        Profiler.RuleStats s = statsByName(profiler).get("nested");
+        assertEquals(4, s.calls());
+        assertEquals(4, s.successes());
+        assertTrue(s.totalNanos() >= 0 && s.selfNanos() <= s.totalNanos());
+
+        // 异常穿过命名规则后调用栈仍然正确
+        assertThrows(MyParseException.class, () -> nested.parse("((x)"));
+        s = statsByName(profiler).get("nested");
+        assertEquals(7, s.calls());
+        assertEquals(6, s.successes());
+        assertEquals(1, s.failures());
+        assertEquals('x', nested.parse("x"));
+    }
+
+    @Test
+    public void testFinishedThreads() throws InterruptedException {
+        Profiler profiler = new Profiler();
+        Parser<String> a = profiler.build(() -> str("a").named("a"));
+        for (int i = 0; i < 3; i++) {
+            Thread t = new Thread(() -> a.parse("a"));
+            t.start();
+            t.join();
+        }
+
+        // 已结束线程的统计结果合并后仍然保留，并且可以被清空
+        a.parse("a");
+        assertEquals(4, statsByName(profiler).get("a").calls());
+        profiler.reset();
+        assertTrue(profiler.stats().isEmpty());
+        a.parse("a");
+        assertEquals(1, statsByName(profiler).get("a").calls());
+    }
+}
@@ -1,10 +1,10 @@
 package byx.parserc;
 
+import byx.parserc.exception.ParseInternalException;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 import static byx.parserc.Parsers.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -141,6 +141,44 @@ public class TokenizerTest {
                 new Token(TokenType.CloseCurlyBraces, "}")
         ), Tokenizer.tokenize(s));
     }
+
+    @Test
+    public void testTokenInput() {
+        Parser<String> value = Parsers.<Token>tokens(TokenType.Integer, TokenType.Decimal, TokenType.String).map(Token::value);
+        Parser<List<String>> array = skip(token(TokenType.OpenSquareBracket))
+            .and(value.and(skip(token(TokenType.Comma)).and(value).many()))
+            .skip(token(TokenType.CloseSquareBracket))
+            .map(p -> {
+                List<String> values = new ArrayList<>();
+                values.add(p.first());
+                values.addAll(p.second());
+                return values;
+            });
+        Parser<Pair<String, List<String>>> declaration = skip(token(TokenType.Identifier))
+            .and(Parsers.<Token>token(TokenType.Identifier).map(Token::value))
+            .skip(token(TokenType.Assign))
+            .and(oneOf(array, value.map(List::of)))
+            .skip(token(TokenType.Semicolon));
+
+        List<Token> tokens = Tokenizer.tokenize("var a = 123; var d = [1, 2, 3.14, 'hello'];");
+        Inputs.TokenInput<Token> input = Inputs.tokens(tokens, t -> t.type().ordinal());
+        assertEquals(List.of(
+            new Pair<>("a", List.of("123")),
+            new Pair<>("d", List.of("1", "2", "3.14", "hello"))
+        ), declaration.many().parse(input));
+        assertEquals(tokens.get(3), input.token(3));
+        assertEquals(TokenType.Integer.ordinal(), input.kind(3));
+        assertThrows(ParseInternalException.class, () -> declaration.many().parse(Inputs.tokens(tokens.subList(0, 4), t -> t.type().ordinal())));
+
+        Parser<Integer> kinds = Parsers.<Integer>token(1).and(tokens(2, 3).many()).map(p -> p.first() + p.second().size());
+        assertEquals(3, kinds.parse(Inputs.tokens(new int[]{1, 3, 2})));
+        assertThrows(IllegalArgumentException.class, () -> kinds.parse("abc"));
+        // 只识别时同样要求记号输入
+        assertThrows(IllegalArgumentException.class, () -> token(97).text().parse("a"));
+        assertThrows(IllegalArgumentException.class, () -> token(97).match("a", 0));
+        assertEquals(-1, token(97).match(Inputs.tokens(new int[]{97}), 1));
+        assertThrows(IllegalArgumentException.class, () -> Inputs.tokens(new int[]{-1}));
+    }
 }
 
 /**
@@ -178,14 +216,14 @@ class Tokenizer {
     private static final Parser<Character> alpha = range('a', 'z').or(range('A', 'Z'));
     private static final Parser<Character> digit = range('0', '9');
     private static final Parser<Character> underline = ch('_');
-    private static final Parser<Token> identifier = oneOf(alpha, underline).and(oneOf(digit, alpha, underline).many())
-        .map(p -> new Token(TokenType.Identifier, p.first() + join(p.second())));
-    private static final Parser<String> digits = digit.many1().map(Tokenizer::join);
+    private static final Parser<Token> identifier = lexeme(oneOf(alpha, underline).and(oneOf(digit, alpha, underline).many()))
+        .map(v -> new Token(TokenType.Identifier, v));
+    private static final Parser<String> digits = lexeme(digit.many1());
     private static final Parser<Token> integer = digits.map(v -> new Token(TokenType.Integer, v));
-    private static final Parser<Token> decimal = seq(digits, ch('.'), digits).map(Tokenizer::join)
+    private static final Parser<Token> decimal = lexeme(seq(digits, ch('.'), digits))
         .map(s -> new Token(TokenType.Decimal, s));
-    private static final Parser<Token> string = skip(ch('\'')).and(not('\'').many()).skip(ch('\''))
-        .map(r -> new Token(TokenType.String, join(r)));
+    private static final Parser<Token> string = skip(ch('\'')).and(lexeme(not('\'').many())).skip(ch('\''))
+        .map(r -> new Token(TokenType.String, r));
     private static final Parser<Token> add = createTokenParser(TokenType.Add, "+");
     private static final Parser<Token> sub = createTokenParser(TokenType.Sub, "-");
     private static final Parser<Token> mul = createTokenParser(TokenType.Mul, "*");
@@ -218,10 +256,6 @@ class Tokenizer {
         semi, comma
     ).trim().many();
 
-    private static String join(List<?> list) {
-        return list.stream().map(Objects::toString).collect(Collectors.joining());
-    }
-
     private static Parser<Token> createTokenParser(TokenType type, String value) {
         return str(value).map(v -> new Token(type, v));
     }